@@ -0,0 +1,245 @@
+package aohara.tinkertime;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.JDialog;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import aohara.common.Version;
+import aohara.common.workflows.tasks.BrowserGoToTask;
+import aohara.tinkertime.crawlers.Crawler;
+import aohara.tinkertime.crawlers.CrawlerFactory;
+import aohara.tinkertime.crawlers.CrawlerFactory.UnsupportedHostException;
+import aohara.tinkertime.crawlers.VersionProbe;
+import aohara.tinkertime.crawlers.pageLoaders.JsonLoader;
+import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
+import aohara.tinkertime.crawlers.pageLoaders.WebpageLoader;
+import aohara.tinkertime.net.HttpClient;
+import aohara.tinkertime.net.RetryPolicy;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Checks for updates to Tinker Time in the background.
+ *
+ * Checks run one at a time on a shared daemon thread, so that a slow
+ * network never holds anything up, nor keeps the application running.  The
+ * version probe has its own short timeout, and is neither retried nor
+ * hedged, so that a check on a slow network gives up quickly.  Only the
+ * version is probed, so the user is never prompted to select a download;
+ * the mod's page is opened instead.  The result is cached on disk so that
+ * the startup check is only made once a day.  If an update is available,
+ * the user is asked with a non-modal dialog.
+ */
+public class AppUpdateChecker {
+
+	static final long CHECK_INTERVAL_MS = 24 * 60 * 60 * 1000;
+	static final int PROBE_TIMEOUT_MS = 3 * 1000;
+
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory(){
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "App Update Checker");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final CrawlerFactory crawlerFactory = newProbeCrawlerFactory();
+	private final TinkerConfig config;
+	private final Gson gson = new Gson();
+
+	public AppUpdateChecker(TinkerConfig config){
+		this.config = config;
+	}
+
+	/**
+	 * Returns a factory whose crawlers make a single attempt at each
+	 * request, which times out after {@link #PROBE_TIMEOUT_MS}.
+	 */
+	private static CrawlerFactory newProbeCrawlerFactory(){
+		HttpClient client = new HttpClient();
+		client.setTimeout(PROBE_TIMEOUT_MS);
+		WebpageLoader htmlLoader = new WebpageLoader(client);
+		JsonLoader jsonLoader = new JsonLoader(client);
+		for (PageLoader<?> loader : new PageLoader<?>[]{ htmlLoader, jsonLoader }){
+			loader.setRetryPolicy(RetryPolicy.NONE);
+			loader.setHedgingEnabled(false);
+		}
+
+		CrawlerFactory factory = new CrawlerFactory(htmlLoader, jsonLoader);
+		factory.setFallbacksEnabled(false);
+		factory.setReleaseFeed(null);  // Probed directly
+		return factory;
+	}
+
+	// -- Interface --------------------------------------------------------
+
+	/**
+	 * Checks for an update in the background, unless a result from the
+	 * last day is cached.  The user is only notified if an update is available.
+	 */
+	public void checkOnStartup(){
+		execute(new CheckRunnable(false));
+	}
+
+	/**
+	 * Checks for an update in the background, ignoring the cached result.
+	 * The user is notified of the result either way.
+	 */
+	public void checkNow(){
+		execute(new CheckRunnable(true));
+	}
+
+	private static void execute(Runnable check){
+		EXECUTOR.execute(check);
+	}
+
+	// -- Check ------------------------------------------------------------
+
+	private class CheckRunnable implements Runnable {
+
+		private final boolean manual;
+
+		private CheckRunnable(boolean manual){
+			this.manual = manual;
+		}
+
+		@Override
+		public void run() {
+			CheckResult result = manual ? null : loadResult();
+			if (result == null || result.isExpired()){
+				try {
+					Crawler<?> crawler = crawlerFactory.getCrawler(new URL(TinkerTime.DOWNLOAD_URL));
+					VersionProbe probe = crawler.probeVersion();
+					if (probe.version == null){
+						throw new IOException("Could not determine latest version of " + TinkerTime.NAME);
+					}
+					result = new CheckResult(probe.version, null);
+					saveResult(result);
+				} catch (IOException | UnsupportedHostException e) {
+					e.printStackTrace();
+					if (manual){
+						showMessage("Could not check for updates:\n" + e, JOptionPane.ERROR_MESSAGE);
+					}
+					return;
+				}
+			}
+
+			Version latest = result.getLatestVersion();
+			if (latest != null && latest.greaterThan(TinkerTime.VERSION)){
+				showPrompt(latest, result.getDownloadLink());
+			} else if (manual){
+				showMessage(TinkerTime.NAME + " is up to date.", JOptionPane.INFORMATION_MESSAGE);
+			}
+		}
+	}
+
+	// -- Cache ------------------------------------------------------------
+
+	private CheckResult loadResult(){
+		try(FileReader reader = new FileReader(config.getAppUpdateCachePath().toFile())){
+			return gson.fromJson(reader, CheckResult.class);
+		} catch (FileNotFoundException e){
+			return null;
+		} catch (IOException | JsonParseException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private void saveResult(CheckResult result){
+		try(FileWriter writer = new FileWriter(config.getAppUpdateCachePath().toFile())){
+			gson.toJson(result, writer);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static class CheckResult {
+
+		private final long checkedOn;
+		private final String latestVersion, downloadLink;
+
+		private CheckResult(Version latestVersion, URL downloadLink){
+			this.checkedOn = System.currentTimeMillis();
+			this.latestVersion = latestVersion.toString();
+			this.downloadLink = downloadLink != null ? downloadLink.toString() : null;
+		}
+
+		private boolean isExpired(){
+			return System.currentTimeMillis() - checkedOn > CHECK_INTERVAL_MS;
+		}
+
+		private Version getLatestVersion(){
+			try {
+				return latestVersion != null ? Version.valueOf(latestVersion) : null;
+			} catch (IllegalArgumentException e){
+				return null;
+			}
+		}
+
+		private URL getDownloadLink(){
+			try {
+				return new URL(downloadLink != null ? downloadLink : TinkerTime.DOWNLOAD_URL);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+	}
+
+	// -- Dialogs ----------------------------------------------------------
+
+	private void showPrompt(final Version latest, final URL downloadLink){
+		final JOptionPane pane = new JOptionPane(
+			String.format(
+				"%s v%s is available.%n" +
+				"Would you like to download it?%n" +
+				"%n" +
+				"You currently have v%s",
+				TinkerTime.NAME, latest, TinkerTime.VERSION
+			),
+			JOptionPane.QUESTION_MESSAGE,
+			JOptionPane.YES_NO_OPTION
+		);
+		pane.addPropertyChangeListener(JOptionPane.VALUE_PROPERTY, new PropertyChangeListener() {
+			@Override
+			public void propertyChange(PropertyChangeEvent evt) {
+				if (Integer.valueOf(JOptionPane.YES_OPTION).equals(evt.getNewValue()) && downloadLink != null){
+					try {
+						BrowserGoToTask.callNow(downloadLink);
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		});
+		showNonModal(pane, "Update Tinker Time");
+	}
+
+	private void showMessage(String message, int messageType){
+		showNonModal(new JOptionPane(message, messageType), "Tinker Time Update");
+	}
+
+	private static void showNonModal(final JOptionPane pane, final String title){
+		SwingUtilities.invokeLater(new Runnable(){
+			@Override
+			public void run() {
+				JDialog dialog = pane.createDialog(null, title);
+				dialog.setModal(false);
+				dialog.setVisible(true);
+			}
+		});
+	}
+}
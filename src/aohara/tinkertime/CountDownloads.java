@@ -5,6 +5,8 @@ import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 
+import aohara.tinkertime.net.HttpClient;
+
 import com.google.gson.JsonElement;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonParser;
@@ -24,7 +26,7 @@ public class CountDownloads {
 		KS_URL = "https://kerbalstuff.com/api/mod/243";
 	
 	private static final JsonElement getJson(String url) throws JsonIOException, JsonSyntaxException, MalformedURLException, IOException{
-		return parser.parse(new InputStreamReader(new URL(url).openStream()));
+		return parser.parse(new InputStreamReader(HttpClient.getInstance().open(new URL(url)).getInputStream()));
 	}
 	
 	public static void main(String[] args) throws Exception {
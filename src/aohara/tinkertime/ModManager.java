@@ -1,8 +1,11 @@
 package aohara.tinkertime;
 
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -14,8 +17,15 @@ import aohara.tinkertime.crawlers.CrawlerFactory;
 import aohara.tinkertime.crawlers.CrawlerFactory.UnsupportedHostException;
 import aohara.tinkertime.models.DefaultMods;
 import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.net.BandwidthLimiter;
+import aohara.tinkertime.net.DownloadConcurrency;
+import aohara.tinkertime.net.HttpClient;
 import aohara.tinkertime.resources.ModLoader;
+import aohara.tinkertime.resources.UpdateCheckCache;
+import aohara.tinkertime.workflows.KeyedExecutor;
 import aohara.tinkertime.workflows.ModWorkflowBuilder;
+import aohara.tinkertime.workflows.PriorityExecutor;
+import aohara.tinkertime.workflows.PriorityExecutor.Priority;
 
 /**
  * Controller for initiating Asynchronous Tasks for Mod Processing.
@@ -31,9 +41,21 @@ public class ModManager extends Listenable<TaskCallback> {
 	public final TinkerConfig config;
 	
 	private final CrawlerFactory crawlerFactory;
-	private final ThreadPoolExecutor downloadExecutor;
-	private final Executor enablerExecutor;
+	private final ThreadPoolExecutor downloadPool;
+	private final PriorityExecutor downloadExecutor;
+	private final DownloadConcurrency downloadConcurrency;
+	private final BandwidthLimiter bandwidthLimiter;
+	private final KeyedExecutor enablerExecutor;
 	private final ModLoader modLoader;
+	private final AppUpdateChecker appUpdateChecker;
+	private final ModUpdateScheduler updateScheduler;
+	private final Map<String, ModWorkflowBuilder> inFlight = new HashMap<>();
+	private final ModWorkflowBuilder.EnablerExecutor enabler = new ModWorkflowBuilder.EnablerExecutor() {
+		@Override
+		public void execute(Mod mod, ModWorkflowBuilder workflow) {
+			submitEnablerWorkflow(mod, workflow);
+		}
+	};
 	
 	private Mod selectedMod;
 
@@ -44,9 +66,18 @@ public class ModManager extends Listenable<TaskCallback> {
 	){
 		this.modLoader = loader;
 		this.config = config;
-		this.downloadExecutor = downloadExecutor;
-		this.enablerExecutor = enablerExecutor;
+		this.downloadPool = downloadExecutor;
+		this.downloadExecutor = new PriorityExecutor(downloadExecutor);
+		this.downloadConcurrency = HttpClient.getInstance().getDownloadConcurrency();
+		this.bandwidthLimiter = HttpClient.getInstance().getBandwidthLimiter();
+		bandwidthLimiter.setCap(config.maxDownloadBytesPerSecond());
+		this.enablerExecutor = new KeyedExecutor(enablerExecutor);
 		this.crawlerFactory = crawlerFactory;
+		if (crawlerFactory.getReleaseFeed() != null){
+			crawlerFactory.getReleaseFeed().setStore(loader.getUpdateChecks());  // Conditional requests across restarts
+		}
+		this.appUpdateChecker = new AppUpdateChecker(config);
+		this.updateScheduler = new ModUpdateScheduler(this, loader, config);
 	}
 	
 	// -- Interface --------------------------------------------------------
@@ -58,8 +89,21 @@ public class ModManager extends Listenable<TaskCallback> {
 		return selectedMod;
 	}
 	
+	/**
+	 * Selects the mod, and moves any of its waiting downloads ahead of
+	 * bulk and background work, with a full share of the bandwidth.
+	 */
 	void selectMod(Mod mod){
 		this.selectedMod = mod;
+		if (mod != null){
+			downloadExecutor.promote(mod.id);
+			synchronized(inFlight){
+				if (inFlight.containsKey(mod.id)){
+					inFlight.get(mod.id).setBackground(false);
+					inFlight.get(mod.id).setPriority(Priority.Interactive);
+				}
+			}
+		}
 	}
 	
 	/**
@@ -70,33 +114,39 @@ public class ModManager extends Listenable<TaskCallback> {
 	 * @throws ModNotDownloadedException 
 	 */
 	public void updateMod(Mod mod, boolean forceUpdate) throws ModUpdateFailedError, ModNotDownloadedException {
+		updateMod(mod, forceUpdate, Priority.Interactive);
+	}
+	
+	private void updateMod(Mod mod, boolean forceUpdate, Priority priority) throws ModUpdateFailedError {
 		if (!mod.isUpdateable()){
 			throw new ModUpdateFailedError(mod, "Mod is a local zip only, and cannot be updated.");
 		}
 		try {
 			ModWorkflowBuilder builder = new ModWorkflowBuilder(mod, crawlerFactory);
-			builder.updateMod(config, modLoader, forceUpdate);
-			submitDownloadWorkflow(builder);
+			builder.updateMod(config, modLoader, forceUpdate, enabler);
+			submitDownloadWorkflow(mod, builder, priority);
 		} catch (UnsupportedHostException e) {
 			throw new ModUpdateFailedError(e);
 		}
 	}
 	
 	public void downloadMod(URL url) throws UnsupportedHostException {
-		ModWorkflowBuilder builder = new ModWorkflowBuilder(Mod.newTempMod(url), crawlerFactory);
-		builder.downloadNewMod(config, modLoader);
-		submitDownloadWorkflow(builder);
+		Mod mod = Mod.newTempMod(url);
+		ModWorkflowBuilder builder = new ModWorkflowBuilder(mod, crawlerFactory);
+		builder.downloadNewMod(config, modLoader, enabler);
+		submitDownloadWorkflow(mod, builder, Priority.Interactive);
 	}
 	
 	public void addModZip(Path zipPath){
-		ModWorkflowBuilder builder = new ModWorkflowBuilder(Mod.newTempMod(zipPath), crawlerFactory);
+		Mod mod = Mod.newTempMod(zipPath);
+		ModWorkflowBuilder builder = new ModWorkflowBuilder(mod, crawlerFactory);
 		builder.addLocalMod(zipPath, modLoader);
-		submitDownloadWorkflow(builder);
+		submitDownloadWorkflow(mod, builder, Priority.Interactive);
 	}
 	
 	public void updateMods() throws ModUpdateFailedError, ModNotDownloadedException{
 		for (Mod mod : modLoader.getMods()){
-			updateMod(mod, false);
+			updateMod(mod, false, Priority.Bulk);
 		}
 	}
 	
@@ -108,7 +158,7 @@ public class ModManager extends Listenable<TaskCallback> {
 			} else {
 				builder.enableMod(mod, modLoader, config);
 			}			
-			submitEnablerWorkflow(builder);
+			submitEnablerWorkflow(mod, builder);
 		} catch (ModNotDownloadedException e){
 			// Ignore user input if mod not downloaded
 		}
@@ -126,21 +176,53 @@ public class ModManager extends Listenable<TaskCallback> {
 			@Override
 			protected void processTaskEvent(TaskEvent event) {
 				modLoader.modDeleted(mod);
+				modLoader.getUpdateChecks().remove(mod);
 			}
 		});
 		
-		submitEnablerWorkflow(builder);
+		submitEnablerWorkflow(mod, builder);
+	}
+	
+	/**
+	 * Cancels the download workflow in flight for the mod, if any.
+	 * 
+	 * An update only replaces the mod once it has been completely
+	 * downloaded, so a cancelled update leaves the mod as it was.
+	 * 
+	 * @return true if a workflow was cancelled
+	 */
+	public boolean cancelDownload(Mod mod){
+		ModWorkflowBuilder builder;
+		synchronized(inFlight){
+			builder = inFlight.get(mod.id);
+		}
+		if (builder != null){
+			builder.cancelGraph();
+		}
+		return builder != null;
 	}
 	
 	public void checkForModUpdates() throws Exception{
+		checkForModUpdates(false);
+	}
+	
+	/**
+	 * Checks the mods for updates, except for those checked more recently
+	 * than the configured time.  Their cached results are already displayed.
+	 */
+	public void checkForModUpdatesOnStartup() throws Exception{
+		checkForModUpdates(true);
+	}
+	
+	private void checkForModUpdates(boolean skipRecent) throws Exception{
 		Exception e = null;
+		UpdateCheckCache updateChecks = modLoader.getUpdateChecks();
+		long now = System.currentTimeMillis(), ttlMs = skipRecent ? config.updateCheckTtlMs() : 0;
 		
 		for (final Mod mod : modLoader.getMods()){
 			try {
-				if (mod.isUpdateable()){
-					ModWorkflowBuilder builder = new ModWorkflowBuilder(mod, crawlerFactory);
-					builder.checkForUpdates(modLoader, true);
-					submitDownloadWorkflow(builder);
+				if (mod.isUpdateable() && !updateChecks.isFresh(mod, ttlMs, now)){
+					checkForModUpdate(mod);
 				}
 			} catch (UnsupportedHostException ex) {
 				ex.printStackTrace();
@@ -153,6 +235,35 @@ public class ModManager extends Listenable<TaskCallback> {
 		}
 	}
 	
+	/**
+	 * Checks the mod for an update in the background, and marks it if one
+	 * is available.
+	 */
+	void checkForModUpdate(Mod mod) throws UnsupportedHostException {
+		ModWorkflowBuilder builder = new ModWorkflowBuilder(mod, crawlerFactory);
+		builder.checkForUpdates(modLoader, true);
+		if (config.preDownloadUpdates()){
+			builder.preDownloadUpdate(config, modLoader);
+		}
+		submitDownloadWorkflow(mod, builder, Priority.Background);
+	}
+	
+	/**
+	 * Starts checking the mods for updates periodically, each as often as
+	 * it is released.  The mods are only checked while periodic checks are
+	 * enabled in the options, so the scheduler can be started regardless.
+	 */
+	public void startUpdateScheduler(){
+		updateScheduler.start();
+	}
+	
+	/**
+	 * Stops checking the mods for updates periodically.
+	 */
+	public void stopUpdateScheduler(){
+		updateScheduler.stop();
+	}
+	
 	public void exportEnabledMods(Path path){
 		modLoader.exportEnabledMods(path);
 	}
@@ -162,23 +273,25 @@ public class ModManager extends Listenable<TaskCallback> {
 	}
 	
 	/**
-	 * Launches an update task to check for the latest update to the Mod Manager.
+	 * Checks for the latest update to the Mod Manager in the background.
 	 * 
-	 * If an update is available from Github, then the user is given a choice to update.
-	 * @throws UnsupportedHostException 
-	 * @throws MalformedURLException 
+	 * If an update is available, then the user is given a choice to update.
+	 */
+	public void tryUpdateModManager() {
+		appUpdateChecker.checkNow();
+	}
+	
+	/**
+	 * Checks for the latest update to the Mod Manager in the background,
+	 * at most once a day.
 	 */
-	public void tryUpdateModManager() throws UnsupportedHostException, MalformedURLException {
-		ModWorkflowBuilder builder = new ModWorkflowBuilder(
-			Mod.newTempMod(new URL(TinkerTime.DOWNLOAD_URL), TinkerTime.VERSION),
-			crawlerFactory
-		);
-		builder.checkForUpdates(modLoader, false);
-		builder.downloadModInBrowser();
+	public void tryUpdateModManagerOnStartup() {
+		appUpdateChecker.checkOnStartup();
 	}
 	
 	public void openConfigWindow(){
 		config.updateConfig();
+		bandwidthLimiter.setCap(config.maxDownloadBytesPerSecond());  // Applies to running downloads
 		reloadMods();
 	}
 	
@@ -188,26 +301,87 @@ public class ModManager extends Listenable<TaskCallback> {
 	
 	// -- Helpers -----------------------------------------------------------
 	
-	private void submitDownloadWorkflow(WorkflowBuilder builder){
+	/**
+	 * Runs the workflow once a download thread is free, ahead of any
+	 * waiting workflows of a lower priority.
+	 * 
+	 * Only one download workflow is in flight per mod.  A request for a mod
+	 * which already has one joins it instead, unless the request downloads
+	 * files while the workflow in flight only checks for updates, in which
+	 * case the check is cancelled and replaced.
+	 */
+	private void submitDownloadWorkflow(final Mod mod, final ModWorkflowBuilder builder, Priority priority){
+		synchronized(inFlight){
+			ModWorkflowBuilder existing = inFlight.get(mod.id);
+			if (existing != null){
+				if (existing.downloadsFiles() || !builder.downloadsFiles()){
+					if (priority == Priority.Interactive){
+						downloadExecutor.promote(mod.id);
+						existing.setBackground(false);
+						existing.setPriority(Priority.Interactive);
+					}
+					return;
+				}
+				existing.cancelGraph();
+			}
+			inFlight.put(mod.id, builder);
+		}
+		builder.setBackground(priority != Priority.Interactive && config.useIdleBandwidthForUpdates());
+		builder.setPriority(priority);
+		builder.addGraphDoneListener(new Runnable(){
+			@Override
+			public void run() {
+				synchronized(inFlight){
+					if (inFlight.get(mod.id) == builder){
+						inFlight.remove(mod.id);
+					}
+				}
+			}
+		});
+		
 		for(TaskCallback callback : getListeners()){
-			builder.addListener(callback);
+			builder.addGraphListener(callback);
 		}
 		
-		// Reset thread pool size if size in options has changed
+		// Reset thread pool size if size in options has changed; it is the
+		// upper bound of the adaptive download limit
 		int numDownloadThreads = config.numConcurrentDownloads();
-		if (downloadExecutor.getMaximumPoolSize() != numDownloadThreads){
-			downloadExecutor.setCorePoolSize(numDownloadThreads);
-			downloadExecutor.setMaximumPoolSize(numDownloadThreads);
+		if (downloadPool.getMaximumPoolSize() != numDownloadThreads){
+			downloadPool.setCorePoolSize(numDownloadThreads);
+			downloadPool.setMaximumPoolSize(numDownloadThreads);
 		}
+		downloadConcurrency.setMaxLimit(numDownloadThreads);
 		
-		builder.execute(downloadExecutor);
+		builder.executeGraph(downloadExecutor.withPriority(priority, mod.id));
 	}
 	
-	private void submitEnablerWorkflow(WorkflowBuilder builder){
+	/**
+	 * Runs the workflow after any other enabler workflows for the same mod,
+	 * or for the same top-level GameData folders, and in parallel with the
+	 * enabler workflows of all other mods.
+	 */
+	private void submitEnablerWorkflow(Mod mod, WorkflowBuilder builder){
 		for(TaskCallback callback : getListeners()){
 			builder.addListener(callback);
 		}
-		builder.execute(enablerExecutor);
+		builder.execute(enablerExecutor.forKeys(getEnablerKeys(mod)));
+	}
+	
+	private Set<String> getEnablerKeys(Mod mod){
+		Set<String> keys = new HashSet<>();
+		keys.add("mod:" + mod.id);
+		try {
+			Path gameDataPath = config.getGameDataPath();
+			for (Path path : modLoader.getModFileDestPaths(mod)){
+				Path relative = gameDataPath.relativize(path);
+				if (relative.getNameCount() > 0){
+					keys.add("gameData:" + relative.getName(0).toString().toLowerCase());
+				}
+			}
+		} catch (ModNotDownloadedException e){
+			// Mod has no files in GameData
+		}
+		return keys;
 	}
 	
 	// -- Exceptions/Errors --------------------------------------------------
@@ -0,0 +1,181 @@
+package aohara.tinkertime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import aohara.tinkertime.crawlers.CrawlerFactory.UnsupportedHostException;
+import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.resources.ModLoader;
+import aohara.tinkertime.resources.UpdateCheckCache;
+
+/**
+ * Periodically checks the mods for updates while the app is open.
+ *
+ * Each mod is checked about {@link #CHECKS_PER_RELEASE} times per expected
+ * release, so mods which release often are checked often, and dormant mods
+ * rarely.  The expected time between releases is the median gap between the
+ * mod's recent releases, or the time since its last release, if that is
+ * longer.  Check times are jittered, so that the checks are spread out
+ * rather than made in bursts, and at most {@link #MAX_CHECKS_PER_TICK} mods
+ * are checked at a time, most overdue first.
+ *
+ * The periodic checks option is read on each tick, so the checks start and
+ * stop as it is changed, without restarting the app.
+ */
+class ModUpdateScheduler {
+	
+	static final long
+		HOUR_MS = 60 * 60 * 1000,
+		TICK_MS = 5 * 60 * 1000,
+		MIN_INTERVAL_MS = 2 * HOUR_MS,
+		MAX_INTERVAL_MS = 14 * 24 * HOUR_MS,
+		DEFAULT_INTERVAL_MS = 24 * HOUR_MS;
+	static final double
+		CHECKS_PER_RELEASE = 4,
+		JITTER = 0.2;
+	static final int MAX_CHECKS_PER_TICK = 4;
+	
+	private final ModManager mm;
+	private final ModLoader modLoader;
+	private final TinkerConfig config;
+	private final Random random = new Random();
+	private final Map<String, Schedule> schedules = new HashMap<>();
+	private ScheduledExecutorService ticker;
+	
+	ModUpdateScheduler(ModManager mm, ModLoader modLoader, TinkerConfig config){
+		this.mm = mm;
+		this.modLoader = modLoader;
+		this.config = config;
+	}
+	
+	// -- Interface --------------------------------------------------------
+	
+	synchronized void start(){
+		if (ticker != null){
+			return;
+		}
+		ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Mod Update Scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ticker.scheduleWithFixedDelay(new Runnable(){
+			@Override
+			public void run() {
+				if (!config.periodicallyCheckForModUpdates()){
+					return;
+				}
+				for (Mod mod : takeDueMods(System.currentTimeMillis())){
+					try {
+						mm.checkForModUpdate(mod);
+					} catch (UnsupportedHostException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+	}
+	
+	synchronized void stop(){
+		if (ticker != null){
+			ticker.shutdownNow();
+			ticker = null;
+		}
+	}
+	
+	// -- Scheduling -------------------------------------------------------
+	
+	/**
+	 * Returns the mods due to be checked, and reschedules them in case their
+	 * checks fail.  Mods already marked as having an update are not checked.
+	 */
+	synchronized List<Mod> takeDueMods(long now){
+		UpdateCheckCache updateChecks = modLoader.getUpdateChecks();
+		List<Mod> due = new ArrayList<>();
+		final Map<Mod, Long> dueTimes = new HashMap<>();
+		
+		for (Mod mod : modLoader.getMods()){
+			if (!mod.isUpdateable() || mod.updateAvailable){
+				continue;
+			}
+			
+			// Schedule from the last check, or from when the mod was first seen
+			UpdateCheckCache.Result lastCheck = updateChecks.get(mod);
+			Schedule schedule = schedules.get(mod.id);
+			long basis = lastCheck != null ? lastCheck.checkedOn : schedule != null ? schedule.basis : now;
+			if (schedule == null || schedule.basis != basis){
+				schedule = new Schedule(basis, basis + jitter(checkInterval(updateChecks.getReleaseTimes(mod), now)));
+				schedules.put(mod.id, schedule);
+			}
+			
+			if (now >= schedule.dueTime){
+				due.add(mod);
+				dueTimes.put(mod, schedule.dueTime);
+			}
+		}
+		
+		Collections.sort(due, new Comparator<Mod>(){
+			@Override
+			public int compare(Mod a, Mod b) {
+				return Long.compare(dueTimes.get(a), dueTimes.get(b));
+			}
+		});
+		due = new ArrayList<>(due.subList(0, Math.min(due.size(), MAX_CHECKS_PER_TICK)));
+		for (Mod mod : due){
+			Schedule schedule = schedules.get(mod.id);
+			schedule.dueTime = now + jitter(checkInterval(updateChecks.getReleaseTimes(mod), now));
+		}
+		return due;
+	}
+	
+	/**
+	 * @param releases times of the mod's most recent releases, oldest first
+	 * @return milliseconds to wait between checks of the mod
+	 */
+	static long checkInterval(List<Long> releases, long now){
+		if (releases.isEmpty()){
+			return DEFAULT_INTERVAL_MS;
+		}
+		
+		long sinceLast = Math.max(0, now - releases.get(releases.size() - 1));
+		long expected = sinceLast;
+		if (releases.size() >= 2){
+			List<Long> gaps = new ArrayList<>();
+			for (int i = 1; i < releases.size(); i++){
+				gaps.add(releases.get(i) - releases.get(i - 1));
+			}
+			Collections.sort(gaps);
+			expected = Math.max(gaps.get(gaps.size() / 2), sinceLast);
+		}
+		
+		long interval = (long) (expected / CHECKS_PER_RELEASE);
+		return Math.max(MIN_INTERVAL_MS, Math.min(MAX_INTERVAL_MS, interval));
+	}
+	
+	private long jitter(long interval){
+		return (long) (interval * (1 - JITTER + 2 * JITTER * random.nextDouble()));
+	}
+	
+	private static class Schedule {
+		
+		private final long basis;
+		private long dueTime;
+		
+		private Schedule(long basis, long dueTime){
+			this.basis = basis;
+			this.dueTime = dueTime;
+		}
+	}
+}
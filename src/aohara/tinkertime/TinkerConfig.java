@@ -25,7 +25,13 @@ public class TinkerConfig {
 	private static final String
 		GAMEDATA_PATH = "GameData Path",
 		AUTO_CHECK_FOR_MOD_UPDATES = "Check for Mod Updates on Startup",
+		UPDATE_CHECK_TTL = "Hours Before Rechecking a Mod on Startup",
+		PERIODIC_MOD_UPDATES = "Periodically Check for Mod Updates",
+		AUTO_ENABLE_MODS = "Enable Mods After Downloading",
 		NUM_CONCURRENT_DOWNLOADS = "Number of Concurrent Downloads",
+		MAX_DOWNLOAD_SPEED = "Max Download Speed (KB/s, 0 for Unlimited)",
+		IDLE_BANDWIDTH_UPDATES = "Only Use Idle Bandwidth for Update All and Update Checks",
+		PRE_DOWNLOAD_UPDATES = "Download Available Updates in the Background",
 		KSP_WIN_LAUNCH_ARGS = "KSP Launch Arguments",
 		WIN_64 = "win64",
 		STARTUP_CHECK_MM_UPDATES = "Check for App Updates on Startup";
@@ -39,9 +45,15 @@ public class TinkerConfig {
 	public static TinkerConfig create(){
 		ConfigBuilder builder = new ConfigBuilder();
 		builder.addBooleanProperty(AUTO_CHECK_FOR_MOD_UPDATES, false, false, false);
+		builder.addIntProperty(UPDATE_CHECK_TTL, 6, 0, null, false, false);
+		builder.addBooleanProperty(PERIODIC_MOD_UPDATES, false, false, false);
 		builder.addBooleanProperty(STARTUP_CHECK_MM_UPDATES, true, false, false);
+		builder.addBooleanProperty(AUTO_ENABLE_MODS, false, false, false);
 		builder.addPathProperty(GAMEDATA_PATH, JFileChooser.DIRECTORIES_ONLY, null, false, false);
 		builder.addIntProperty(NUM_CONCURRENT_DOWNLOADS, 4, 1, null, false, false);
+		builder.addIntProperty(MAX_DOWNLOAD_SPEED, 0, 0, null, false, false);
+		builder.addBooleanProperty(IDLE_BANDWIDTH_UPDATES, false, false, false);
+		builder.addBooleanProperty(PRE_DOWNLOAD_UPDATES, false, false, false);
 		builder.addStringProperty(KSP_WIN_LAUNCH_ARGS, null, true, false);
 		
 		builder.addStringProperty(WIN_64, null, true, true);
@@ -73,10 +85,30 @@ public class TinkerConfig {
 		return getSubFolder(getModCachePath(), "imageCache");
 	}
 	
+	public Path getStagingPath(){
+		return getSubFolder(getModCachePath(), "staging");
+	}
+	
+	public Path getPreDownloadsPath(){
+		return getSubFolder(getModCachePath(), "preDownloads");
+	}
+	
+	public Path getJournalPath(){
+		return getSubFolder(getModCachePath(), "journal");
+	}
+	
 	public Path getModsListPath(){
 		return getModCachePath().resolve("TinkerTime-mods.json");
 	}
 	
+	public Path getUpdateChecksPath(){
+		return getModsListPath().resolveSibling("TinkerTime-updateChecks.json");
+	}
+	
+	public Path getAppUpdateCachePath(){
+		return getModCachePath().resolve("TinkerTime-update.json");
+	}
+	
 	private Path getSubFolder(Path parent, String subFolder){
 		Path path = parent.resolve(subFolder);
 		path.toFile().mkdir();
@@ -87,10 +119,53 @@ public class TinkerConfig {
 		return config.getProperty(AUTO_CHECK_FOR_MOD_UPDATES).getValueAsBool();
 	}
 	
+	/**
+	 * @return milliseconds for which a mod's last update check is reused
+	 * 	by the startup check, instead of checking it again
+	 */
+	public long updateCheckTtlMs(){
+		return config.getProperty(UPDATE_CHECK_TTL).getValueAsInt() * 60L * 60 * 1000;
+	}
+	
+	/**
+	 * @return true if mods should be checked for updates while the app is
+	 * 	open, each as often as it is released
+	 */
+	public boolean periodicallyCheckForModUpdates(){
+		return config.getProperty(PERIODIC_MOD_UPDATES).getValueAsBool();
+	}
+	
+	public boolean autoEnableMods(){
+		return config.getProperty(AUTO_ENABLE_MODS).getValueAsBool();
+	}
+	
 	public int numConcurrentDownloads(){
 		return config.getProperty(NUM_CONCURRENT_DOWNLOADS).getValueAsInt();
 	}
 	
+	/**
+	 * @return most bytes per second to download, or 0 if unlimited
+	 */
+	public long maxDownloadBytesPerSecond(){
+		return config.getProperty(MAX_DOWNLOAD_SPEED).getValueAsInt() * 1024L;
+	}
+	
+	/**
+	 * @return true if bulk and background downloads should only use
+	 * 	bandwidth left idle by the user's own downloads
+	 */
+	public boolean useIdleBandwidthForUpdates(){
+		return config.getProperty(IDLE_BANDWIDTH_UPDATES).getValueAsBool();
+	}
+	
+	/**
+	 * @return true if the archives of available updates should be downloaded
+	 * 	when they are found, so that applying them is quick
+	 */
+	public boolean preDownloadUpdates(){
+		return config.getProperty(PRE_DOWNLOAD_UPDATES).getValueAsBool();
+	}
+	
 	public boolean use64BitGame() throws IOException{
 		switch(OS.getOs()){
 		case Windows:
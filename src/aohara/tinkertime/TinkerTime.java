@@ -1,8 +1,10 @@
 package aohara.tinkertime;
 
 import java.awt.BorderLayout;
-import java.net.MalformedURLException;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -12,10 +14,10 @@ import javax.swing.JOptionPane;
 import aohara.common.selectorPanel.SelectorPanelBuilder;
 import aohara.common.selectorPanel.SelectorPanelController;
 import aohara.tinkertime.crawlers.CrawlerFactory;
-import aohara.tinkertime.crawlers.CrawlerFactory.UnsupportedHostException;
 import aohara.tinkertime.crawlers.pageLoaders.JsonLoader;
 import aohara.tinkertime.crawlers.pageLoaders.WebpageLoader;
 import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.net.HttpClient;
 import aohara.tinkertime.resources.Icons;
 import aohara.tinkertime.resources.ModLoader;
 import aohara.tinkertime.views.ModListCellRenderer;
@@ -45,17 +47,18 @@ public class TinkerTime {
 		
 		// Initialize Controllers
 		ModLoader modLoader = new ModLoader(config);
-		ModManager modManager = new ModManager(
+		final ModManager modManager = new ModManager(
 			modLoader,
 			config,
 			(ThreadPoolExecutor) Executors.newFixedThreadPool(config.numConcurrentDownloads()),
-			(Executor) Executors.newSingleThreadExecutor(),
+			(Executor) Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()),
 			new CrawlerFactory(new WebpageLoader(), new JsonLoader())
 		);
 		ModListListener listListener = new ModListListener(modManager);
 		
-		// Set HTTP User-agent
+		// Set HTTP User-agent, and keep-alive pool size
 		System.setProperty("http.agent", "TinkerTime Bot");
+		System.setProperty("http.maxConnections", Integer.toString(HttpClient.MAX_CONNECTIONS_PER_HOST));
 		
 		// Initialize GUI		
 		SelectorPanelBuilder<Mod> spBuilder = new SelectorPanelBuilder<>();
@@ -71,38 +74,47 @@ public class TinkerTime {
 		modManager.addListener(renderer);
 		new AddModDragDropHandler(selectorPanel.getList(), modManager);  // Add Mod Drag and Drop Handler
 
+		// Initialize Frame
+		JFrame frame = new JFrame(TinkerTime.FULL_NAME);
+		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		frame.addWindowListener(new WindowAdapter(){
+			@Override
+			public void windowClosing(WindowEvent e) {
+				modManager.stopUpdateScheduler();
+			}
+		});
+		frame.setLayout(new BorderLayout());
+		frame.setIconImages(Icons.getAppIcons());
+		frame.setJMenuBar(MenuFactory.createMenuBar(modManager));
+		frame.add(MenuFactory.createToolBar(modManager), BorderLayout.NORTH);
+		frame.add(selectorPanel.getComponent(), BorderLayout.CENTER);
+		frame.pack();
+		frame.setLocationRelativeTo(null);
+		frame.setVisible(true);
+		
 		// Start Application
 		renderer.startFramerateTimer();
-		modLoader.init(modManager);  // Load mods (will notify selector panel)
 		
-		// Check for App update on Startup
+		// Check for App update in the background on Startup
 		if (config.isCheckForMMUpdatesOnStartup()){
-			try {
-				modManager.tryUpdateModManager();
-			} catch (UnsupportedHostException | MalformedURLException e) {
-				JOptionPane.showMessageDialog(null, e.toString(), "Error Checking for App Updates", JOptionPane.ERROR_MESSAGE);
-			}
+			modManager.tryUpdateModManagerOnStartup();
 		}
 		
+		// Load mods in parallel while the frame is displayed (will notify selector panel)
+		ExecutorService loaderExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		modLoader.init(modManager, loaderExecutor);
+		loaderExecutor.shutdown();
+		
 		// Check for Mod Updates on Startup
 		try {			
 			if (config.autoCheckForModUpdates()){
-				modManager.checkForModUpdates();
+				modManager.checkForModUpdatesOnStartup();
 			}
 		} catch (Exception e) {
 			JOptionPane.showMessageDialog(null, e.toString(), "Error Checking for Mod Updates", JOptionPane.ERROR_MESSAGE);
 		}
 		
-		// Initialize Frame
-		JFrame frame = new JFrame(TinkerTime.FULL_NAME);
-		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		frame.setLayout(new BorderLayout());
-		frame.setIconImages(Icons.getAppIcons());
-		frame.setJMenuBar(MenuFactory.createMenuBar(modManager));
-		frame.add(MenuFactory.createToolBar(modManager), BorderLayout.NORTH);
-		frame.add(selectorPanel.getComponent(), BorderLayout.CENTER);
-		frame.pack();
-		frame.setLocationRelativeTo(null);
-		frame.setVisible(true);
+		// Keep checking for Mod Updates while the app is open, if enabled
+		modManager.startUpdateScheduler();
 	}
 }
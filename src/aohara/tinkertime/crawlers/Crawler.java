@@ -6,14 +6,20 @@ import java.net.URL;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import javax.swing.JOptionPane;
 
 import aohara.common.VersionParser;
 import aohara.common.Version;
+import aohara.tinkertime.crawlers.pageLoaders.JsonExtractor;
+import aohara.tinkertime.crawlers.pageLoaders.JsonLoader;
+import aohara.tinkertime.crawlers.pageLoaders.PageExtractor;
 import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
+import aohara.tinkertime.crawlers.pageLoaders.PageRecord;
 import aohara.tinkertime.models.Mod;
 
 
@@ -33,10 +39,12 @@ public abstract class Crawler<T> implements Callable<Mod> {
 	private final PageLoader<T> pageLoader;
 	public final URL pageUrl;
 	
+	private final Map<String, PageRecord> cachedRecords = new HashMap<>();
 	private Asset cachedAsset;
 	private Mod cachedMod;
+	private Version cachedVersion;
 	private AssetSelector assetSelector = new DialogAssetSelector();
-	private boolean wasRun = false;
+	private boolean wasRun = false, versionParsed = false;
 	
 	
 	public Crawler(URL url, PageLoader<T> pageLoader) {
@@ -48,6 +56,38 @@ public abstract class Crawler<T> implements Callable<Mod> {
 		return pageLoader.getPage(url);
 	}
 	
+	/**
+	 * Returns the record extracted from the page at the given url.
+	 * 
+	 * Records are cached by the page loader, and memoized by this crawler,
+	 * so each page is only walked once no matter how many fields are read.
+	 */
+	@SuppressWarnings("unchecked")
+	protected synchronized <R extends PageRecord> R getRecord(URL url, PageExtractor<T, R> extractor) throws IOException {
+		String key = extractor.getClass().getName() + " " + url;
+		R record = (R) cachedRecords.get(key);
+		if (record == null){
+			record = pageLoader.getRecord(url, extractor);
+			cachedRecords.put(key, record);
+		}
+		return record;
+	}
+	
+	/**
+	 * Returns the record streamed from the Json document at the given url,
+	 * memoized like the records of {@link #getRecord(URL, PageExtractor)}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected synchronized <R extends PageRecord> R getRecord(URL url, JsonExtractor<R> extractor, JsonLoader jsonLoader) throws IOException {
+		String key = extractor.getClass().getName() + " " + url;
+		R record = (R) cachedRecords.get(key);
+		if (record == null){
+			record = jsonLoader.getRecord(url, extractor);
+			cachedRecords.put(key, record);
+		}
+		return record;
+	}
+	
 	public abstract URL getImageUrl() throws IOException;
 
 	protected abstract Date getUpdatedOn() throws IOException;
@@ -65,7 +105,15 @@ public abstract class Crawler<T> implements Callable<Mod> {
 		return pageUrl;
 	}
 	
-	public Version getVersion(){
+	public synchronized Version getVersion(){
+		if (!versionParsed){
+			cachedVersion = parseVersion();
+			versionParsed = true;
+		}
+		return cachedVersion;
+	}
+	
+	private Version parseVersion(){
 		try {
 			// First try to parse version from an available version tag field
 			String versionString = VersionParser.parseVersionString(getVersionString());
@@ -117,15 +165,53 @@ public abstract class Crawler<T> implements Callable<Mod> {
 		return getSelectedAsset().fileName;
 	}
 	
+	// -- Version Probe ----------------------------------------------------
+	
+	/**
+	 * Returns the file name of the newest release, if it is on the same page
+	 * as the rest of the version data, for crawlers without a version field.
+	 * 
+	 * @return the file name, or null if it would require another request
+	 */
+	protected String probeNewestFileName() throws IOException {
+		return null;
+	}
+	
+	/**
+	 * Finds the newest version with as few requests as possible, which is a
+	 * single request for all supported hosts.
+	 * 
+	 * Unlike {@link #getVersion()}, an asset is never selected, so the user
+	 * is never prompted, and no download pages are fetched.  If the version
+	 * cannot be parsed, the update date is found instead.
+	 */
+	public VersionProbe probeVersion() throws IOException {
+		Version version = parseVersion(getVersionString());
+		if (version == null){
+			version = parseVersion(probeNewestFileName());
+		}
+		return new VersionProbe(version, version == null ? getUpdatedOn() : null);
+	}
+	
+	private static Version parseVersion(String versionSource){
+		try {
+			String versionString = versionSource != null ? VersionParser.parseVersionString(versionSource) : null;
+			return versionString != null ? Version.valueOf(versionString) : null;
+		} catch (IllegalArgumentException e){
+			return null;
+		}
+	}
+	
 	// -- Public Methods ---------------------------------------------------
 	
 	@Override
 	public Mod call() throws IOException {
 		wasRun = true;
+		Date updatedOn = getUpdatedOn();
 		return cachedMod = new Mod(
 			getId(), getName(), getNewestFileName(),
 			getCreator(), pageUrl,
-			getUpdatedOn() != null ? getUpdatedOn() : Calendar.getInstance().getTime(),
+			updatedOn != null ? updatedOn : Calendar.getInstance().getTime(),
 			getKspVersion(), getVersion()
 		);
 	}
@@ -154,7 +240,7 @@ public abstract class Crawler<T> implements Callable<Mod> {
 	
 	// -- Inner Asset Class ---------------------------------------------------
 	
-	public static class Asset {
+	public static class Asset extends PageRecord {
 		public final String fileName;
 		public final URL downloadLink;
 		
@@ -163,6 +249,11 @@ public abstract class Crawler<T> implements Callable<Mod> {
 			this.downloadLink = downloadLink;
 		}
 		
+		@Override
+		public long getWeight(){
+			return weigh(fileName) + weigh(downloadLink);
+		}
+		
 		@Override
 		public String toString(){
 			return fileName;
@@ -1,19 +1,20 @@
 package aohara.tinkertime.crawlers;
 
-import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
 
 import org.jsoup.nodes.Document;
 
+import aohara.tinkertime.crawlers.pageLoaders.JsonLoader;
 import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
 
-import com.google.gson.JsonElement;
-
 /**
  * Factory for creating crawlers.
  * 
+ * The crawler for each URL is created by the {@link CrawlerProvider}
+ * registered for its host in the {@link CrawlerRegistry}.
+ * 
  * @author Andrew O'Hara
  *
  */
@@ -30,18 +31,34 @@ public class CrawlerFactory {
 	};
 	
 	private final PageLoader<Document> htmlLoader;
-	private final PageLoader<JsonElement> jsonLoader;
+	private final JsonLoader jsonLoader;
+	private final CrawlerRegistry registry;
+	private final HostHealth hostHealth = new HostHealth();
 	private boolean fallbacksEnabled = true;
+	private GithubReleaseFeed releaseFeed = new GithubReleaseFeed();
+	
+	public CrawlerFactory(PageLoader<Document> htmlLoader, JsonLoader jsonLoader){
+		this(htmlLoader, jsonLoader, CrawlerRegistry.getDefault());
+	}
 	
-	public CrawlerFactory(PageLoader<Document> htmlLoader, PageLoader<JsonElement> jsonLoader){
+	public CrawlerFactory(PageLoader<Document> htmlLoader, JsonLoader jsonLoader, CrawlerRegistry registry){
 		this.htmlLoader = htmlLoader;
 		this.jsonLoader = jsonLoader;
+		this.registry = registry;
 	}
 	
 	public void setFallbacksEnabled(boolean enabled){
 		this.fallbacksEnabled = enabled;
 	}
 	
+	/**
+	 * Sets the feed used to detect changes to Github releases before
+	 * crawling them, or null to always crawl them.
+	 */
+	public void setReleaseFeed(GithubReleaseFeed releaseFeed){
+		this.releaseFeed = releaseFeed;
+	}
+	
 	public static URL getModuleManagerUrl(){
 		try {
 			return new URL("https", HOST_MODULE_MANAGER, "/jenkins/job/ModuleManager");
@@ -56,33 +73,37 @@ public class CrawlerFactory {
 	
 	public Crawler<?> getCrawler(URL url, boolean fallback) throws UnsupportedHostException{
 		String host = url.getHost();
-		
-		if (host.contains(HOST_CURSE)){
-			return new CurseCrawler(url, htmlLoader);
-		} else if (host.contains(HOST_GITHUB)){
-			if (!fallback || !fallbacksEnabled){
-				try {
-					Crawler<?> crawler = new GithubJsonCrawler(url, jsonLoader);
-					if (fallbacksEnabled){
-						crawler.getPage(crawler.getApiUrl());  // Test connection; throw IOException if failure
-					}
-					return crawler;
-				} catch (IOException e) {
-					return getCrawler(url, true);
-				}
-			}
-			return new GithubHtmlCrawler(url, htmlLoader);
-		} else if (host.contains(HOST_KERBAL_STUFF)){
-			return new KerbalStuffCrawler(url, jsonLoader);
-		} else if (host.equals(HOST_MODULE_MANAGER)){
-			try {
-				return new JenkinsCrawler(url, jsonLoader);
-			} catch (MalformedURLException e) {
-				throw new RuntimeException(e);
-			}
+		CrawlerProvider provider = registry.find(host);
+		if (provider == null){
+			throw new UnsupportedHostException(host);
 		}
-		
-		throw new UnsupportedHostException(host);
+		return provider.createCrawler(url, this, fallback);
+	}
+	
+	// -- Provider Resources -------------------------------------------------
+	
+	public CrawlerRegistry getRegistry(){
+		return registry;
+	}
+	
+	public PageLoader<Document> getHtmlLoader(){
+		return htmlLoader;
+	}
+	
+	public JsonLoader getJsonLoader(){
+		return jsonLoader;
+	}
+	
+	public HostHealth getHostHealth(){
+		return hostHealth;
+	}
+	
+	public GithubReleaseFeed getReleaseFeed(){
+		return releaseFeed;
+	}
+	
+	public boolean isFallbacksEnabled(){
+		return fallbacksEnabled;
 	}
 	
 	@SuppressWarnings("serial")
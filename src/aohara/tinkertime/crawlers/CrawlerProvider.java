@@ -0,0 +1,46 @@
+package aohara.tinkertime.crawlers;
+
+import java.net.URL;
+import java.util.Set;
+
+/**
+ * Service which creates the crawlers for a mod host.
+ * 
+ * Providers are discovered by {@link CrawlerRegistry} through the
+ * java.util.ServiceLoader, so hosts can be supported by listing a provider
+ * in META-INF/services/aohara.tinkertime.crawlers.CrawlerProvider, without
+ * editing the {@link CrawlerFactory}.  Providers must be public, and have a
+ * public no-argument constructor.
+ */
+public interface CrawlerProvider {
+	
+	/**
+	 * Features of a provider's crawlers, which batch operations may use to
+	 * decide how to group them.
+	 */
+	public static enum Capability {
+		/** Many mods can be checked for updates with a single request */
+		BULK_CHECK,
+		/** Pages can be requested conditionally, with an ETag or Last-Modified date */
+		CONDITIONAL_REQUESTS,
+		/** Records are extracted while their page is streamed, without loading it whole */
+		STREAMING
+	}
+	
+	/**
+	 * Returns the hosts supported by this provider.  Each host also matches
+	 * its subdomains, so "curse.com" matches "www.curse.com".
+	 */
+	String[] getHosts();
+	
+	Set<Capability> getCapabilities();
+	
+	/**
+	 * Creates a crawler for the given mod page.
+	 * 
+	 * @param url mod page to crawl
+	 * @param factory factory requesting the crawler, which provides the page loaders
+	 * @param fallback true if the provider's fallback crawler is wanted, if it has one
+	 */
+	Crawler<?> createCrawler(URL url, CrawlerFactory factory, boolean fallback);
+}
@@ -0,0 +1,86 @@
+package aohara.tinkertime.crawlers;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import aohara.tinkertime.crawlers.CrawlerProvider.Capability;
+
+/**
+ * Registry of the {@link CrawlerProvider}s for each supported mod host.
+ * 
+ * Providers are indexed by their hosts when the registry is created, so
+ * finding the provider for a URL takes one map lookup per label of its host,
+ * no matter how many hosts are supported.
+ */
+public class CrawlerRegistry {
+	
+	private static CrawlerRegistry defaultRegistry;
+	
+	private final Map<String, CrawlerProvider> hostIndex = new HashMap<>();
+	private final Set<CrawlerProvider> providers = new LinkedHashSet<>();
+	
+	public CrawlerRegistry(Iterable<CrawlerProvider> providers){
+		for (CrawlerProvider provider : providers){
+			this.providers.add(provider);
+			for (String host : provider.getHosts()){
+				hostIndex.put(host.toLowerCase(), provider);
+			}
+		}
+	}
+	
+	/**
+	 * @return the registry of all providers listed as services on the classpath
+	 */
+	public static synchronized CrawlerRegistry getDefault(){
+		if (defaultRegistry == null){
+			defaultRegistry = new CrawlerRegistry(ServiceLoader.load(CrawlerProvider.class, CrawlerRegistry.class.getClassLoader()));
+		}
+		return defaultRegistry;
+	}
+	
+	/**
+	 * Returns the provider for the given host, or one of its parent domains.
+	 * 
+	 * @return the provider, or null if the host is not supported
+	 */
+	public CrawlerProvider find(String host){
+		for (String domain = host.toLowerCase(); ; ){
+			CrawlerProvider provider = hostIndex.get(domain);
+			if (provider != null){
+				return provider;
+			}
+			
+			int dot = domain.indexOf('.');
+			if (dot < 0){
+				return null;
+			}
+			domain = domain.substring(dot + 1);
+		}
+	}
+	
+	public Collection<CrawlerProvider> getProviders(){
+		return new LinkedHashSet<>(providers);
+	}
+	
+	/**
+	 * @return the providers whose crawlers have the given capability
+	 */
+	public Collection<CrawlerProvider> getProviders(Capability capability){
+		Collection<CrawlerProvider> result = new LinkedHashSet<>();
+		for (CrawlerProvider provider : providers){
+			if (provider.getCapabilities().contains(capability)){
+				result.add(provider);
+			}
+		}
+		return result;
+	}
+	
+	public boolean hasCapability(String host, Capability capability){
+		CrawlerProvider provider = find(host);
+		return provider != null && provider.getCapabilities().contains(capability);
+	}
+}
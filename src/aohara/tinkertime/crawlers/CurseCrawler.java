@@ -6,12 +6,16 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.LinkedList;
+import java.util.Set;
 
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
 import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
+import aohara.tinkertime.crawlers.pageLoaders.PageRecord;
+import aohara.tinkertime.crawlers.pageLoaders.PartialHtmlExtractor;
 
 /**
  * Crawler for gethering Mod File Data from curse.com
@@ -20,16 +24,20 @@ import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
  */
 public class CurseCrawler extends Crawler<Document> {
 	
+	/** Everything this crawler reads is before the main content of a page */
+	private static final String END_MARKER = "id=\"primary-content\"";
+	
 	public CurseCrawler(URL url, PageLoader<Document> pageLoader){
 		super(url, pageLoader);
 	}
 	
+	private ProjectPage getProjectPage() throws IOException {
+		return getRecord(getApiUrl(), new ProjectPageExtractor());
+	}
+	
 	@Override
 	public Date getUpdatedOn() throws IOException {
-		Document mainPage = getPage(getApiUrl());
-		Element ele = mainPage.getElementById("project-overview");
-		ele = ele.getElementsContainingOwnText("Updated").first();
-		String dateText = ele.text().replace("Updated", "").trim();
+		String dateText = getProjectPage().updatedOn;
 		try {
 			return new SimpleDateFormat("MM/dd/yyyy").parse(dateText);
 		} catch (ParseException e) {
@@ -39,52 +47,38 @@ public class CurseCrawler extends Crawler<Document> {
 
 	@Override
 	public URL getImageUrl() throws IOException {
-		Document mainPage = getPage(getApiUrl());
-		Element ele = mainPage.select("img.primary-project-attachment").first();
-		return new URL(ele.absUrl("src"));
+		String imageUrl = getProjectPage().imageUrl;
+		return imageUrl != null ? new URL(imageUrl) : null;
 	}
 
 	@Override
 	public String getName() throws IOException {
-		Element ele = getPage(getApiUrl()).getElementById("project-overview");
-		ele = ele.getElementsByClass("caption").first();
-		return ele.text();
+		return getProjectPage().name;
 	}
 
 	@Override
 	public String getCreator() throws IOException {
-		Element ele = getPage(getApiUrl()).getElementById("project-overview");
-		ele = ele.getElementsContainingOwnText("Manager").first();
-		return ele.text().split(":")[1].trim();
+		return getProjectPage().creator;
 	}
 
 	@Override
 	public String getKspVersion() throws IOException {
-		String text = getPage(getApiUrl()).select("li.version").first().text();
-		return text.split(":")[1].trim();
+		return getProjectPage().kspVersion;
 	}
 
 	@Override
 	protected Collection<Asset> getNewestAssets() throws IOException {
-		Document mainPage = getPage(getApiUrl());
-		
-		// Get File Name From Main Page
-		Element ele = mainPage.getElementById("project-overview");
-		ele = ele.getElementsContainingOwnText("Newest File").first();
+		ProjectPage projectPage = getProjectPage();
 		
 		// Add zip extension to filename if author did not add it
-		String fileName = ele.text().split(":")[1].trim();
+		String fileName = projectPage.newestFileName;
 		if (!fileName.toLowerCase().endsWith(".zip")){
 			fileName += ".zip";
 		}
 		
-		// Get Download Page Link
-		String downloadPageLink = mainPage.select("ul.regular-dl a").first().absUrl("href");
-		URL downloadPageUrl = new URL(downloadPageLink);
-		
 		// Get Mod Download Link from Download Page
-		Document downloadPage = getPage(downloadPageUrl);
-		String downloadLink = downloadPage.select("a.download-link").first().absUrl("data-href");
+		URL downloadPageUrl = new URL(projectPage.downloadPageUrl);
+		String downloadLink = getRecord(downloadPageUrl, new DownloadPageExtractor()).downloadLink;
 		URL downloadUrl = new URL(downloadLink.replace(" ", "%20"));
 		
 		// Return Asset
@@ -97,4 +91,135 @@ public class CurseCrawler extends Crawler<Document> {
 	public String getVersionString() throws IOException {
 		return null;
 	}
+	
+	@Override
+	protected String probeNewestFileName() throws IOException {
+		return getProjectPage().newestFileName;
+	}
+	
+	// -- Extraction -----------------------------------------------------------
+	
+	/**
+	 * The fields of a Curse project page used by this crawler.
+	 */
+	private static class ProjectPage extends PageRecord {
+		
+		private final String name, creator, updatedOn, kspVersion, imageUrl, newestFileName, downloadPageUrl;
+		
+		private ProjectPage(
+			String name, String creator, String updatedOn, String kspVersion,
+			String imageUrl, String newestFileName, String downloadPageUrl
+		){
+			this.name = name;
+			this.creator = creator;
+			this.updatedOn = updatedOn;
+			this.kspVersion = kspVersion;
+			this.imageUrl = imageUrl;
+			this.newestFileName = newestFileName;
+			this.downloadPageUrl = downloadPageUrl;
+		}
+		
+		@Override
+		public long getWeight(){
+			return weigh(name, creator, updatedOn, kspVersion, imageUrl, newestFileName, downloadPageUrl);
+		}
+	}
+	
+	/**
+	 * Extracts the fields of a project page.
+	 * 
+	 * The fields needed to identify and download the mod are required, and
+	 * their absence fails the extraction.  The image and KSP version are only
+	 * displayed, so they are left empty if the page does not have them.
+	 */
+	private static class ProjectPageExtractor extends PartialHtmlExtractor<ProjectPage> {
+		
+		@Override
+		public int findEnd(StringBuilder html, int newStart){
+			return findTagStart(html, END_MARKER, searchStart(END_MARKER, newStart));
+		}
+
+		@Override
+		public ProjectPage extract(Document page) throws IOException {
+			Element overview = require("project overview", page.getElementById("project-overview"));
+			Element image = page.select("img.primary-project-attachment").first();
+			Element version = page.select("li.version").first();
+			
+			return new ProjectPage(
+				require("name", overview.getElementsByClass("caption").first()).text(),
+				require("manager", labelValue(require("manager", overview.getElementsContainingOwnText("Manager").first()))),
+				require("update date", overview.getElementsContainingOwnText("Updated").first()).text().replace("Updated", "").trim(),
+				version != null ? labelValue(version) : null,
+				image != null ? image.absUrl("src") : null,
+				require("newest file", labelValue(require("newest file", overview.getElementsContainingOwnText("Newest File").first()))),
+				require("download page", page.select("ul.regular-dl a").first()).absUrl("href")
+			);
+		}
+	}
+	
+	/**
+	 * Returns the value of a "Label: value" element, or null if it has none.
+	 */
+	private static String labelValue(Element element){
+		String text = element.text();
+		int separator = text.indexOf(':');
+		return separator >= 0 ? text.substring(separator + 1).trim() : null;
+	}
+	
+	private static <T> T require(String field, T value) throws IOException {
+		if (value == null){
+			throw new IOException("Curse page has no " + field);
+		}
+		return value;
+	}
+	
+	/**
+	 * The fields of a Curse download page used by this crawler.
+	 */
+	private static class DownloadPage extends PageRecord {
+		
+		private final String downloadLink;
+		
+		private DownloadPage(String downloadLink){
+			this.downloadLink = downloadLink;
+		}
+		
+		@Override
+		public long getWeight(){
+			return weigh(downloadLink);
+		}
+	}
+	
+	private static class DownloadPageExtractor extends PartialHtmlExtractor<DownloadPage> {
+		
+		@Override
+		public int findEnd(StringBuilder html, int newStart){
+			return findTagStart(html, END_MARKER, searchStart(END_MARKER, newStart));
+		}
+
+		@Override
+		public DownloadPage extract(Document page) throws IOException {
+			return new DownloadPage(require("download link", page.select("a.download-link").first()).absUrl("data-href"));
+		}
+	}
+	
+	// -- Provider -----------------------------------------------------------
+	
+	public static class Provider implements CrawlerProvider {
+
+		@Override
+		public String[] getHosts() {
+			return new String[]{ CrawlerFactory.HOST_CURSE };
+		}
+
+		@Override
+		public Set<Capability> getCapabilities() {
+			return EnumSet.of(Capability.STREAMING);
+		}
+
+		@Override
+		public Crawler<?> createCrawler(URL url, CrawlerFactory factory, boolean fallback) {
+			return new CurseCrawler(url, factory.getHtmlLoader());
+		}
+	}
 }
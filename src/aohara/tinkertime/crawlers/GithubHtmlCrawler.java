@@ -7,6 +7,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -16,6 +17,8 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
+import aohara.tinkertime.crawlers.pageLoaders.PageRecord;
+import aohara.tinkertime.crawlers.pageLoaders.PartialHtmlExtractor;
 
 /**
  * Crawler for gathering Mod Data from a Github Project.
@@ -24,7 +27,11 @@ import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
  */
 public class GithubHtmlCrawler extends Crawler<Document> {
 	
-	private static final String RELEASES = "releases";
+	private static final String
+		RELEASES = "releases",
+		RELEASE_MARKER = "class=\"release label-",
+		PRERELEASE_MARKER = RELEASE_MARKER + "prerelease",
+		USER_ASSET_MARKER = "octicon-package";
 	
 	public GithubHtmlCrawler(URL url, PageLoader<Document> pageLoader) {
 		super(url, pageLoader);
@@ -47,59 +54,18 @@ public class GithubHtmlCrawler extends Crawler<Document> {
 		return new URL(String.format("%s/%s", pageUrl, RELEASES));
 	}
 	
-	private Element getLatestReleaseElement() throws IOException {
-		Document doc = getPage(getApiUrl());
-		
-		// For all the releases, get the latest one that has user-uploaded releases
-		for (Element releaseElement : doc.select("div[class~=release label]")){
-			
-			// Skip pre-releases
-			if (releaseElement.classNames().contains("label-prerelease")){
-				continue;
-			}
-			
-			for (Element assetLink : getAssetLinks(releaseElement)){
-				if (isUserAssetLink(assetLink)){
-					return releaseElement;
-				}
-				
-			}
-		}
-		return null;
-	}
-	
-	private boolean isUserAssetLink(Element element){
-		return element.html().contains("octicon-package");
-	}
-	
-	private Elements getAssetLinks(Element element){
-		return element.select("ul.release-downloads li a");
+	private ReleasesPage getReleasesPage() throws IOException {
+		return getRecord(getApiUrl(), new ReleasesPageExtractor());
 	}
 
 	@Override
 	protected Collection<Asset> getNewestAssets() throws IOException {
-		Collection<Asset> assets = new LinkedList<>();
-		
-		Element releaseElement  = getLatestReleaseElement();
-		if (releaseElement == null){
-			return assets;
-		}
-		
-		for (Element assetLink : getAssetLinks(releaseElement)){
-			if (isUserAssetLink(assetLink)){
-				assets.add(new Asset(
-					assetLink.attr("href").substring(assetLink.attr("href").lastIndexOf('/') + 1),
-					new URL(assetLink.absUrl("href"))
-				));
-			}
-		}
-		return assets;
+		return getReleasesPage().assets;
 	}
 
 	@Override
 	public Date getUpdatedOn() throws IOException {
-		Element dateElement = getLatestReleaseElement().select("p.release-authorship time").first();
-		String dateStr = dateElement.attr("datetime");
+		String dateStr = getReleasesPage().publishedAt;
 		
 		try {
 			return new SimpleDateFormat("yyyy-MM-dd").parse(dateStr);
@@ -115,12 +81,12 @@ public class GithubHtmlCrawler extends Crawler<Document> {
 
 	@Override
 	public String getName() throws IOException {
-		return getPage(getApiUrl()).select("h1.entry-title strong > a").text();
+		return getReleasesPage().name;
 	}
 
 	@Override
 	public String getCreator() throws IOException {
-		return getLatestReleaseElement().select(" p.release-authorship a").first().text();
+		return getReleasesPage().creator;
 	}
 
 	@Override
@@ -130,6 +96,120 @@ public class GithubHtmlCrawler extends Crawler<Document> {
 
 	@Override
 	public String getVersionString() throws IOException {
-		return getLatestReleaseElement().select("span.css-truncate-target").text();
+		return getReleasesPage().versionString;
+	}
+	
+	// -- Extraction -----------------------------------------------------------
+	
+	/**
+	 * The fields of a Github releases page used by this crawler.
+	 * 
+	 * Only the latest release with user-uploaded assets is kept.  If there
+	 * is none, its fields are null, and it has no assets.
+	 */
+	private static class ReleasesPage extends PageRecord {
+		
+		private final String name, creator, versionString, publishedAt;
+		private final Collection<Asset> assets;
+		
+		private ReleasesPage(String name, String creator, String versionString, String publishedAt, Collection<Asset> assets){
+			this.name = name;
+			this.creator = creator;
+			this.versionString = versionString;
+			this.publishedAt = publishedAt;
+			this.assets = Collections.unmodifiableCollection(assets);
+		}
+		
+		@Override
+		public long getWeight(){
+			return weigh(name, creator, versionString, publishedAt) + weigh(assets);
+		}
+	}
+	
+	private static class ReleasesPageExtractor extends PartialHtmlExtractor<ReleasesPage> {
+		
+		/**
+		 * The page can be cut off at the start of the release after the
+		 * latest one which is not a prerelease, and has user-uploaded assets.
+		 * 
+		 * Every release which was complete before the new chunk has already
+		 * been checked, so the search resumes from the last release which
+		 * started before it.
+		 */
+		@Override
+		public int findEnd(StringBuilder html, int newStart){
+			int releaseStart = html.lastIndexOf(RELEASE_MARKER, newStart - 1);
+			if (releaseStart < 0){
+				releaseStart = html.indexOf(RELEASE_MARKER, searchStart(RELEASE_MARKER, newStart));
+			}
+			while (releaseStart >= 0){
+				int nextStart = html.indexOf(RELEASE_MARKER, releaseStart + 1);
+				if (nextStart < 0){
+					return -1;  // Release may not have been read completely
+				}
+				
+				String release = html.substring(releaseStart, nextStart);
+				if (!release.startsWith(PRERELEASE_MARKER) && release.contains(USER_ASSET_MARKER)){
+					return html.lastIndexOf("<", nextStart);
+				}
+				releaseStart = nextStart;
+			}
+			return -1;
+		}
+
+		@Override
+		public ReleasesPage extract(Document page) throws IOException {
+			String name = page.select("h1.entry-title strong > a").text();
+			
+			Element releaseElement = getLatestReleaseElement(page);
+			if (releaseElement == null){
+				return new ReleasesPage(name, null, null, null, new LinkedList<Asset>());
+			}
+			
+			Collection<Asset> assets = new LinkedList<>();
+			for (Element assetLink : getAssetLinks(releaseElement)){
+				if (isUserAssetLink(assetLink)){
+					assets.add(new Asset(
+						assetLink.attr("href").substring(assetLink.attr("href").lastIndexOf('/') + 1),
+						new URL(assetLink.absUrl("href"))
+					));
+				}
+			}
+			
+			return new ReleasesPage(
+				name,
+				releaseElement.select(" p.release-authorship a").first().text(),
+				releaseElement.select("span.css-truncate-target").text(),
+				releaseElement.select("p.release-authorship time").first().attr("datetime"),
+				assets
+			);
+		}
+		
+		private static Element getLatestReleaseElement(Document doc) {
+			// For all the releases, get the latest one that has user-uploaded releases
+			for (Element releaseElement : doc.select("div[class~=release label]")){
+				
+				// Skip pre-releases
+				if (releaseElement.classNames().contains("label-prerelease")){
+					continue;
+				}
+				
+				for (Element assetLink : getAssetLinks(releaseElement)){
+					if (isUserAssetLink(assetLink)){
+						return releaseElement;
+					}
+					
+				}
+			}
+			return null;
+		}
+		
+		private static boolean isUserAssetLink(Element element){
+			return element.html().contains(USER_ASSET_MARKER);
+		}
+		
+		private static Elements getAssetLinks(Element element){
+			return element.select("ul.release-downloads li a");
+		}
 	}
-}
\ No newline at end of file
+}
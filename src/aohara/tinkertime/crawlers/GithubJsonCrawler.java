@@ -6,19 +6,54 @@ import java.net.URL;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
-import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
+import aohara.tinkertime.crawlers.pageLoaders.JsonExtractor;
+import aohara.tinkertime.crawlers.pageLoaders.JsonLoader;
+import aohara.tinkertime.crawlers.pageLoaders.PageRecord;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+/**
+ * Crawler for gathering Mod Data from the Github API.
+ * 
+ * If given a fallback crawler, the fallback is used for all data once a
+ * request to the API fails, or while the {@link HostHealth} registry
+ * reports the API as unavailable.  The API is never probed in advance.
+ * 
+ * If given a {@link GithubReleaseFeed}, version probes first check the
+ * repository's releases feed, and only request the API if it has changed.
+ */
 public class GithubJsonCrawler extends Crawler<JsonElement> {
-
-	public GithubJsonCrawler(URL url, PageLoader<JsonElement> pageLoader) {
+	
+	static final String API_HOST = "api.github.com";
+	
+	private final JsonLoader jsonLoader;
+	private final GithubHtmlCrawler fallbackCrawler;
+	private final HostHealth hostHealth;
+	private GithubReleaseFeed releaseFeed;
+	private volatile boolean failedOver = false;
+	
+	public GithubJsonCrawler(URL url, JsonLoader pageLoader) {
+		this(url, pageLoader, null, null);
+	}
+	
+	public GithubJsonCrawler(URL url, JsonLoader pageLoader, GithubHtmlCrawler fallbackCrawler, HostHealth hostHealth) {
 		super(url, pageLoader);
+		this.jsonLoader = pageLoader;
+		this.fallbackCrawler = fallbackCrawler;
+		this.hostHealth = hostHealth;
+	}
+	
+	public void setReleaseFeed(GithubReleaseFeed releaseFeed){
+		this.releaseFeed = releaseFeed;
 	}
 	
 	@Override
@@ -27,72 +62,313 @@ public class GithubJsonCrawler extends Crawler<JsonElement> {
 		if (pagePath.contains("/releases")){
 			pagePath = pagePath.split("/releases")[0];
 		}
-		return new URL("https", "api.github.com", "/repos" + pagePath);
+		return new URL("https", API_HOST, "/repos" + pagePath);
+	}
+	
+	// -- Fallback ---------------------------------------------------------------
+	
+	private boolean isFallenBack(){
+		return fallbackCrawler != null && (failedOver || !hostHealth.isAvailable(API_HOST));
 	}
 	
-	private JsonObject getLatestRelease() throws IOException{
-		URL releasesUrl = new URL("https", "api.github.com", getApiUrl().getPath() + "/releases");
-		for (JsonElement releaseEle : getPage(releasesUrl).getAsJsonArray()){
-			JsonObject releaseObj = releaseEle.getAsJsonObject();
-			JsonArray assets = releaseObj.get("assets").getAsJsonArray();
-			if (! releaseObj.get("prerelease").getAsBoolean() && assets.size() > 0){
-				return releaseObj;
+	/**
+	 * Fetches the record from the API, unless this crawler has fallen back.
+	 * 
+	 * Only failures of the API host itself cause a fallback; other failures,
+	 * such as a missing repository, are thrown, so that one bad mod does not
+	 * switch every Github mod over to the fallback.
+	 * 
+	 * @return the record, or null if this crawler has fallen back
+	 * @throws IOException if the request failed, and there is no fallback
+	 */
+	private <R extends PageRecord> R fetch(URL url, JsonExtractor<R> extractor) throws IOException {
+		if (isFallenBack()){
+			return null;
+		}
+		
+		try {
+			R record = getRecord(url, extractor, jsonLoader);
+			if (hostHealth != null){
+				hostHealth.recordSuccess(API_HOST);
+			}
+			return record;
+		} catch (IOException e){
+			if (hostHealth != null){
+				hostHealth.recordFailure(API_HOST, e);
 			}
+			if (fallbackCrawler == null || !HostHealth.isHostFailure(e)){
+				throw e;
+			}
+			failedOver = true;
+			return null;
+		}
+	}
+	
+	/**
+	 * @return the latest release, or null if this crawler has fallen back
+	 */
+	private Release getLatestRelease() throws IOException{
+		URL releasesUrl = new URL("https", API_HOST, getApiUrl().getPath() + "/releases");
+		Release release = fetch(releasesUrl, new LatestReleaseExtractor());
+		if (release == null && !isFallenBack()){
+			throw new IOException("No Releases found for " + getName());
 		}
-		throw new IOException("No Releases found for " + getName());
+		return release;
 	}
 	
-	private JsonObject getRepoDoc() throws IOException {
-		return getPage(getApiUrl()).getAsJsonObject();
+	/**
+	 * @return the repository, or null if this crawler has fallen back
+	 */
+	private Repo getRepo() throws IOException {
+		return fetch(getApiUrl(), new RepoExtractor());
 	}
-
+	
+	// -- Crawler Methods --------------------------------------------------------
+	
+	@Override
+	public VersionProbe probeVersion() throws IOException {
+		if (releaseFeed == null){
+			return super.probeVersion();
+		}
+		return releaseFeed.probe(pageUrl, new Callable<VersionProbe>(){
+			@Override
+			public VersionProbe call() throws IOException {
+				return GithubJsonCrawler.super.probeVersion();
+			}
+		});
+	}
+	
 	@Override
 	public Date getUpdatedOn() throws IOException {
-		String dateStr = getLatestRelease().get("published_at").getAsString();
+		Release release = getLatestRelease();
+		if (release == null){
+			return fallbackCrawler.getUpdatedOn();
+		}
+		
+		String dateStr = release.publishedAt;
   		try {
 			return new SimpleDateFormat("yyyy-MM-dd").parse(dateStr);
 		} catch (ParseException e) {
 			throw new IOException(e);
 		}
 	}
-
+	
 	@Override
 	public URL getImageUrl() throws IOException {
 		return null;
 	}
-
+	
 	@Override
 	public String getName() throws IOException {
-		return getRepoDoc().getAsJsonObject().get("name").getAsString();
+		Repo repo = getRepo();
+		return repo != null ? repo.name : fallbackCrawler.getName();
 	}
-
+	
 	@Override
 	public String getCreator() throws IOException {
-		return getRepoDoc().get("owner").getAsJsonObject().get("login").getAsString();
+		Repo repo = getRepo();
+		return repo != null ? repo.owner : fallbackCrawler.getCreator();
 	}
-
+	
 	@Override
 	public String getKspVersion() throws IOException {
 		return null;  // Not Supported by Github
 	}
-
+	
 	@Override
 	public String getVersionString() throws IOException {
-		return getLatestRelease().get("tag_name").getAsString();
+		Release release = getLatestRelease();
+		return release != null ? release.tagName : fallbackCrawler.getVersionString();
 	}
-
+	
 	@Override
 	protected Collection<Asset> getNewestAssets() throws IOException {
-		Collection<Asset> assets = new LinkedList<>();
+		Release release = getLatestRelease();
+		return release != null ? release.assets : fallbackCrawler.getNewestAssets();
+	}
+	
+	// -- Extraction -----------------------------------------------------------
+	
+	/**
+	 * The fields of a Github Repository used by this crawler.
+	 */
+	private static class Repo extends PageRecord {
+		
+		private final String name, owner;
+		
+		private Repo(String name, String owner){
+			this.name = name;
+			this.owner = owner;
+		}
 		
-		for (JsonElement assetEle : getLatestRelease().get("assets").getAsJsonArray()){
-			JsonObject assetObj = assetEle.getAsJsonObject();
-			assets.add(new Asset(
-				assetObj.get("name").getAsString(),
-				new URL(assetObj.get("browser_download_url").getAsString())
-			));
+		@Override
+		public long getWeight(){
+			return weigh(name, owner);
+		}
+	}
+	
+	private static class RepoExtractor implements JsonExtractor<Repo> {
+		
+		@Override
+		public Repo extract(JsonReader reader) throws IOException {
+			String name = null, owner = null;
+			
+			reader.beginObject();
+			while (reader.hasNext() && (name == null || owner == null)){
+				switch(reader.nextName()){
+				case "name":
+					name = nextString(reader);
+					break;
+				case "owner":
+					reader.beginObject();
+					while (reader.hasNext()){
+						if (reader.nextName().equals("login")){
+							owner = nextString(reader);
+						} else {
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+			return new Repo(name, owner);
+		}
+	}
+	
+	/**
+	 * The fields of a Github Release used by this crawler.
+	 */
+	private static class Release extends PageRecord {
+		
+		private final String tagName, publishedAt;
+		private final Collection<Asset> assets;
+		
+		private Release(String tagName, String publishedAt, Collection<Asset> assets){
+			this.tagName = tagName;
+			this.publishedAt = publishedAt;
+			this.assets = Collections.unmodifiableCollection(assets);
+		}
+		
+		@Override
+		public long getWeight(){
+			return weigh(tagName, publishedAt) + weigh(assets);
+		}
+	}
+	
+	/**
+	 * Reads the releases array until the first release which is not a
+	 * prerelease, and has user-uploaded assets.  Release bodies, uploaders,
+	 * and all later releases are never read.
+	 * 
+	 * Returns null if there is no such release.
+	 */
+	private static class LatestReleaseExtractor implements JsonExtractor<Release> {
+		
+		@Override
+		public Release extract(JsonReader reader) throws IOException {
+			reader.beginArray();
+			while (reader.hasNext()){
+				String tagName = null, publishedAt = null;
+				boolean prerelease = false;
+				Collection<Asset> assets = new LinkedList<>();
+				
+				reader.beginObject();
+				while (reader.hasNext()){
+					switch(reader.nextName()){
+					case "tag_name":
+						tagName = nextString(reader);
+						break;
+					case "published_at":
+						publishedAt = nextString(reader);
+						break;
+					case "prerelease":
+						prerelease = reader.nextBoolean();
+						break;
+					case "assets":
+						readAssets(reader, assets);
+						break;
+					default:
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+				
+				if (!prerelease && !assets.isEmpty()){
+					return new Release(tagName, publishedAt, assets);
+				}
+			}
+			return null;
+		}
+		
+		private static void readAssets(JsonReader reader, Collection<Asset> assets) throws IOException {
+			reader.beginArray();
+			while (reader.hasNext()){
+				String name = null, downloadUrl = null;
+				
+				reader.beginObject();
+				while (reader.hasNext()){
+					switch(reader.nextName()){
+					case "name":
+						name = nextString(reader);
+						break;
+					case "browser_download_url":
+						downloadUrl = nextString(reader);
+						break;
+					default:
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+				
+				assets.add(new Asset(name, new URL(downloadUrl)));
+			}
+			reader.endArray();
+		}
+	}
+	
+	private static String nextString(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL){
+			reader.nextNull();
+			return null;
+		}
+		return reader.nextString();
+	}
+	
+	// -- Provider -----------------------------------------------------------
+	
+	public static class Provider implements CrawlerProvider {
+		
+		@Override
+		public String[] getHosts() {
+			return new String[]{ CrawlerFactory.HOST_GITHUB };
+		}
+		
+		@Override
+		public Set<Capability> getCapabilities() {
+			return EnumSet.of(Capability.STREAMING, Capability.CONDITIONAL_REQUESTS);
+		}
+		
+		@Override
+		public Crawler<?> createCrawler(URL url, CrawlerFactory factory, boolean fallback) {
+			if (fallback && factory.isFallbacksEnabled()){
+				return new GithubHtmlCrawler(url, factory.getHtmlLoader());
+			}
+			
+			GithubJsonCrawler crawler;
+			if (!factory.isFallbacksEnabled()){
+				crawler = new GithubJsonCrawler(url, factory.getJsonLoader());
+			} else {
+				// Falls back to the HTML crawler only once an API request fails
+				crawler = new GithubJsonCrawler(
+					url, factory.getJsonLoader(),
+					new GithubHtmlCrawler(url, factory.getHtmlLoader()), factory.getHostHealth()
+				);
+			}
+			crawler.setReleaseFeed(factory.getReleaseFeed());
+			return crawler;
 		}
-		return assets;
 	}
-
 }
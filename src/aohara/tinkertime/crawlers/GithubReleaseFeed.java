@@ -0,0 +1,239 @@
+package aohara.tinkertime.crawlers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import aohara.common.Version;
+import aohara.tinkertime.net.HttpClient;
+
+/**
+ * Detects changes to the releases of Github repositories from their
+ * releases.atom feeds.
+ *
+ * The feeds are served by github.com rather than the API, so reading them
+ * never counts against the API's rate limit.  Each feed is requested
+ * conditionally, with the ETag and Last-Modified date of its last response,
+ * so an unchanged feed is answered with an empty Not Modified response.
+ * The feed is only read up to the id of its newest entry.
+ *
+ * The version found by a full probe is remembered along with the newest
+ * entry of the feed at the time, and reused until a new entry appears.
+ *
+ * If given a {@link Store}, the state of each feed is saved to it whenever
+ * it changes, and loaded from it on first use, so that the first check of
+ * a repository after a restart can still be answered with Not Modified.
+ */
+public class GithubReleaseFeed {
+	
+	private static final Pattern NEWEST_ENTRY = Pattern.compile("<entry>.*?<id>([^<]*)</id>", Pattern.DOTALL);
+	
+	private final HttpClient client;
+	private final Map<String, Feed> feeds = new HashMap<>();
+	private Store store;
+	
+	/**
+	 * Persistent storage of the state of each feed, by feed URL.
+	 */
+	public static interface Store {
+		
+		/**
+		 * @return the saved state of the feed, or null if there is none
+		 */
+		Feed getFeed(String feedUrl);
+		
+		void saveFeed(String feedUrl, Feed feed);
+	}
+	
+	public GithubReleaseFeed(){
+		this(HttpClient.getInstance());
+	}
+	
+	public GithubReleaseFeed(HttpClient client){
+		this.client = client;
+	}
+	
+	// -- Interface --------------------------------------------------------
+	
+	public synchronized void setStore(Store store){
+		this.store = store;
+	}
+	
+	/**
+	 * Returns the newest version of the repository, running the full probe
+	 * only if its releases have changed since it was last run.  If the feed
+	 * cannot be read, the full probe is always run.
+	 * 
+	 * @param pageUrl any page of the repository
+	 * @param fullProbe finds the newest version without the feed
+	 */
+	public VersionProbe probe(URL pageUrl, Callable<VersionProbe> fullProbe) throws IOException {
+		URL feedUrl = getFeedUrl(pageUrl);
+		String newestEntry;
+		try {
+			newestEntry = getNewestEntry(feedUrl);
+		} catch (IOException e){
+			e.printStackTrace();
+			return call(fullProbe);
+		}
+		
+		synchronized(this){
+			Feed feed = getFeed(feedUrl);
+			VersionProbe probe = feed.getProbe();
+			if (probe != null && newestEntry != null && newestEntry.equals(feed.probedEntry)){
+				return probe;
+			}
+		}
+		
+		VersionProbe probe = call(fullProbe);
+		synchronized(this){
+			Feed feed = getFeed(feedUrl);
+			feed.setProbe(probe, newestEntry);
+			save(feedUrl, feed);
+		}
+		return probe;
+	}
+	
+	static URL getFeedUrl(URL pageUrl) throws MalformedURLException {
+		String path = pageUrl.getPath().split("/releases")[0];
+		if (path.endsWith("/")){
+			path = path.substring(0, path.length() - 1);
+		}
+		return new URL("https", CrawlerFactory.HOST_GITHUB, path + "/releases.atom");
+	}
+	
+	// -- Feed -------------------------------------------------------------
+	
+	/**
+	 * Requests the feed conditionally.
+	 * 
+	 * @return the id of the newest entry, or null if the feed has no entries
+	 */
+	String getNewestEntry(URL feedUrl) throws IOException {
+		Map<String, String> headers = new HashMap<>();
+		synchronized(this){
+			Feed feed = getFeed(feedUrl);
+			if (feed.etag != null){
+				headers.put("If-None-Match", feed.etag);
+			}
+			if (feed.lastModified != null){
+				headers.put("If-Modified-Since", feed.lastModified);
+			}
+		}
+		
+		URLConnection conn = client.open(feedUrl, true, headers);
+		String newestEntry;
+		try(Reader reader = new InputStreamReader(HttpClient.getContent(conn), "UTF-8")){
+			if (isNotModified(conn)){
+				synchronized(this){
+					return getFeed(feedUrl).newestEntry;
+				}
+			}
+			newestEntry = readNewestEntry(reader);
+		}
+		
+		synchronized(this){
+			Feed feed = getFeed(feedUrl);
+			feed.etag = conn.getHeaderField("ETag");
+			feed.lastModified = conn.getHeaderField("Last-Modified");
+			feed.newestEntry = newestEntry;
+			save(feedUrl, feed);
+		}
+		return newestEntry;
+	}
+	
+	private static boolean isNotModified(URLConnection conn) throws IOException {
+		return conn instanceof HttpURLConnection && ((HttpURLConnection) conn).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED;
+	}
+	
+	/**
+	 * Reads the feed until the id of its first entry, which is the newest.
+	 * 
+	 * @return the id, or null if the feed has no entries
+	 */
+	static String readNewestEntry(Reader reader) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		StringBuilder feed = new StringBuilder();
+		for (String line; (line = lines.readLine()) != null; ){
+			feed.append(line).append('\n');
+			if (line.contains("</id>")){
+				Matcher matcher = NEWEST_ENTRY.matcher(feed);
+				if (matcher.find()){
+					return matcher.group(1).trim();
+				}
+			}
+		}
+		return null;
+	}
+	
+	private Feed getFeed(URL feedUrl){
+		String key = feedUrl.toString();  // URLs resolve their hosts when hashed
+		if (!feeds.containsKey(key)){
+			Feed saved = store != null ? store.getFeed(key) : null;
+			feeds.put(key, saved != null ? saved : new Feed());
+		}
+		return feeds.get(key);
+	}
+	
+	private void save(URL feedUrl, Feed feed){
+		if (store != null){
+			store.saveFeed(feedUrl.toString(), feed);
+		}
+	}
+	
+	private static VersionProbe call(Callable<VersionProbe> fullProbe) throws IOException {
+		try {
+			return fullProbe.call();
+		} catch (IOException | RuntimeException e){
+			throw e;
+		} catch (Exception e){
+			throw new IOException(e);
+		}
+	}
+	
+	/**
+	 * The validators of a feed's last response, its newest entry, and the
+	 * version found by the last full probe, along with the entry it was
+	 * found at.
+	 */
+	public static class Feed {
+		
+		private String etag, lastModified, newestEntry, probedEntry, probedVersion;
+		private long probedUpdatedOn;
+		private boolean probed = false;
+		private transient VersionProbe probe;
+		
+		private VersionProbe getProbe(){
+			if (probe == null && probed){
+				try {
+					probe = new VersionProbe(
+						probedVersion != null ? Version.valueOf(probedVersion) : null,
+						probedUpdatedOn != 0 ? new Date(probedUpdatedOn) : null
+					);
+				} catch (IllegalArgumentException e){
+					probed = false;
+				}
+			}
+			return probe;
+		}
+		
+		private void setProbe(VersionProbe probe, String entry){
+			this.probe = probe;
+			this.probed = true;
+			this.probedEntry = entry;
+			this.probedVersion = probe.version != null ? probe.version.toString() : null;
+			this.probedUpdatedOn = probe.updatedOn != null ? probe.updatedOn.getTime() : 0;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package aohara.tinkertime.crawlers;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+
+import aohara.tinkertime.net.HttpStatusException;
+import aohara.tinkertime.net.RetryPolicy;
+
+/**
+ * Registry of which hosts the crawlers can currently fetch from.
+ * 
+ * Acts as a circuit breaker for each host.  After several consecutive
+ * failures, or as soon as the host rate-limits a request, the host is
+ * considered unavailable for a while, and crawlers use their fallback
+ * strategy instead of trying it.  Once that time has passed, the next
+ * request is allowed through; a success closes the circuit again, and a
+ * failure reopens it.
+ * 
+ * Only failures of the host itself count: connection failures, timeouts,
+ * server errors, and rate limits.  Client errors, such as a mistyped page,
+ * and unreadable responses say nothing about the host, so are ignored.
+ */
+public class HostHealth {
+	
+	static final int FAILURE_THRESHOLD = 3;
+	static final long
+		FAILURE_TTL_MS = 5 * 60 * 1000,
+		RATE_LIMIT_TTL_MS = 30 * 60 * 1000;
+	
+	private final Map<String, Integer> consecutiveFailures = new HashMap<>();
+	private final Map<String, Long> unavailableUntil = new HashMap<>();
+	
+	public synchronized boolean isAvailable(String host){
+		Long until = unavailableUntil.get(host);
+		return until == null || System.currentTimeMillis() >= until;
+	}
+	
+	public synchronized void recordSuccess(String host){
+		consecutiveFailures.remove(host);
+		unavailableUntil.remove(host);
+	}
+	
+	/**
+	 * @return true if the failure shows that the host itself is unavailable
+	 */
+	public static boolean isHostFailure(IOException e){
+		if (e instanceof HttpStatusException && ((HttpStatusException) e).isRateLimited()){
+			return true;
+		}
+		return RetryPolicy.isRetryable(e) || e instanceof UnknownHostException;
+	}
+	
+	public synchronized void recordFailure(String host, IOException e){
+		if (!isHostFailure(e)){
+			return;
+		} else if (e instanceof HttpStatusException && ((HttpStatusException) e).isRateLimited()){
+			long retryAfterMs = ((HttpStatusException) e).retryAfterMs;
+			open(host, retryAfterMs >= 0 ? retryAfterMs : RATE_LIMIT_TTL_MS);
+			return;
+		}
+		
+		Integer failures = consecutiveFailures.get(host);
+		failures = failures == null ? 1 : failures + 1;
+		consecutiveFailures.put(host, failures);
+		
+		// A failure while half-open reopens the circuit immediately
+		if (failures >= FAILURE_THRESHOLD || unavailableUntil.containsKey(host)){
+			open(host, FAILURE_TTL_MS);
+		}
+	}
+	
+	private void open(String host, long ttlMs){
+		unavailableUntil.put(host, System.currentTimeMillis() + ttlMs);
+	}
+}
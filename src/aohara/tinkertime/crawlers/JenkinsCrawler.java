@@ -3,14 +3,21 @@ package aohara.tinkertime.crawlers;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
 
 import aohara.common.VersionParser;
 import aohara.common.Version;
+import aohara.tinkertime.crawlers.pageLoaders.PageExtractor;
 import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
+import aohara.tinkertime.crawlers.pageLoaders.PageRecord;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -22,8 +29,6 @@ import com.google.gson.JsonObject;
  */
 public class JenkinsCrawler extends Crawler<JsonElement> {
 	
-	private JsonObject cachedJson;
-	
 	public JenkinsCrawler(URL jenkinsUrl, PageLoader<JsonElement> pageLoader) throws MalformedURLException{
 		super(jenkinsUrl, pageLoader);
 	}
@@ -37,16 +42,13 @@ public class JenkinsCrawler extends Crawler<JsonElement> {
 		}
 	}
 
-	private JsonObject getJson() throws IOException {
-		if (cachedJson == null){
-			cachedJson = getPage(getApiUrl()).getAsJsonObject();
-		}
-		return cachedJson;
+	private Build getBuild() throws IOException {
+		return getRecord(getApiUrl(), new BuildExtractor());
 	}
 
 	@Override
 	public Date getUpdatedOn() throws IOException {
-		long timestamp = getJson().get("timestamp").getAsLong();
+		long timestamp = getBuild().timestamp;
 		
 		// ignore milliseconds
 		Calendar cal = Calendar.getInstance();
@@ -80,17 +82,15 @@ public class JenkinsCrawler extends Crawler<JsonElement> {
 		return null;
 	}
 	
-	private JsonObject getLatestArtifact() throws IOException{
+	private String getLatestArtifact() throws IOException{
 		Version latestVersion = null;
-		JsonObject latestArtifact = null;
+		String latestArtifact = null;
 		
-		for (JsonElement artifactEle : getJson().get("artifacts").getAsJsonArray()){
-			JsonObject artifactObj = artifactEle.getAsJsonObject();
-			String fileName = artifactObj.get("relativePath").getAsString();
+		for (String fileName : getBuild().artifacts){
 			Version version = Version.valueOf(VersionParser.parseVersionString(fileName));
 			if (latestVersion == null || version.greaterThan(latestVersion) && fileName.endsWith(".dll")){
 				latestVersion = version;
-				latestArtifact = artifactObj;
+				latestArtifact = fileName;
 			}
 		}
 		return latestArtifact;
@@ -100,8 +100,7 @@ public class JenkinsCrawler extends Crawler<JsonElement> {
 	protected Collection<Asset> getNewestAssets() throws IOException {
 		Collection<Asset> assets = new LinkedList<>();
 		
-		JsonObject dllArtifact = getLatestArtifact();
-		String fileName = dllArtifact.get("relativePath").getAsString();
+		String fileName = getLatestArtifact();
 		
 		assets.add(new Asset(
 			fileName,
@@ -113,6 +112,72 @@ public class JenkinsCrawler extends Crawler<JsonElement> {
 
 	@Override
 	public String getVersionString() throws IOException {
-		return getJson().get("number").getAsString();
+		return getBuild().number;
+	}
+	
+	// -- Extraction -----------------------------------------------------------
+	
+	/**
+	 * The fields of a Jenkins build used by this crawler.
+	 */
+	private static class Build extends PageRecord {
+		
+		private final long timestamp;
+		private final String number;
+		private final List<String> artifacts;
+		
+		private Build(long timestamp, String number, List<String> artifacts){
+			this.timestamp = timestamp;
+			this.number = number;
+			this.artifacts = Collections.unmodifiableList(artifacts);
+		}
+		
+		@Override
+		public long getWeight(){
+			return weigh(number) + weigh(artifacts.toArray(new String[artifacts.size()]));
+		}
+	}
+	
+	private static class BuildExtractor implements PageExtractor<JsonElement, Build> {
+
+		@Override
+		public Build extract(JsonElement page) throws IOException {
+			JsonObject buildObj = page.getAsJsonObject();
+			
+			List<String> artifacts = new ArrayList<>();
+			for (JsonElement artifactEle : buildObj.get("artifacts").getAsJsonArray()){
+				artifacts.add(artifactEle.getAsJsonObject().get("relativePath").getAsString());
+			}
+			
+			return new Build(
+				buildObj.get("timestamp").getAsLong(),
+				buildObj.get("number").getAsString(),
+				artifacts
+			);
+		}
+	}
+	
+	// -- Provider -----------------------------------------------------------
+	
+	public static class Provider implements CrawlerProvider {
+
+		@Override
+		public String[] getHosts() {
+			return new String[]{ CrawlerFactory.HOST_MODULE_MANAGER };
+		}
+
+		@Override
+		public Set<Capability> getCapabilities() {
+			return EnumSet.noneOf(Capability.class);
+		}
+
+		@Override
+		public Crawler<?> createCrawler(URL url, CrawlerFactory factory, boolean fallback) {
+			try {
+				return new JenkinsCrawler(url, factory.getJsonLoader());
+			} catch (MalformedURLException e) {
+				throw new RuntimeException(e);
+			}
+		}
 	}
 }
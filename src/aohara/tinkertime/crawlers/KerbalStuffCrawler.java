@@ -4,7 +4,9 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.Collection;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.LinkedList;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,7 +14,9 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
+import aohara.tinkertime.crawlers.pageLoaders.PageExtractor;
 import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
+import aohara.tinkertime.crawlers.pageLoaders.PageRecord;
 
 public class KerbalStuffCrawler extends Crawler<JsonElement>{
 	
@@ -36,24 +40,28 @@ public class KerbalStuffCrawler extends Crawler<JsonElement>{
 		return null;
 	}
 
+	private ModRecord getModRecord() throws IOException {
+		return getRecord(getApiUrl(), new ModRecordExtractor());
+	}
+
 	@Override
 	public String getName() throws IOException {
-		return getPage(getApiUrl()).getAsJsonObject().get("name").getAsString();
+		return getModRecord().name;
 	}
 
 	@Override
 	public URL getImageUrl() throws IOException {
-		JsonElement bgElement = getPage(getApiUrl()).getAsJsonObject().get("background");
-		if (!bgElement.isJsonNull()){
-			return new URL("https", getApiUrl().getHost(), bgElement.getAsString());
+		String background = getModRecord().background;
+		if (background != null){
+			return new URL("https", getApiUrl().getHost(), background);
 		}
 		return null;
 	}
 	
-	protected JsonObject getLatestVersion() throws IOException {
-		JsonArray versions = getPage(getApiUrl()).getAsJsonObject().get("versions").getAsJsonArray();
-		if (versions.size() > 0){
-			return versions.get(0).getAsJsonObject();
+	private ModRecord getLatestVersion() throws IOException {
+		ModRecord record = getModRecord();
+		if (record.hasVersion){
+			return record;
 		}
 		throw new IOException("No latest version available");
 	}
@@ -65,17 +73,17 @@ public class KerbalStuffCrawler extends Crawler<JsonElement>{
 
 	@Override
 	public String getCreator() throws IOException {
-		return getPage(getApiUrl()).getAsJsonObject().get("author").getAsString();
+		return getModRecord().author;
 	}
 
 	@Override
 	public String getKspVersion() throws IOException {
-		return getLatestVersion().get("ksp_version").getAsString();
+		return getLatestVersion().kspVersion;
 	}
 	
 	@Override
 	public String getVersionString() throws IOException{
-		return getLatestVersion().get("friendly_version").getAsString();
+		return getLatestVersion().friendlyVersion;
 	}
 	
 	private static String generateId(URL url) {
@@ -90,17 +98,94 @@ public class KerbalStuffCrawler extends Crawler<JsonElement>{
 	protected Collection<Asset> getNewestAssets() throws IOException {
 		String fileName = String.format(
 			"%s %s.zip", getName(),
-			getLatestVersion().get("friendly_version").getAsString()
+			getLatestVersion().friendlyVersion
 		);
 		
 		URL downloadLink = new URL(
 			"https",
 			CrawlerFactory.HOST_KERBAL_STUFF,
-			getLatestVersion().get("download_path").getAsString()
+			getLatestVersion().downloadPath
 		);
 		
 		Collection<Asset> assets = new LinkedList<>();
 		assets.add(new Asset(fileName, downloadLink));
 		return assets;
 	}
+	
+	// -- Extraction -----------------------------------------------------------
+	
+	/**
+	 * The fields of a KerbalStuff mod, and its latest version, used by this crawler.
+	 */
+	private static class ModRecord extends PageRecord {
+		
+		private final String name, author, background;
+		private final boolean hasVersion;
+		private final String kspVersion, friendlyVersion, downloadPath;
+		
+		private ModRecord(
+			String name, String author, String background,
+			boolean hasVersion, String kspVersion, String friendlyVersion, String downloadPath
+		){
+			this.name = name;
+			this.author = author;
+			this.background = background;
+			this.hasVersion = hasVersion;
+			this.kspVersion = kspVersion;
+			this.friendlyVersion = friendlyVersion;
+			this.downloadPath = downloadPath;
+		}
+		
+		@Override
+		public long getWeight(){
+			return weigh(name, author, background, kspVersion, friendlyVersion, downloadPath);
+		}
+	}
+	
+	private static class ModRecordExtractor implements PageExtractor<JsonElement, ModRecord> {
+
+		@Override
+		public ModRecord extract(JsonElement page) throws IOException {
+			JsonObject modObj = page.getAsJsonObject();
+			JsonElement bgElement = modObj.get("background");
+			String background = bgElement.isJsonNull() ? null : bgElement.getAsString();
+			
+			JsonArray versions = modObj.get("versions").getAsJsonArray();
+			if (versions.size() == 0){
+				return new ModRecord(
+					modObj.get("name").getAsString(), modObj.get("author").getAsString(), background,
+					false, null, null, null
+				);
+			}
+			
+			JsonObject latest = versions.get(0).getAsJsonObject();
+			return new ModRecord(
+				modObj.get("name").getAsString(), modObj.get("author").getAsString(), background,
+				true,
+				latest.get("ksp_version").getAsString(),
+				latest.get("friendly_version").getAsString(),
+				latest.get("download_path").getAsString()
+			);
+		}
+	}
+	
+	// -- Provider -----------------------------------------------------------
+	
+	public static class Provider implements CrawlerProvider {
+
+		@Override
+		public String[] getHosts() {
+			return new String[]{ CrawlerFactory.HOST_KERBAL_STUFF };
+		}
+
+		@Override
+		public Set<Capability> getCapabilities() {
+			return EnumSet.noneOf(Capability.class);
+		}
+
+		@Override
+		public Crawler<?> createCrawler(URL url, CrawlerFactory factory, boolean fallback) {
+			return new KerbalStuffCrawler(url, factory.getJsonLoader());
+		}
+	}
 }
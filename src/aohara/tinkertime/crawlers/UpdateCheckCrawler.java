@@ -7,12 +7,21 @@ import java.util.concurrent.Callable;
 
 import aohara.common.Version;
 
+/**
+ * Checks whether an update is available for a mod.
+ * 
+ * Only the crawler's {@link VersionProbe} is used, so the check makes as few
+ * requests as possible, and never prompts the user.  The check is only made
+ * once; if it fails, the failure is thrown again rather than probing again.
+ */
 public class UpdateCheckCrawler implements Callable<Boolean> {
 	
 	private final Crawler<?> crawler;
 	private boolean isUpdateAvailable = false, wasRun = false;
 	private final Version currentVersion;
 	private final Date lastUpdatedOn;
+	private VersionProbe probe;
+	private IOException failure;
 	
 	public UpdateCheckCrawler(Crawler<?> crawler, Version currentVersion, Date lastUpdatedOn){
 		this.crawler = crawler;
@@ -22,28 +31,43 @@ public class UpdateCheckCrawler implements Callable<Boolean> {
 
 	@Override
 	public Boolean call() throws IOException {
-		try{
-			isUpdateAvailable = crawler.getVersion().greaterThan(currentVersion);
-		} catch (NullPointerException e){
-			try {
-				isUpdateAvailable = crawler.getUpdatedOn().before(lastUpdatedOn);
-			} catch (NullPointerException | IOException e1) {
-				return false;
-			}
+		try {
+			probe = crawler.probeVersion();
+		} catch (IOException e){
+			failure = e;
+			throw e;
 		}
+		isUpdateAvailable = probe.isNewerThan(currentVersion, lastUpdatedOn);
 		wasRun = true;
 		return isUpdateAvailable;
 	}
 	
 	public boolean isUpdateAvailable() throws IOException {
+		if (failure != null){
+			throw failure;
+		}
 		if (!wasRun){
 			call();
 		}
 		return isUpdateAvailable;
 	}
 	
+	/**
+	 * @return true if the check was made, and did not fail
+	 */
+	public boolean wasChecked(){
+		return wasRun;
+	}
+	
 	public Version getVersion(){
-		return crawler.getVersion();
+		return probe != null ? probe.version : crawler.getVersion();
+	}
+	
+	/**
+	 * @return the update date of the newest version, or null if unknown
+	 */
+	public Date getUpdatedOn(){
+		return probe != null ? probe.updatedOn : null;
 	}
 	
 	public URL getDownloadLink() throws IOException{
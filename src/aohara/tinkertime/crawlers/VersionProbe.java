@@ -0,0 +1,41 @@
+package aohara.tinkertime.crawlers;
+
+import java.util.Date;
+
+import aohara.common.Version;
+
+/**
+ * The newest version of a mod, as found by {@link Crawler#probeVersion()}.
+ * 
+ * Mods without a parseable version are compared by their update date instead.
+ */
+public class VersionProbe {
+	
+	public final Version version;
+	public final Date updatedOn;
+	
+	VersionProbe(Version version, Date updatedOn){
+		this.version = version;
+		this.updatedOn = updatedOn;
+	}
+	
+	/**
+	 * Returns true if the probed version is newer than the given one.
+	 * 
+	 * @param currentVersion version of the installed mod, or null if unknown
+	 * @param lastUpdatedOn date the installed mod was updated on, or null if unknown
+	 */
+	public boolean isNewerThan(Version currentVersion, Date lastUpdatedOn){
+		if (version != null && currentVersion != null){
+			return version.greaterThan(currentVersion);
+		} else if (updatedOn != null && lastUpdatedOn != null){
+			return updatedOn.after(lastUpdatedOn);
+		}
+		return false;
+	}
+	
+	@Override
+	public String toString(){
+		return version != null ? version.toString() : String.valueOf(updatedOn);
+	}
+}
@@ -0,0 +1,23 @@
+package aohara.tinkertime.crawlers.pageLoaders;
+
+import java.io.IOException;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Extracts a compact record from a Json Document as it is being read.
+ * 
+ * Implementations should only read the fields they need, skip every other
+ * value, and return as soon as the record is complete; the rest of the
+ * document is never read.
+ * 
+ * Implementations must be stateless, since a record is cached for every
+ * pair of URL and extractor class.
+ *
+ * @param <R> type of the extracted record
+ * @see JsonLoader#getRecord(java.net.URL, JsonExtractor)
+ */
+public interface JsonExtractor<R extends PageRecord> {
+	
+	public R extract(JsonReader reader) throws IOException;
+}
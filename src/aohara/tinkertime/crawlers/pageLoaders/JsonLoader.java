@@ -4,23 +4,71 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.Callable;
+
+import aohara.tinkertime.net.HttpClient;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 
 /**
  * PageLoader for loading and caching Json Documents from the web.
  * 
+ * Large documents should be read with {@link #getRecord(URL, JsonExtractor)},
+ * which streams the document through an extractor instead of parsing it
+ * into a tree.
+ * 
  * @author Andrew O'Hara
  */
 public class JsonLoader extends PageLoader<JsonElement> {
 
 	private final JsonParser parser = new JsonParser();
+	private final HttpClient client;
+	
+	public JsonLoader(){
+		this(HttpClient.getInstance());
+	}
+	
+	public JsonLoader(HttpClient client){
+		this.client = client;
+	}
 
 	@Override
 	protected JsonElement loadPage(URL url) throws IOException {
-		try(Reader r = new InputStreamReader(url.openStream())){
+		try(Reader r = openReader(url)){
 			return parser.parse(r);
 		}
 	}
+	
+	/**
+	 * Returns the record extracted from the document at the given URL.
+	 * 
+	 * The document is read until the extractor returns, and is never
+	 * parsed into a tree.
+	 */
+	public final <R extends PageRecord> R getRecord(final URL url, final JsonExtractor<R> extractor) throws IOException {
+		String key = getKey(url, extractor);
+		R record = getCachedRecord(key);
+		if (record == null){
+			record = fetch(new Callable<R>(){
+				@Override
+				public R call() throws IOException {
+					try(JsonReader reader = new JsonReader(openReader(url))){
+						return extractor.extract(reader);
+					} catch (IllegalStateException | NumberFormatException e){
+						throw new IOException("Unexpected Json structure for " + url, e);
+					}
+				}
+			});
+			cacheRecord(key, record);
+		}
+		return record;
+	}
+	
+	protected Reader openReader(URL url) throws IOException {
+		URLConnection conn = client.open(url, true);
+		return new InputStreamReader(HttpClient.getContent(conn), "UTF-8");
+	}
 }
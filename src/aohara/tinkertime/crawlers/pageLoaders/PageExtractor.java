@@ -0,0 +1,18 @@
+package aohara.tinkertime.crawlers.pageLoaders;
+
+import java.io.IOException;
+
+/**
+ * Extracts a compact record from a loaded page.
+ * 
+ * Implementations must be stateless, since a record is cached for every
+ * pair of URL and extractor class.
+ *
+ * @param <T> type of page to extract from
+ * @param <R> type of the extracted record
+ * @see PageLoader#getRecord(java.net.URL, PageExtractor)
+ */
+public interface PageExtractor<T, R extends PageRecord> {
+	
+	public R extract(T page) throws IOException;
+}
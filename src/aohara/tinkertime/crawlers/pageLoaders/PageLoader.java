@@ -2,14 +2,22 @@ package aohara.tinkertime.crawlers.pageLoaders;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.concurrent.Callable;
 
-import aohara.common.content.ExpiryCache;
+import aohara.tinkertime.net.Hedger;
+import aohara.tinkertime.net.RetryPolicy;
 
 /**
  * Public Interface used by the Crawler class for acquiring Pages.
  * 
- * It is reccomended that the implementing Class use its own caching method
- * for caching pages, if necessary.
+ * Pages themselves are not cached, since a full document can be megabytes.
+ * Crawlers instead extract the few fields they need into a compact
+ * {@link PageRecord}, which is cached, and the page is discarded.  The
+ * cache is bounded by the total weight of its records.
+ * 
+ * Page loads which fail for a transient reason are retried according to
+ * the {@link RetryPolicy}, and loads which are slower than usual are
+ * hedged with a second request.
  * 
  * @author Andrew O'Hara
  *
@@ -18,14 +26,101 @@ import aohara.common.content.ExpiryCache;
 public abstract class PageLoader<T> {
 	
 	public static final int CACHING_TIME_MS = 10 * 60 * 1000;
-	private final ExpiryCache<URL, T> cache = new ExpiryCache<>(CACHING_TIME_MS);
+	public static final long MAX_CACHE_WEIGHT = 4 * 1024 * 1024;
+	private final WeightedExpiryCache<String> cache = new WeightedExpiryCache<>(CACHING_TIME_MS, MAX_CACHE_WEIGHT);
+	private final Hedger hedger = new Hedger();
+	private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private boolean hedgingEnabled = true;
 	
 	protected abstract T loadPage(URL url) throws IOException;
 	
+	/**
+	 * Loads the page for the given extractor.  Loaders may override this to
+	 * load only as much of the page as the extractor needs.
+	 */
+	protected T loadPage(URL url, PageExtractor<T, ?> extractor) throws IOException {
+		return loadPage(url);
+	}
+	
+	/**
+	 * Loads the page.  The page is not cached.
+	 */
 	public final T getPage(URL url) throws IOException {
-		if (!cache.containsKey(url)){
-			cache.put(url, loadPage(url));
+		return loadPage(url);
+	}
+	
+	/**
+	 * Returns the record extracted from the page at the given URL.
+	 * 
+	 * If the record is not cached, the page is loaded, the record is
+	 * extracted and cached, and the page is discarded.
+	 */
+	public final <R extends PageRecord> R getRecord(final URL url, final PageExtractor<T, R> extractor) throws IOException {
+		String key = getKey(url, extractor);
+		R record = getCachedRecord(key);
+		if (record == null){
+			record = fetch(new Callable<R>(){
+				@Override
+				public R call() throws IOException {
+					return extractor.extract(loadPage(url, extractor));
+				}
+			});
+			cacheRecord(key, record);
 		}
-		return cache.get(url);
+		return record;
+	}
+	
+	// -- Fetching -----------------------------------------------------------
+	
+	public void setRetryPolicy(RetryPolicy retryPolicy){
+		this.retryPolicy = retryPolicy;
+	}
+	
+	public void setHedgingEnabled(boolean hedgingEnabled){
+		this.hedgingEnabled = hedgingEnabled;
+	}
+	
+	/**
+	 * Runs the load, retrying it if it fails for a transient reason, and
+	 * hedging it if it is slow.  The load must be idempotent.
+	 */
+	protected final <R> R fetch(final Callable<R> load) throws IOException {
+		return retryPolicy.call(new Callable<R>(){
+			@Override
+			public R call() throws IOException {
+				return hedgingEnabled ? hedger.call(load) : callUnchecked(load);
+			}
+		});
+	}
+	
+	private static <R> R callUnchecked(Callable<R> load) throws IOException {
+		try {
+			return load.call();
+		} catch (IOException | RuntimeException e){
+			throw e;
+		} catch (Exception e){
+			throw new IOException(e);
+		}
+	}
+	
+	// -- Cache --------------------------------------------------------------
+	
+	protected static String getKey(URL url, Object extractor){
+		return extractor.getClass().getName() + " " + url;
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected final <R extends PageRecord> R getCachedRecord(String key){
+		return (R) cache.get(key);
+	}
+	
+	protected final void cacheRecord(String key, PageRecord record){
+		if (record != null){
+			cache.put(key, record);
+		}
+	}
+	
+	long getCacheWeight(){
+		return cache.getTotalWeight();
 	}
 }
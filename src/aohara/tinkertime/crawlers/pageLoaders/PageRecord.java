@@ -0,0 +1,50 @@
+package aohara.tinkertime.crawlers.pageLoaders;
+
+import java.net.URL;
+import java.util.Collection;
+
+/**
+ * Base Class for the compact, immutable records which crawlers extract from
+ * pages.  Only records are cached by a {@link PageLoader}; the pages they
+ * are extracted from are discarded as soon as extraction is complete.
+ * 
+ * Each record reports its approximate size, so that the cache can evict
+ * records by memory use rather than by count.
+ */
+public abstract class PageRecord {
+	
+	private static final int
+		OBJECT_OVERHEAD = 16,
+		REFERENCE_SIZE = 8,
+		STRING_OVERHEAD = 40;
+	
+	/**
+	 * @return the approximate number of bytes retained by this record
+	 */
+	public abstract long getWeight();
+	
+	// -- Weighing Helpers ---------------------------------------------------
+	
+	protected static long weigh(String... values){
+		long weight = OBJECT_OVERHEAD;
+		for (String value : values){
+			weight += REFERENCE_SIZE;
+			if (value != null){
+				weight += STRING_OVERHEAD + 2 * value.length();
+			}
+		}
+		return weight;
+	}
+	
+	protected static long weigh(URL url){
+		return url != null ? OBJECT_OVERHEAD + weigh(url.toString()) : REFERENCE_SIZE;
+	}
+	
+	protected static long weigh(Collection<? extends PageRecord> records){
+		long weight = OBJECT_OVERHEAD;
+		for (PageRecord record : records){
+			weight += REFERENCE_SIZE + record.getWeight();
+		}
+		return weight;
+	}
+}
@@ -0,0 +1,45 @@
+package aohara.tinkertime.crawlers.pageLoaders;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * Extractor for HTML pages whose needed elements are all near the start of
+ * the page.
+ * 
+ * The {@link WebpageLoader} reads the page a chunk at a time, and stops
+ * reading as soon as {@link #findEnd(StringBuilder, int)} reports that everything
+ * needed has been read.  Only what was read is parsed into the Document
+ * passed to {@link #extract(Object)}.
+ *
+ * @param <R> type of the extracted record
+ */
+public abstract class PartialHtmlExtractor<R extends PageRecord> implements PageExtractor<Document, R> {
+	
+	/**
+	 * Called each time another chunk of the page has been read.  Only the
+	 * new chunk, and any marker which it completes, needs to be searched.
+	 * 
+	 * @param html the start of the page read so far
+	 * @param newStart the index in html at which the new chunk starts
+	 * @return the length of html to keep if it contains everything needed,
+	 * 	or -1 if more of the page must be read
+	 */
+	public abstract int findEnd(StringBuilder html, int newStart);
+	
+	/**
+	 * @return the index of the start of the tag containing the marker, or
+	 * 	-1 if the marker does not start at or after the given index
+	 */
+	protected static int findTagStart(StringBuilder html, String marker, int fromIndex){
+		int markerIndex = html.indexOf(marker, fromIndex);
+		return markerIndex >= 0 ? html.lastIndexOf("<", markerIndex) : -1;
+	}
+	
+	/**
+	 * @return the index from which to search for the marker, so that a
+	 * 	marker which the new chunk completes is found
+	 */
+	protected static int searchStart(String marker, int newStart){
+		return Math.max(0, newStart - marker.length() + 1);
+	}
+}
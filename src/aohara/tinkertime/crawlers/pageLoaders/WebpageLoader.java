@@ -1,22 +1,91 @@
 package aohara.tinkertime.crawlers.pageLoaders;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.apache.commons.io.IOUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+
+import aohara.tinkertime.net.HttpClient;
 	
 /**
  * PageLoader for loading and caching HTML documents from the web.
  * 
+ * Records extracted by a {@link PartialHtmlExtractor} only need the start of
+ * the page; the rest of the response is never downloaded or parsed.
+ * 
  * @author Andrew O'Hara
  */
 public class WebpageLoader extends PageLoader<Document>{
 	
-	private static final int TIMEOUT_MS = 10 * 1000;
+	private static final int CHUNK_SIZE = 8 * 1024;
+	private static final Pattern CHARSET_PATTERN = Pattern.compile("charset=\\s*\"?([^\\s;\"]+)");
+	
+	private final HttpClient client;
+	
+	public WebpageLoader(){
+		this(HttpClient.getInstance());
+	}
+	
+	public WebpageLoader(HttpClient client){
+		this.client = client;
+	}
 
 	@Override
 	protected Document loadPage(URL url) throws IOException {
-		return Jsoup.parse(url, TIMEOUT_MS);
+		try(Reader reader = openReader(url)){
+			return Jsoup.parse(IOUtils.toString(reader), url.toString());
+		}
+	}
+	
+	@Override
+	protected Document loadPage(URL url, PageExtractor<Document, ?> extractor) throws IOException {
+		if (extractor instanceof PartialHtmlExtractor){
+			try(Reader reader = openReader(url)){
+				String html = read(reader, (PartialHtmlExtractor<?>) extractor);
+				return Jsoup.parse(html, url.toString());
+			}
+		}
+		return loadPage(url);
+	}
+	
+	protected Reader openReader(URL url) throws IOException {
+		URLConnection conn = client.open(url, true);
+		
+		String charset = "UTF-8";
+		if (conn.getContentType() != null){
+			Matcher m = CHARSET_PATTERN.matcher(conn.getContentType());
+			if (m.find()){
+				charset = m.group(1);
+			}
+		}
+		return new InputStreamReader(HttpClient.getContent(conn), charset);
+	}
+	
+	/**
+	 * Reads the page a chunk at a time, until the extractor finds its end.
+	 * 
+	 * @return the start of the page containing everything the extractor needs,
+	 * 	or the whole page if its end was never found
+	 */
+	static String read(Reader reader, PartialHtmlExtractor<?> extractor) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		char[] buf = new char[CHUNK_SIZE];
+		for (int read; (read = reader.read(buf)) != -1; ){
+			int newStart = builder.length();
+			builder.append(buf, 0, read);
+			
+			int end = extractor.findEnd(builder, newStart);
+			if (end >= 0){
+				return builder.substring(0, end);
+			}
+		}
+		return builder.toString();
 	}
 }
@@ -0,0 +1,88 @@
+package aohara.tinkertime.crawlers.pageLoaders;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe cache of {@link PageRecord}s whose entries expire after a
+ * fixed time, and whose total weight is bounded.
+ * 
+ * When the weight limit is exceeded, the least recently used records are
+ * evicted first.
+ *
+ * @param <K> type of key
+ */
+class WeightedExpiryCache<K> {
+	
+	private final long expiryMs, maxWeight;
+	private final LinkedHashMap<K, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long totalWeight = 0;
+	
+	WeightedExpiryCache(long expiryMs, long maxWeight){
+		this.expiryMs = expiryMs;
+		this.maxWeight = maxWeight;
+	}
+	
+	/**
+	 * @return the cached record, or null if it is not cached or has expired
+	 */
+	synchronized PageRecord get(K key){
+		Entry entry = entries.get(key);
+		if (entry == null){
+			return null;
+		} else if (entry.isExpired()){
+			remove(key);
+			return null;
+		}
+		return entry.record;
+	}
+	
+	synchronized void put(K key, PageRecord record){
+		remove(key);
+		
+		long weight = record.getWeight();
+		if (weight > maxWeight){
+			return;  // Would evict everything else
+		}
+		entries.put(key, new Entry(record, weight));
+		totalWeight += weight;
+		
+		// Evict expired, then least recently used, records
+		Iterator<Map.Entry<K, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()){
+			Entry entry = it.next().getValue();
+			if (entry.isExpired() || totalWeight > maxWeight){
+				totalWeight -= entry.weight;
+				it.remove();
+			}
+		}
+	}
+	
+	synchronized long getTotalWeight(){
+		return totalWeight;
+	}
+	
+	private void remove(K key){
+		Entry entry = entries.remove(key);
+		if (entry != null){
+			totalWeight -= entry.weight;
+		}
+	}
+	
+	private class Entry {
+		
+		private final PageRecord record;
+		private final long weight, expiresAt;
+		
+		private Entry(PageRecord record, long weight){
+			this.record = record;
+			this.weight = weight;
+			this.expiresAt = System.currentTimeMillis() + expiryMs;
+		}
+		
+		private boolean isExpired(){
+			return System.currentTimeMillis() >= expiresAt;
+		}
+	}
+}
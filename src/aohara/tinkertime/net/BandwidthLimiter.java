@@ -0,0 +1,147 @@
+package aohara.tinkertime.net;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+
+/**
+ * Global limit on the bandwidth used by all downloads.
+ *
+ * Each download reads through a {@link Share}, which takes a token from a
+ * shared {@link TokenBucket} for every byte read.  Downloads waiting for
+ * tokens are served in the order they asked, one read at a time, so each
+ * download gets a fair share of the cap, while a download which is waiting
+ * on its server leaves its share to the others.  The cap can be changed,
+ * or removed, while downloads are running.
+ *
+ * Background shares only use idle bandwidth: they are only given tokens
+ * while no foreground share is waiting for them.  Without a cap, the idle
+ * bandwidth is unknown, so background shares wait until no foreground
+ * share is open.
+ */
+public class BandwidthLimiter {
+	
+	static final double BURST_SECONDS = 0.25;
+	static final int MIN_BURST_BYTES = 16 * 1024;
+	
+	private final TokenBucket bucket = new TokenBucket(MIN_BURST_BYTES, MIN_BURST_BYTES);
+	private final LinkedList<Share> waiting = new LinkedList<>();
+	private long capBytesPerSecond = 0;
+	private int openForeground = 0;
+	
+	// -- Cap ------------------------------------------------------------------
+	
+	/**
+	 * Sets the most bytes per second to be downloaded by all shares combined.
+	 *
+	 * @param bytesPerSecond cap, or 0 for no cap
+	 */
+	public synchronized void setCap(long bytesPerSecond){
+		capBytesPerSecond = Math.max(0, bytesPerSecond);
+		if (capBytesPerSecond > 0){
+			bucket.setRate(Math.max(MIN_BURST_BYTES, capBytesPerSecond * BURST_SECONDS), capBytesPerSecond);
+		}
+		notifyAll();
+	}
+	
+	/**
+	 * @return most bytes per second to be downloaded, or 0 if there is no cap
+	 */
+	public synchronized long getCap(){
+		return capBytesPerSecond;
+	}
+	
+	// -- Shares ---------------------------------------------------------------
+	
+	/**
+	 * Opens a share for a single download.  It must be closed once the
+	 * download is finished.
+	 */
+	public synchronized Share open(boolean background){
+		if (!background){
+			openForeground++;
+		}
+		return new Share(background);
+	}
+	
+	public class Share implements Closeable {
+		
+		private final boolean background;
+		private boolean closed = false;
+		
+		private Share(boolean background){
+			this.background = background;
+		}
+		
+		public boolean isBackground(){
+			return background;
+		}
+		
+		/**
+		 * Waits for this share's turn to read the given number of bytes.
+		 */
+		public void acquire(int bytes) throws InterruptedIOException {
+			BandwidthLimiter.this.acquire(this, bytes);
+		}
+		
+		@Override
+		public void close() {
+			synchronized(BandwidthLimiter.this){
+				if (!closed && !background){
+					openForeground--;
+					BandwidthLimiter.this.notifyAll();
+				}
+				closed = true;
+			}
+		}
+	}
+	
+	private synchronized void acquire(Share share, int bytes) throws InterruptedIOException {
+		waiting.add(share);
+		try {
+			while (true){
+				long waitMs = 0;  // Until notified
+				if (isTurn(share)){
+					if (capBytesPerSecond <= 0){
+						return;
+					}
+					waitMs = bucket.tryAcquire(bytes);
+					if (waitMs == 0){
+						return;
+					}
+				}
+				wait(waitMs);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+		} finally {
+			waiting.remove(share);
+			notifyAll();
+		}
+	}
+	
+	/**
+	 * Returns true if the share is the first waiting for tokens.  Foreground
+	 * shares always go before background shares.
+	 */
+	private boolean isTurn(Share share){
+		if (!share.background){
+			for (Share other : waiting){
+				if (!other.background){
+					return other == share;
+				}
+			}
+		}
+		
+		for (Share other : waiting){
+			if (!other.background){
+				return false;
+			}
+		}
+		if (capBytesPerSecond <= 0 && openForeground > 0){
+			return false;
+		}
+		return waiting.getFirst() == share;
+	}
+}
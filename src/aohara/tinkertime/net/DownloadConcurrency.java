@@ -0,0 +1,381 @@
+package aohara.tinkertime.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import aohara.common.Listenable;
+import aohara.tinkertime.workflows.PriorityExecutor.Priority;
+
+/**
+ * Adaptive limit on the number of concurrent downloads.
+ *
+ * The limit only applies to file transfers, which wait in
+ * {@link #acquire(URL, Path, Priority)} for a free slot, so crawls and update
+ * checks are never held back by it.  Waiting transfers start in order of
+ * their priority, and interactive transfers may exceed the limit by
+ * {@link #RESERVED_INTERACTIVE}, so that one starts right away even while
+ * bulk and background downloads fill the limit.
+ *
+ * Every {@link #WINDOW_MS}, the bytes written by all running downloads are
+ * summed into the aggregate throughput, and the limit is adjusted by additive
+ * increase, multiplicative decrease.  While the limit is fully used, it is
+ * raised by one to probe for more throughput.  If the extra download did not
+ * improve throughput, the limit is lowered again, and not probed for a while.
+ * If a download fails for a transient reason, or the response latency of a
+ * host being downloaded from rises well above the lowest seen, the link is
+ * congested, so the limit is cut by {@link #DECREASE_FACTOR}.
+ *
+ * The limit never exceeds the configured maximum.  Every change to it is
+ * recorded as a {@link Decision}, and reported to the listeners.
+ */
+public class DownloadConcurrency extends Listenable<DownloadConcurrency.LimitListener> {
+	
+	public static interface LimitListener {
+		void limitChanged(int limit);
+	}
+	
+	static final long
+		WINDOW_MS = 2 * 1000,
+		PROBE_INTERVAL_MS = 30 * 1000,
+		DECREASE_INTERVAL_MS = 3 * WINDOW_MS,
+		MIN_INFLATED_LATENCY_MS = 500;
+	static final double
+		DECREASE_FACTOR = 0.7,
+		MIN_GAIN = 1.05,
+		LATENCY_INFLATION = 2;
+	static final int MAX_DECISIONS = 50, RESERVED_INTERACTIVE = 1;
+	
+	private final HttpClient client;
+	private final Set<Transfer> transfers = new HashSet<>();
+	private final LinkedList<Decision> decisions = new LinkedList<>();
+	private final int[] waiting = new int[Priority.values().length];
+	private ScheduledExecutorService ticker;
+	
+	private int maxLimit, limit;
+	private long windowStart, windowBytes, probeAfter = 0, lastDecrease = 0;
+	private int peakActive = 0, failures = 0;
+	private double throughput = -1, lastThroughput = -1;
+	private boolean probing = false;
+	
+	DownloadConcurrency(HttpClient client, int maxLimit){
+		this.client = client;
+		this.maxLimit = Math.max(1, maxLimit);
+		this.limit = (this.maxLimit + 1) / 2;
+		this.windowStart = System.currentTimeMillis();
+	}
+	
+	// -- Transfers ------------------------------------------------------------
+	
+	/**
+	 * Waits until fewer transfers than the limit are running, and no
+	 * transfer of a higher priority is waiting, and then starts measuring a
+	 * download into the given file.
+	 *
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	public Transfer acquire(URL url, Path file, Priority priority) throws InterruptedIOException {
+		synchronized(this){
+			waiting[priority.ordinal()]++;
+			try {
+				while (!canStart(priority)){
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to download");
+			} finally {
+				waiting[priority.ordinal()]--;
+				notifyAll();  // Transfers of a lower priority may now start
+			}
+			return start(url, file);
+		}
+	}
+	
+	private boolean canStart(Priority priority){
+		for (int i = 0; i < priority.ordinal(); i++){
+			if (waiting[i] > 0){
+				return false;
+			}
+		}
+		return transfers.size() < limit + (priority == Priority.Interactive ? RESERVED_INTERACTIVE : 0);
+	}
+	
+	/**
+	 * Starts measuring a download into the given file, whether or not the
+	 * limit has been reached.
+	 *
+	 * The file is sampled for its size as it is written, so it may not exist yet.
+	 */
+	Transfer start(URL url, Path file){
+		Transfer transfer = new Transfer(url.getHost(), file);
+		synchronized(this){
+			transfers.add(transfer);
+			peakActive = Math.max(peakActive, transfers.size());
+			if (ticker == null){
+				ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "Download Concurrency");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+				ticker.scheduleWithFixedDelay(new Runnable(){
+					@Override
+					public void run() {
+						evaluate(System.currentTimeMillis());
+					}
+				}, WINDOW_MS, WINDOW_MS, TimeUnit.MILLISECONDS);
+			}
+		}
+		return transfer;
+	}
+	
+	public class Transfer {
+		
+		private final String host;
+		private final Path file;
+		private long lastSize = 0;
+		
+		private Transfer(String host, Path file){
+			this.host = host;
+			this.file = file;
+		}
+		
+		/**
+		 * @return bytes written since the last sample
+		 */
+		private long sample(){
+			long size;
+			try {
+				size = Files.exists(file) ? Files.size(file) : 0;
+			} catch (IOException e) {
+				return 0;
+			}
+			long delta = Math.max(0, size - lastSize);  // Restarted downloads shrink
+			lastSize = size;
+			return delta;
+		}
+		
+		/**
+		 * Finishes the transfer, unless it has already finished.
+		 */
+		public void finished(){
+			synchronized(DownloadConcurrency.this){
+				if (transfers.remove(this)){
+					windowBytes += sample();
+					DownloadConcurrency.this.notifyAll();
+				}
+			}
+		}
+		
+		/**
+		 * Finishes the transfer, counting the failure as congestion if it
+		 * was transient.
+		 */
+		public void failed(IOException e){
+			synchronized(DownloadConcurrency.this){
+				if (transfers.remove(this)){
+					windowBytes += sample();
+					if (RetryPolicy.isRetryable(e)){
+						failures++;
+					}
+					DownloadConcurrency.this.notifyAll();
+				}
+			}
+		}
+	}
+	
+	// -- Control --------------------------------------------------------------
+	
+	/**
+	 * Ends the current window, and adjusts the limit.
+	 *
+	 * @return the decision made, or null if the limit was not changed
+	 */
+	Decision evaluate(long now){
+		Decision decision;
+		synchronized(this){
+			decision = decide(now);
+			if (decision != null){
+				record(decision);
+			}
+		}
+		
+		if (decision != null){
+			notifyListeners(decision);
+		}
+		return decision;
+	}
+	
+	private void record(Decision decision){
+		limit = decision.limit;
+		notifyAll();  // Waiting transfers may now start
+		decisions.add(decision);
+		if (decisions.size() > MAX_DECISIONS){
+			decisions.removeFirst();
+		}
+	}
+	
+	private void notifyListeners(Decision decision){
+		for (LimitListener l : getListeners()){
+			l.limitChanged(decision.limit);
+		}
+	}
+	
+	private Decision decide(long now){
+		for (Transfer transfer : transfers){
+			windowBytes += transfer.sample();
+		}
+		long elapsed = now - windowStart;
+		if (elapsed <= 0){
+			return null;
+		}
+		
+		double windowThroughput = windowBytes * 1000.0 / elapsed;
+		boolean active = peakActive > 0;
+		boolean saturated = peakActive >= limit;
+		int windowFailures = failures;
+		String congestedHost = getCongestedHost();
+		
+		// Begin the next window
+		windowStart = now;
+		windowBytes = 0;
+		failures = 0;
+		peakActive = transfers.size();
+		
+		if (!active){
+			throughput = lastThroughput = -1;
+			probing = false;
+			return null;
+		}
+		lastThroughput = throughput;
+		throughput = windowThroughput;
+		boolean wasProbing = probing;
+		probing = false;
+		
+		if (windowFailures > 0){
+			return decrease(now, windowFailures + " transient download failures");
+		} else if (congestedHost != null && now - lastDecrease >= DECREASE_INTERVAL_MS){
+			return decrease(now, "Response latency of " + congestedHost + " increased");
+		} else if (wasProbing && lastThroughput >= 0 && throughput < lastThroughput * MIN_GAIN){
+			probeAfter = now + PROBE_INTERVAL_MS;
+			return change(now, limit - 1, "Extra download did not improve throughput");
+		} else if (saturated && now >= probeAfter && limit < maxLimit){
+			probing = true;
+			return change(now, limit + 1, "Probing for more throughput");
+		}
+		return null;
+	}
+	
+	/**
+	 * Latency stays high for a while after the link is congested, so it
+	 * only causes a decrease every {@link #DECREASE_INTERVAL_MS}.
+	 */
+	private Decision decrease(long now, String reason){
+		probeAfter = now + PROBE_INTERVAL_MS;
+		lastDecrease = now;
+		return change(now, (int) (limit * DECREASE_FACTOR), reason);
+	}
+	
+	private Decision change(long now, int newLimit, String reason){
+		newLimit = Math.max(1, Math.min(maxLimit, newLimit));
+		return newLimit != limit ? new Decision(now, limit, newLimit, throughput, reason) : null;
+	}
+	
+	/**
+	 * @return a host being downloaded from whose latency has risen well
+	 * 	above the lowest seen, or null if there are none
+	 */
+	private String getCongestedHost(){
+		for (Transfer transfer : transfers){
+			HostBudget budget = client.getBudget(transfer.host);
+			long latencyMs = budget.getLatencyMs(), minLatencyMs = budget.getMinLatencyMs();
+			if (latencyMs >= MIN_INFLATED_LATENCY_MS && minLatencyMs >= 0 && latencyMs > minLatencyMs * LATENCY_INFLATION){
+				return transfer.host;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Sets the most concurrent downloads allowed.  The limit is lowered to
+	 * it if necessary.
+	 */
+	public void setMaxLimit(int maxLimit){
+		Decision decision = null;
+		synchronized(this){
+			this.maxLimit = Math.max(1, maxLimit);
+			if (limit > this.maxLimit){
+				decision = new Decision(System.currentTimeMillis(), limit, this.maxLimit, throughput, "Maximum lowered");
+				record(decision);
+			}
+		}
+		
+		if (decision != null){
+			notifyListeners(decision);
+		}
+	}
+	
+	// -- Metrics ---------------------------------------------------------------
+	
+	public synchronized int getLimit(){
+		return limit;
+	}
+	
+	public synchronized int getMaxLimit(){
+		return maxLimit;
+	}
+	
+	public synchronized int getActiveCount(){
+		return transfers.size();
+	}
+	
+	/**
+	 * @return aggregate throughput of the last window in bytes per second,
+	 * 	or -1 if nothing was downloaded during it
+	 */
+	public synchronized double getThroughput(){
+		return throughput;
+	}
+	
+	/**
+	 * @return the most recent changes to the limit, oldest first
+	 */
+	public synchronized List<Decision> getDecisions(){
+		return new ArrayList<>(decisions);
+	}
+	
+	public static class Decision {
+		
+		public final long time;
+		public final int previousLimit, limit;
+		public final double throughput;
+		public final String reason;
+		
+		private Decision(long time, int previousLimit, int limit, double throughput, String reason){
+			this.time = time;
+			this.previousLimit = previousLimit;
+			this.limit = limit;
+			this.throughput = throughput;
+			this.reason = reason;
+		}
+		
+		@Override
+		public String toString(){
+			return String.format("%d -> %d at %.0f B/s: %s", previousLimit, limit, throughput, reason);
+		}
+	}
+}
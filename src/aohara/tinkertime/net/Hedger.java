@@ -0,0 +1,237 @@
+package aohara.tinkertime.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a second, hedged, request when a request is slower than usual.
+ * 
+ * The latency of recent requests is tracked, and once a request has taken
+ * longer than the 95th percentile, the same request is made again.  The
+ * result of whichever finishes first is used, and the other is aborted by
+ * disconnecting its connection.  Only about one in twenty requests is
+ * hedged, but the slowest responses no longer hold up a whole batch.  Until
+ * enough latencies have been recorded, requests are not hedged, and are made
+ * on the calling thread.
+ * 
+ * Requests are timed from when the {@link HttpClient} sends them, so time
+ * spent waiting for the host's budget, or for it to be available after it
+ * asked to Retry-After some time, is never mistaken for a slow response.
+ * Requests to hosts which are rate limiting them are not hedged, and failed
+ * requests are never made again here, which is left to the caller's
+ * {@link RetryPolicy}.
+ */
+public class Hedger {
+	
+	static final int SAMPLE_SIZE = 100, MIN_SAMPLES = 20;
+	static final double PERCENTILE = 0.95;
+	
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory(){
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "Hedged Request");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	private static final ThreadLocal<Attempt<?>> currentAttempt = new ThreadLocal<>();
+	
+	private final long[] latencies = new long[SAMPLE_SIZE];
+	private int numLatencies = 0;
+	
+	/**
+	 * Calls the idempotent task, hedging it if it is slow.
+	 * 
+	 * @throws IOException if every attempt failed
+	 */
+	public <T> T call(final Callable<T> task) throws IOException {
+		long thresholdMs = getThresholdMs();
+		if (thresholdMs < 0){
+			return new Attempt<>(task).call();
+		}
+		
+		CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+		List<Attempt<T>> attempts = new LinkedList<>();
+		List<Future<T>> futures = new LinkedList<>();
+		Attempt<T> first = new Attempt<>(task);
+		attempts.add(first);
+		futures.add(completion.submit(first));
+		try {
+			Future<T> done = null;
+			long sentAt = first.awaitSent();
+			if (sentAt >= 0){
+				done = completion.poll(sentAt + thresholdMs - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+				if (done == null){
+					Attempt<T> hedge = new Attempt<>(task);
+					attempts.add(hedge);
+					futures.add(completion.submit(hedge));
+				}
+			}
+			
+			ExecutionException failure = null;
+			for (int i = 0; i < futures.size(); i++){
+				if (done == null){
+					done = completion.take();
+				}
+				try {
+					return done.get();
+				} catch (ExecutionException e){
+					failure = e;
+				}
+				done = null;
+			}
+			throw unwrap(failure);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for request");
+		} finally {
+			for (Attempt<T> attempt : attempts){
+				attempt.abort();
+			}
+			for (Future<T> future : futures){
+				future.cancel(true);
+			}
+		}
+	}
+	
+	/**
+	 * Called by the {@link HttpClient} once the request of the current
+	 * thread has been given its turn by the host's budget, and is sent.
+	 * 
+	 * @param conn the connection of the request, which is disconnected if
+	 * 	the request is no longer needed
+	 * @param hedgeable false if the host is rate limiting requests
+	 * @throws InterruptedIOException if the request is no longer needed
+	 */
+	static void requestSent(HttpURLConnection conn, boolean hedgeable) throws InterruptedIOException {
+		Attempt<?> attempt = currentAttempt.get();
+		if (attempt != null){
+			attempt.sent(conn, hedgeable);
+		}
+	}
+	
+	/**
+	 * An attempt of the task.  Its latency is recorded if it succeeds, from
+	 * when its request was sent.
+	 */
+	private class Attempt<T> implements Callable<T> {
+		
+		private final Callable<T> task;
+		private final CountDownLatch sent = new CountDownLatch(1);
+		private long sentAt = -1;
+		private boolean hedgeable = false, done = false, aborted = false;
+		private HttpURLConnection conn;
+		
+		private Attempt(Callable<T> task){
+			this.task = task;
+		}
+		
+		@Override
+		public T call() throws IOException {
+			currentAttempt.set(this);
+			try {
+				T result = task.call();
+				long latencyMs = getLatencyMs();
+				if (latencyMs >= 0){
+					recordLatency(latencyMs);
+				}
+				return result;
+			} catch (IOException | RuntimeException e){
+				throw e;
+			} catch (Exception e){
+				throw new IOException(e);
+			} finally {
+				currentAttempt.remove();
+				synchronized(this){
+					done = true;
+					sent.countDown();
+				}
+			}
+		}
+		
+		private synchronized void sent(HttpURLConnection conn, boolean hedgeable) throws InterruptedIOException {
+			if (aborted){
+				throw new InterruptedIOException("Hedged request no longer needed");
+			}
+			this.conn = conn;
+			if (sentAt < 0){
+				sentAt = System.currentTimeMillis();
+				this.hedgeable = hedgeable;
+				sent.countDown();
+			}
+		}
+		
+		private synchronized long getLatencyMs(){
+			return sentAt >= 0 ? System.currentTimeMillis() - sentAt : -1;
+		}
+		
+		/**
+		 * Waits until the request is sent, or the attempt is done.
+		 * 
+		 * @return the time the request was sent, or -1 if it should not be hedged
+		 */
+		private long awaitSent() throws InterruptedException {
+			sent.await();
+			synchronized(this){
+				return !done && hedgeable ? sentAt : -1;
+			}
+		}
+		
+		/**
+		 * Disconnects the request if the attempt is not done yet.
+		 */
+		private synchronized void abort(){
+			if (!done){
+				aborted = true;
+				if (conn != null){
+					conn.disconnect();
+				}
+			}
+		}
+	}
+	
+	private static IOException unwrap(ExecutionException e){
+		Throwable cause = e.getCause();
+		if (cause instanceof RuntimeException){
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error){
+			throw (Error) cause;
+		}
+		return cause instanceof IOException ? (IOException) cause : new IOException(cause);
+	}
+	
+	// -- Latencies ---------------------------------------------------------
+	
+	private synchronized void recordLatency(long latencyMs){
+		latencies[numLatencies % SAMPLE_SIZE] = latencyMs;
+		numLatencies++;
+	}
+	
+	/**
+	 * @return the latency after which requests are hedged, or -1 if not
+	 * 	enough latencies have been recorded
+	 */
+	synchronized long getThresholdMs(){
+		if (numLatencies < MIN_SAMPLES){
+			return -1;
+		}
+		long[] sorted = Arrays.copyOf(latencies, Math.min(numLatencies, SAMPLE_SIZE));
+		Arrays.sort(sorted);
+		return sorted[(int) Math.ceil(PERCENTILE * sorted.length) - 1];
+	}
+}
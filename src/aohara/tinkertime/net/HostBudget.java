@@ -0,0 +1,163 @@
+package aohara.tinkertime.net;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Request budget for a single host.
+ * 
+ * Requests are spaced out by a {@link TokenBucket}.  The rate limit the host
+ * reports in its X-RateLimit headers is recorded, and once it has been used
+ * up, or the host asks to Retry-After some time, no more requests are made
+ * to it until then.  The time the host takes to respond is also tracked.
+ */
+public class HostBudget {
+	
+	static final double LATENCY_SMOOTHING = 0.2;
+	
+	private final String host;
+	private final TokenBucket bucket;
+	private int limit = -1, remaining = -1;
+	private long resetTime = -1, minLatencyMs = -1;
+	private double latencyMs = -1;
+	private int requests = 0, throttled = 0;
+	
+	HostBudget(String host, double capacity, double requestsPerSecond){
+		this.host = host;
+		this.bucket = new TokenBucket(capacity, requestsPerSecond);
+	}
+	
+	// -- Scheduling -----------------------------------------------------------
+	
+	/**
+	 * Waits for the host's turn to be requested.
+	 * 
+	 * @param maxWaitMs the longest to wait for the host to be available again
+	 * 	after it was rate limited
+	 * @throws HttpStatusException without making a request, if the host will
+	 * 	not be available for longer than the given time
+	 */
+	void acquire(URL url, long maxWaitMs) throws IOException {
+		long pauseMs = bucket.getPauseRemaining();
+		if (pauseMs > maxWaitMs){
+			synchronized(this){
+				throttled++;
+			}
+			throw new HttpStatusException(url, HttpStatusException.TOO_MANY_REQUESTS, pauseMs);
+		}
+		bucket.acquire(1);
+		synchronized(this){
+			requests++;
+		}
+	}
+	
+	/**
+	 * Makes no requests to the host for the given time.
+	 */
+	synchronized void pause(long ms){
+		throttled++;
+		bucket.pauseUntil(System.currentTimeMillis() + ms);
+	}
+	
+	/**
+	 * Records the rate limit reported by the response headers, if any.
+	 */
+	synchronized void update(HttpURLConnection conn){
+		limit = conn.getHeaderFieldInt("X-RateLimit-Limit", limit);
+		remaining = conn.getHeaderFieldInt("X-RateLimit-Remaining", remaining);
+		long reset = conn.getHeaderFieldLong("X-RateLimit-Reset", -1);
+		if (reset >= 0){
+			resetTime = reset * 1000;
+		}
+		
+		if (remaining == 0 && resetTime > System.currentTimeMillis()){
+			bucket.pauseUntil(resetTime);
+		}
+	}
+	
+	/**
+	 * Records the time taken from sending a request to receiving its response headers.
+	 */
+	synchronized void recordLatency(long ms){
+		latencyMs = latencyMs < 0 ? ms : latencyMs + LATENCY_SMOOTHING * (ms - latencyMs);
+		minLatencyMs = minLatencyMs < 0 ? ms : Math.min(minLatencyMs, ms);
+	}
+	
+	// -- Metrics ---------------------------------------------------------------
+	
+	public String getHost(){
+		return host;
+	}
+	
+	/**
+	 * @return requests allowed per rate limit window, or -1 if unknown
+	 */
+	public synchronized int getRateLimit(){
+		return limit;
+	}
+	
+	/**
+	 * @return requests remaining in the rate limit window, or -1 if unknown
+	 */
+	public synchronized int getRateLimitRemaining(){
+		return remaining;
+	}
+	
+	/**
+	 * @return time in milliseconds that the rate limit window resets, or -1 if unknown
+	 */
+	public synchronized long getRateLimitReset(){
+		return resetTime;
+	}
+	
+	/**
+	 * @return true if the host meters requests with a rate limit, or has
+	 * 	asked for no requests to be made for a while, so that every extra
+	 * 	request costs it quota
+	 */
+	public synchronized boolean isRateLimited(){
+		return limit >= 0 || bucket.getPauseRemaining() > 0;
+	}
+	
+	/**
+	 * @return milliseconds until requests will be made to the host again
+	 */
+	public long getPauseRemaining(){
+		return bucket.getPauseRemaining();
+	}
+	
+	/**
+	 * @return moving average of the host's response latency, or -1 if unknown
+	 */
+	public synchronized long getLatencyMs(){
+		return Math.round(latencyMs);
+	}
+	
+	/**
+	 * @return lowest response latency seen from the host, or -1 if unknown
+	 */
+	public synchronized long getMinLatencyMs(){
+		return minLatencyMs;
+	}
+	
+	public synchronized int getRequestCount(){
+		return requests;
+	}
+	
+	/**
+	 * @return number of times the host rate limited a request, or a request
+	 * 	was refused because the host was still rate limited
+	 */
+	public synchronized int getThrottledCount(){
+		return throttled;
+	}
+	
+	@Override
+	public synchronized String toString(){
+		return String.format(
+			"%s: %d requests, %d throttled, %d/%d remaining",
+			host, requests, throttled, remaining, limit
+		);
+	}
+}
@@ -0,0 +1,354 @@
+package aohara.tinkertime.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared HTTP client for all page loads and downloads.
+ * 
+ * Requests to each host are scheduled by its {@link HostBudget}, so that
+ * bursts of requests are spread out, and hosts which have reported their
+ * rate limit as used up are not requested again until it resets.
+ * Responses which are rate limited, or ask to Retry-After some time, pause
+ * requests to their host for that time, or a short backoff if it was not
+ * given.  Each request is made once, and retrying it is left to the
+ * caller's {@link RetryPolicy}, whose next attempt waits out the pause.  If
+ * the wait would be too long, an {@link HttpStatusException} is thrown
+ * instead, without making the request.
+ * 
+ * Connections are kept alive, and pooled per host, by the JDK, as long as
+ * each response is read to its end before being closed.  Streams returned
+ * by {@link #getContent(URLConnection)} discard their unread content when
+ * closed, so that pages which are only partially read still return their
+ * connection to the pool.  Pages may be requested compressed, which
+ * shrinks Json and HTML responses several-fold.
+ * 
+ * Downloads may be read through a share of the {@link BandwidthLimiter},
+ * which caps the bandwidth of all downloads combined.
+ */
+public class HttpClient {
+	
+	public static final int
+		TIMEOUT_MS = 10 * 1000,
+		MAX_CONNECTIONS_PER_HOST = 8;
+	static final int
+		DEFAULT_MAX_DOWNLOADS = 4,
+		MAX_DRAIN_BYTES = 64 * 1024;
+	static final long
+		MAX_RETRY_WAIT_MS = 60 * 1000,
+		BASE_BACKOFF_MS = 1000;
+	static final double
+		BURST_REQUESTS = 8,
+		REQUESTS_PER_SECOND = 4;
+	
+	private static HttpClient instance;
+	
+	private final Map<String, HostBudget> budgets = new HashMap<>();
+	private final URLStreamHandler streamHandler = new ClientStreamHandler(null, null);
+	private final DownloadConcurrency downloadConcurrency = new DownloadConcurrency(this, DEFAULT_MAX_DOWNLOADS);
+	private final BandwidthLimiter bandwidthLimiter = new BandwidthLimiter();
+	private volatile int timeoutMs = TIMEOUT_MS;
+	
+	public static synchronized HttpClient getInstance(){
+		if (instance == null){
+			instance = new HttpClient();
+		}
+		return instance;
+	}
+	
+	/**
+	 * Sets the connect and read timeout of requests opened from now on.
+	 */
+	public void setTimeout(int timeoutMs){
+		this.timeoutMs = timeoutMs;
+	}
+	
+	// -- Requests ------------------------------------------------------------
+	
+	/**
+	 * Opens a connection to the given URL, and waits for its response.
+	 * 
+	 * @throws HttpStatusException if the response is an error
+	 */
+	public URLConnection open(URL url) throws IOException {
+		return open(url, false);
+	}
+	
+	/**
+	 * Opens a connection to the given URL, and waits for its response.
+	 * 
+	 * @param compressed true to accept a gzip or deflate encoded response,
+	 * 	which must then be read with {@link #getContent(URLConnection)}
+	 * @throws HttpStatusException if the response is an error
+	 */
+	public URLConnection open(URL url, boolean compressed) throws IOException {
+		return open(url, compressed, Collections.<String, String>emptyMap());
+	}
+	
+	/**
+	 * Opens a connection to the given URL with the given request headers,
+	 * such as the validators of a conditional request, and waits for its
+	 * response.
+	 * 
+	 * @throws HttpStatusException if the response is an error
+	 */
+	public URLConnection open(URL url, boolean compressed, Map<String, String> headers) throws IOException {
+		if (!isHttp(url)){
+			URLConnection conn = url.openConnection();
+			conn.setConnectTimeout(timeoutMs);
+			conn.setReadTimeout(timeoutMs);
+			return conn;
+		}
+		
+		HostBudget budget = getBudget(url.getHost());
+		budget.acquire(url, MAX_RETRY_WAIT_MS);
+		
+		long start = System.currentTimeMillis();
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setConnectTimeout(timeoutMs);
+		conn.setReadTimeout(timeoutMs);
+		if (compressed){
+			conn.setRequestProperty("Accept-Encoding", "gzip, deflate");
+		}
+		for (Map.Entry<String, String> header : headers.entrySet()){
+			conn.setRequestProperty(header.getKey(), header.getValue());
+		}
+		Hedger.requestSent(conn, !budget.isRateLimited());
+		try {
+			HttpStatusException.check(conn);
+			budget.recordLatency(System.currentTimeMillis() - start);
+			budget.update(conn);
+			return conn;
+		} catch (HttpStatusException e){
+			budget.recordLatency(System.currentTimeMillis() - start);
+			budget.update(conn);
+			discard(conn);
+			
+			long waitMs = getRetryWaitMs(e);
+			if (waitMs >= 0){
+				budget.pause(waitMs);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Returns the decoded content of the connection's response.
+	 * 
+	 * Closing the stream discards any unread content, so that the
+	 * connection can be reused for the next request to its host.
+	 */
+	public static InputStream getContent(URLConnection conn) throws IOException {
+		InputStream raw = new DrainingInputStream(conn);
+		try {
+			String encoding = conn.getContentEncoding();
+			if ("gzip".equalsIgnoreCase(encoding)){
+				return new GZIPInputStream(raw);
+			} else if ("deflate".equalsIgnoreCase(encoding)){
+				return new InflaterInputStream(raw);
+			}
+			return raw;
+		} catch (IOException e){
+			raw.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Returns a URL whose connections are opened through this client, for
+	 * code which opens the URL itself.
+	 */
+	public URL wrap(URL url) throws MalformedURLException {
+		return isHttp(url) ? new URL(null, url.toString(), streamHandler) : url;
+	}
+	
+	/**
+	 * Returns a URL whose connections are opened through this client, and
+	 * passed to the listener once open, so that they can be disconnected
+	 * from another thread.
+	 */
+	public URL wrap(URL url, ConnectionListener listener) throws MalformedURLException {
+		return wrap(url, listener, null);
+	}
+	
+	/**
+	 * Returns a URL whose connections are opened through this client, and
+	 * passed to the listener once open.  Their responses are read through
+	 * the given share of the bandwidth limiter.
+	 */
+	public URL wrap(URL url, ConnectionListener listener, BandwidthLimiter.Share share) throws MalformedURLException {
+		return isHttp(url) ? new URL(null, url.toString(), new ClientStreamHandler(listener, share)) : url;
+	}
+	
+	/**
+	 * @return milliseconds to make no requests to the host after the failed
+	 * 	request, or -1 if the host did not ask to wait
+	 */
+	private static long getRetryWaitMs(HttpStatusException e){
+		boolean throttled = e.status == HttpStatusException.TOO_MANY_REQUESTS
+			|| (e.status == HttpURLConnection.HTTP_UNAVAILABLE && e.retryAfterMs >= 0)
+			|| (e.status == HttpStatusException.FORBIDDEN && e.retryAfterMs >= 0);
+		if (!throttled){
+			return -1;
+		}
+		return e.retryAfterMs >= 0 ? e.retryAfterMs : BASE_BACKOFF_MS;
+	}
+	
+	/**
+	 * @return true if the failed request may be retried once its host is
+	 * 	available again, which is soon enough to wait for
+	 */
+	static boolean isRetryableThrottle(HttpStatusException e){
+		return getRetryWaitMs(e) >= 0 && e.retryAfterMs <= MAX_RETRY_WAIT_MS;
+	}
+	
+	/**
+	 * Reads and closes the error body, so that the connection can be reused.
+	 */
+	private static void discard(HttpURLConnection conn){
+		try(InputStream is = conn.getErrorStream()){
+			if (is != null){
+				byte[] buf = new byte[1024];
+				while (is.read(buf) != -1);
+			}
+		} catch (IOException e){
+			// No Action
+		}
+	}
+	
+	private static boolean isHttp(URL url){
+		return url.getProtocol().equals("http") || url.getProtocol().equals("https");
+	}
+	
+	// -- Budgets -------------------------------------------------------------
+	
+	public synchronized HostBudget getBudget(String host){
+		HostBudget budget = budgets.get(host);
+		if (budget == null){
+			budget = new HostBudget(host, BURST_REQUESTS, REQUESTS_PER_SECOND);
+			budgets.put(host, budget);
+		}
+		return budget;
+	}
+	
+	/**
+	 * @return the budgets of all hosts requested so far
+	 */
+	public synchronized Collection<HostBudget> getBudgets(){
+		return new ArrayList<>(budgets.values());
+	}
+	
+	/**
+	 * @return the adaptive limit on concurrent downloads through this client
+	 */
+	public DownloadConcurrency getDownloadConcurrency(){
+		return downloadConcurrency;
+	}
+	
+	public BandwidthLimiter getBandwidthLimiter(){
+		return bandwidthLimiter;
+	}
+	
+	// -- Helpers -------------------------------------------------------------
+	
+	/**
+	 * Reads the rest of the response when closed, so that the connection
+	 * is kept alive.  If too much of the response is left, the connection
+	 * is closed instead.
+	 */
+	private static class DrainingInputStream extends FilterInputStream {
+		
+		private final URLConnection conn;
+		private long read = 0;
+		
+		private DrainingInputStream(URLConnection conn) throws IOException {
+			super(conn.getInputStream());
+			this.conn = conn;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1){
+				read++;
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0){
+				read += n;
+			}
+			return n;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				long length = conn.getContentLengthLong();
+				boolean tooLong = length >= 0 && length - read > MAX_DRAIN_BYTES;
+				if ((tooLong || !drain()) && conn instanceof HttpURLConnection){
+					((HttpURLConnection) conn).disconnect();
+				}
+			} catch (IOException e){
+				// Connection will not be reused
+			} finally {
+				super.close();
+			}
+		}
+		
+		private boolean drain() throws IOException {
+			byte[] buf = new byte[4096];
+			for (long drained = 0; drained <= MAX_DRAIN_BYTES; ){
+				int n = in.read(buf);
+				if (n == -1){
+					return true;
+				}
+				drained += n;
+			}
+			return false;
+		}
+	}
+	
+	public static interface ConnectionListener {
+		void connectionOpened(URLConnection conn);
+	}
+	
+	private class ClientStreamHandler extends URLStreamHandler {
+		
+		private final ConnectionListener listener;
+		private final BandwidthLimiter.Share share;
+		
+		private ClientStreamHandler(ConnectionListener listener, BandwidthLimiter.Share share){
+			this.listener = listener;
+			this.share = share;
+		}
+		
+		@Override
+		protected URLConnection openConnection(URL u) throws IOException {
+			URLConnection conn = open(new URL(u.toString()));
+			if (share != null && conn instanceof HttpURLConnection){
+				conn = new ThrottledConnection((HttpURLConnection) conn, share);
+			}
+			if (listener != null){
+				listener.connectionOpened(conn);
+			}
+			return conn;
+		}
+	}
+}
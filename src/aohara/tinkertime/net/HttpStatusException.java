@@ -0,0 +1,91 @@
+package aohara.tinkertime.net;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * Thrown when a page request is answered with an HTTP error status.
+ * 
+ * Carries how long the server asked to wait before retrying, if it said,
+ * so that callers can back off from rate-limited hosts.
+ */
+@SuppressWarnings("serial")
+public class HttpStatusException extends IOException {
+	
+	public static final int
+		FORBIDDEN = HttpURLConnection.HTTP_FORBIDDEN,
+		TOO_MANY_REQUESTS = 429;
+	
+	public final URL url;
+	public final int status;
+	public final long retryAfterMs;
+	public final boolean quotaExhausted;
+	
+	public HttpStatusException(URL url, int status, long retryAfterMs){
+		this(url, status, retryAfterMs, false);
+	}
+	
+	/**
+	 * @param quotaExhausted true if the host reported its rate limit as used up
+	 */
+	public HttpStatusException(URL url, int status, long retryAfterMs, boolean quotaExhausted){
+		super(String.format("Server returned HTTP response code: %d for URL: %s", status, url));
+		this.url = url;
+		this.status = status;
+		this.retryAfterMs = retryAfterMs;
+		this.quotaExhausted = quotaExhausted;
+	}
+	
+	/**
+	 * Returns true if the host refused the request because too many have
+	 * been made.  Forbidden is also returned for private or blocked
+	 * resources, so it only counts if the host said its rate limit was used
+	 * up, or when to retry.
+	 */
+	public boolean isRateLimited(){
+		return status == TOO_MANY_REQUESTS || (status == FORBIDDEN && (quotaExhausted || retryAfterMs >= 0));
+	}
+	
+	/**
+	 * Throws an HttpStatusException if the connection's response is an error.
+	 */
+	public static void check(URLConnection conn) throws IOException {
+		if (!(conn instanceof HttpURLConnection)){
+			return;
+		}
+		
+		HttpURLConnection http = (HttpURLConnection) conn;
+		int status = http.getResponseCode();
+		if (status >= HttpURLConnection.HTTP_BAD_REQUEST){
+			throw new HttpStatusException(
+				http.getURL(), status, getRetryAfterMs(http),
+				"0".equals(http.getHeaderField("X-RateLimit-Remaining"))
+			);
+		}
+	}
+	
+	/**
+	 * Reads the standard Retry-After header, or Github's rate limit reset
+	 * time if the limit has been used up.
+	 * 
+	 * @return milliseconds to wait, or -1 if the server did not say
+	 */
+	private static long getRetryAfterMs(HttpURLConnection http){
+		try {
+			String retryAfter = http.getHeaderField("Retry-After");
+			if (retryAfter != null){
+				return Long.parseLong(retryAfter.trim()) * 1000;
+			}
+			
+			String reset = http.getHeaderField("X-RateLimit-Reset");
+			if ("0".equals(http.getHeaderField("X-RateLimit-Remaining")) && reset != null){
+				return Math.max(0, Long.parseLong(reset.trim()) * 1000 - System.currentTimeMillis());
+			}
+		} catch (NumberFormatException e){
+			// Retry-After may also be an HTTP date; ignore it
+		}
+		return -1;
+	}
+}
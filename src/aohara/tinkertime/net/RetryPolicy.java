@@ -0,0 +1,86 @@
+package aohara.tinkertime.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy for retrying requests which failed for transient reasons.
+ * 
+ * Only idempotent requests, such as page loads and downloads, may be retried.
+ * Each retry waits for a random time of up to an exponentially growing
+ * backoff, so that many failed requests are not all retried at once.
+ * This is the only layer which retries requests.  Requests which the host
+ * rate limited are retried too, as long as it asked to wait a short time,
+ * in which case the retry waits for the host in the {@link HttpClient}.
+ */
+public class RetryPolicy {
+	
+	public static final RetryPolicy
+		DEFAULT = new RetryPolicy(3, 500, 8000),
+		NONE = new RetryPolicy(1, 0, 0);
+	
+	private final int maxAttempts;
+	private final long baseDelayMs, maxDelayMs;
+	
+	public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs){
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMs = baseDelayMs;
+		this.maxDelayMs = maxDelayMs;
+	}
+	
+	/**
+	 * Calls the idempotent task, retrying it if it fails for a transient reason.
+	 * 
+	 * @return the result of the first successful attempt
+	 * @throws IOException the failure of the last attempt
+	 */
+	public <T> T call(Callable<T> task) throws IOException {
+		for (int attempt = 1; ; attempt++){
+			try {
+				return task.call();
+			} catch (IOException e){
+				if (attempt >= maxAttempts || !isRetryable(e)){
+					throw e;
+				}
+			} catch (RuntimeException e){
+				throw e;
+			} catch (Exception e){
+				throw new IOException(e);
+			}
+			
+			try {
+				Thread.sleep(getDelayMs(attempt));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to retry");
+			}
+		}
+	}
+	
+	/**
+	 * @return milliseconds to wait before the retry following the given attempt
+	 */
+	long getDelayMs(int attempt){
+		long backoff = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 30));
+		return (long) (ThreadLocalRandom.current().nextDouble() * backoff);
+	}
+	
+	/**
+	 * Returns true if the failure may not happen again.  Timeouts, dropped
+	 * connections, server errors, and short rate limits are transient;
+	 * client errors are not.
+	 */
+	public static boolean isRetryable(IOException e){
+		if (e instanceof HttpStatusException){
+			HttpStatusException statusException = (HttpStatusException) e;
+			int status = statusException.status;
+			return status == 408 || (status >= 500 && status != 501 && status != 505) || HttpClient.isRetryableThrottle(statusException);
+		}
+		return e instanceof SocketTimeoutException || e instanceof SocketException || e instanceof EOFException;
+	}
+}
@@ -0,0 +1,131 @@
+package aohara.tinkertime.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connection whose response is read through a {@link BandwidthLimiter.Share}.
+ *
+ * All other calls are passed to the connection it wraps, which has already
+ * been opened by the {@link HttpClient}.
+ */
+class ThrottledConnection extends HttpURLConnection {
+	
+	static final int MAX_READ_BYTES = 8 * 1024;
+	
+	private final HttpURLConnection conn;
+	private final BandwidthLimiter.Share share;
+	private InputStream throttled;
+	
+	ThrottledConnection(HttpURLConnection conn, BandwidthLimiter.Share share){
+		super(conn.getURL());
+		this.conn = conn;
+		this.share = share;
+		this.connected = true;
+	}
+	
+	@Override
+	public void connect() throws IOException {
+		conn.connect();
+	}
+	
+	@Override
+	public void disconnect() {
+		conn.disconnect();
+	}
+	
+	@Override
+	public boolean usingProxy() {
+		return conn.usingProxy();
+	}
+	
+	@Override
+	public synchronized InputStream getInputStream() throws IOException {
+		if (throttled == null){
+			throttled = new ThrottledInputStream(conn.getInputStream());
+		}
+		return throttled;
+	}
+	
+	@Override
+	public InputStream getErrorStream() {
+		return conn.getErrorStream();
+	}
+	
+	@Override
+	public int getResponseCode() throws IOException {
+		return conn.getResponseCode();
+	}
+	
+	@Override
+	public String getResponseMessage() throws IOException {
+		return conn.getResponseMessage();
+	}
+	
+	@Override
+	public String getHeaderField(String name) {
+		return conn.getHeaderField(name);
+	}
+	
+	@Override
+	public String getHeaderField(int n) {
+		return conn.getHeaderField(n);
+	}
+	
+	@Override
+	public String getHeaderFieldKey(int n) {
+		return conn.getHeaderFieldKey(n);
+	}
+	
+	@Override
+	public Map<String, List<String>> getHeaderFields() {
+		return conn.getHeaderFields();
+	}
+	
+	@Override
+	public int getContentLength() {
+		return conn.getContentLength();
+	}
+	
+	@Override
+	public long getContentLengthLong() {
+		return conn.getContentLengthLong();
+	}
+	
+	@Override
+	public String getContentType() {
+		return conn.getContentType();
+	}
+	
+	@Override
+	public String getContentEncoding() {
+		return conn.getContentEncoding();
+	}
+	
+	private class ThrottledInputStream extends FilterInputStream {
+		
+		private ThrottledInputStream(InputStream in){
+			super(in);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			share.acquire(1);
+			return super.read();
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			len = Math.min(len, MAX_READ_BYTES);
+			int n = super.read(b, off, len);
+			if (n > 0){
+				share.acquire(n);
+			}
+			return n;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package aohara.tinkertime.net;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Token Bucket for spacing out requests.
+ * 
+ * The bucket holds up to its capacity in tokens, and is refilled at a
+ * constant rate.  Each request takes a token, so bursts of up to the
+ * capacity are allowed, after which requests are made at the refill rate.
+ * The bucket can also be paused, in which case no tokens are handed out
+ * until the pause is over.  Its rate can be changed while in use.
+ */
+public class TokenBucket {
+	
+	private double capacity, refillPerMs;
+	private double tokens;
+	private long lastRefill, pausedUntil = 0;
+	
+	public TokenBucket(double capacity, double refillPerSecond){
+		this.capacity = capacity;
+		this.refillPerMs = refillPerSecond / 1000;
+		this.tokens = capacity;
+		this.lastRefill = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Takes the given number of tokens, waiting until they are available.
+	 */
+	public void acquire(double permits) throws InterruptedIOException {
+		for (long waitMs; (waitMs = tryAcquire(permits)) > 0; ){
+			try {
+				Thread.sleep(waitMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a token");
+			}
+		}
+	}
+	
+	/**
+	 * Takes the given number of tokens if they are available now.
+	 * 
+	 * @return 0 if the tokens were taken, or else the number of milliseconds
+	 * 	until they should be available
+	 */
+	public synchronized long tryAcquire(double permits){
+		long now = System.currentTimeMillis();
+		refill(now);
+		
+		if (now < pausedUntil){
+			return pausedUntil - now;
+		}
+		
+		// Requests larger than the capacity wait for a full bucket
+		permits = Math.min(permits, capacity);
+		if (tokens >= permits){
+			tokens -= permits;
+			return 0;
+		}
+		return Math.max(1, (long) Math.ceil((permits - tokens) / refillPerMs));
+	}
+	
+	/**
+	 * Changes the capacity and refill rate.  Tokens already in the bucket are
+	 * kept, up to the new capacity.
+	 */
+	public synchronized void setRate(double capacity, double refillPerSecond){
+		refill(System.currentTimeMillis());
+		this.capacity = capacity;
+		this.refillPerMs = refillPerSecond / 1000;
+		this.tokens = Math.min(tokens, capacity);
+	}
+	
+	/**
+	 * Hands out no tokens until the given time.
+	 */
+	public synchronized void pauseUntil(long timeMs){
+		pausedUntil = Math.max(pausedUntil, timeMs);
+	}
+	
+	/**
+	 * @return milliseconds until the bucket is no longer paused, or 0 if it is not
+	 */
+	public synchronized long getPauseRemaining(){
+		return Math.max(0, pausedUntil - System.currentTimeMillis());
+	}
+	
+	public synchronized double getAvailableTokens(){
+		refill(System.currentTimeMillis());
+		return tokens;
+	}
+	
+	private void refill(long now){
+		tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerMs);
+		lastRefill = now;
+	}
+}
@@ -0,0 +1,475 @@
+package aohara.tinkertime.resources;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.io.FileUtils;
+
+import aohara.tinkertime.TinkerConfig;
+
+/**
+ * Write-Ahead Journal for all changes made to the GameData folder.
+ *
+ * Mods are never extracted directly into GameData.  They are first extracted
+ * into a staging folder, while GameData remains untouched and usable.  The
+ * change is then committed by writing the list of moves it will make to a
+ * journal file, after which the moves are made.  Moving a staged folder whose
+ * destination does not exist is a single rename.  Removed files are moved to
+ * a trash folder, which is deleted once the change is complete.
+ *
+ * Every file or folder which a move replaces is first moved to a backup
+ * folder, and each move is recorded in an undo file before it is made, so
+ * that a change which fails part way, such as a merge into an existing
+ * folder, is rolled back, restoring the replaced files.
+ *
+ * If the application is killed during a change, {@link #recover()} replays
+ * every committed change, rolling it back if it cannot be completed, and
+ * discards every uncommitted one, so GameData is never left half-written.
+ *
+ * Changes to different top-level GameData folders are made concurrently.
+ * Only changes to the same folder wait for each other, and recovery waits
+ * for all changes.
+ */
+public class GameDataJournal {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String
+		LOG_EXTENSION = ".log",
+		UNDO_EXTENSION = ".undo",
+		BACKUP_EXTENSION = ".backup",
+		TRASH_EXTENSION = ".trash",
+		MOVE = "MOVE",
+		DELETE = "DELETE",
+		COMMIT = "COMMIT",
+		MOVED = "MOVED",
+		BACKED_UP = "BACKED_UP",
+		SEPARATOR = "\t";
+
+	private final TinkerConfig config;
+	private final ReadWriteLock recoveryLock = new ReentrantReadWriteLock();
+	private final Set<String> busyFolders = new HashSet<>();
+	private boolean recovered = false;
+
+	public GameDataJournal(TinkerConfig config){
+		this.config = config;
+	}
+
+	// -- Transactions -------------------------------------------------------
+
+	/**
+	 * Moves the contents of the staging folder into GameData, replacing any
+	 * existing files, and then deletes the staging folder.
+	 */
+	public void install(Path stagingFolder) throws IOException {
+		List<String[]> ops = new LinkedList<>();
+		try(DirectoryStream<Path> children = Files.newDirectoryStream(stagingFolder)){
+			for (Path child : children){
+				ops.add(new String[]{ MOVE, child.toString(), config.getGameDataPath().resolve(child.getFileName().toString()).toString() });
+			}
+		}
+		ops.add(new String[]{ DELETE, stagingFolder.toString() });
+		commit(ops);
+	}
+
+	/**
+	 * Removes the given files and folders from GameData.
+	 *
+	 * Folders are removed along with their contents.
+	 */
+	public void remove(Collection<Path> paths) throws IOException {
+		Path gameDataPath = config.getGameDataPath();
+		Path trashFolder = config.getJournalPath().resolve(UUID.randomUUID() + TRASH_EXTENSION);
+
+		List<String[]> ops = new LinkedList<>();
+		for (Path path : withoutDescendants(paths)){
+			Path trashPath = trashFolder.resolve(gameDataPath.relativize(path).toString());
+			ops.add(new String[]{ MOVE, path.toString(), trashPath.toString() });
+		}
+		ops.add(new String[]{ DELETE, trashFolder.toString() });
+		commit(ops);
+	}
+
+	/**
+	 * Writes the operations to a new journal file, followed by a commit
+	 * marker, and then performs them.  If they fail, the change is rolled
+	 * back.  The journal files are deleted once the change is complete.
+	 *
+	 * Waits until no other change is being made to the GameData folders
+	 * the operations affect.
+	 */
+	private void commit(List<String[]> ops) throws IOException {
+		Set<String> folders = getAffectedFolders(ops);
+		recoveryLock.readLock().lock();
+		try {
+			lockFolders(folders);
+			try {
+				write(ops);
+			} finally {
+				unlockFolders(folders);
+			}
+		} finally {
+			recoveryLock.readLock().unlock();
+		}
+	}
+
+	private void write(List<String[]> ops) throws IOException {
+		Path logPath = config.getJournalPath().resolve(UUID.randomUUID() + LOG_EXTENSION);
+
+		StringBuilder builder = new StringBuilder();
+		for (String[] op : ops){
+			builder.append(join(op)).append('\n');
+		}
+		builder.append(COMMIT).append('\n');
+
+		try(FileChannel channel = FileChannel.open(logPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)){
+			ByteBuffer buf = ByteBuffer.wrap(builder.toString().getBytes(UTF8));
+			while (buf.hasRemaining()){
+				channel.write(buf);
+			}
+			channel.force(true);
+		}
+
+		complete(logPath, ops);
+	}
+
+	/**
+	 * Performs the committed operations, or rolls them back, along with any
+	 * made before the change was interrupted, if they fail.  Either way, the
+	 * journal files of the change are then deleted.
+	 */
+	private void complete(Path logPath, List<String[]> ops) throws IOException {
+		UndoLog undo = new UndoLog(logPath);
+		try {
+			try {
+				replay(ops, undo);
+			} finally {
+				undo.close();
+			}
+		} catch (IOException e){
+			rollBack(undo.read());
+			discard(ops);
+			Files.delete(logPath);
+			undo.delete();
+			throw e;
+		}
+		Files.delete(logPath);
+		undo.delete();
+	}
+
+	// -- Recovery ------------------------------------------------------------
+
+	/**
+	 * Completes all changes which were committed, but not finished, and
+	 * discards the staging folders of all changes which were not committed.
+	 * Committed changes which cannot be completed are rolled back, and their
+	 * staging folders discarded.  Staging folders which no journal file
+	 * refers to are left untouched.
+	 *
+	 * Recovery is only done once per journal, since later changes may be in
+	 * progress.
+	 */
+	public void recover() throws IOException {
+		recoveryLock.writeLock().lock();
+		try {
+			if (!recovered){
+				recovered = true;
+				recoverAll();
+			}
+		} finally {
+			recoveryLock.writeLock().unlock();
+		}
+	}
+
+	private void recoverAll() throws IOException {
+		// Complete committed changes
+		Path journalFolder = config.getJournalPath();
+		try(DirectoryStream<Path> logs = Files.newDirectoryStream(journalFolder, "*" + LOG_EXTENSION)){
+			for (Path logPath : logs){
+				List<String[]> ops = new LinkedList<>();
+				boolean committed = false;
+				for (String line : Files.readAllLines(logPath, UTF8)){
+					if (line.equals(COMMIT)){
+						committed = true;
+					} else if (!line.isEmpty()){
+						ops.add(line.split(SEPARATOR));
+					}
+				}
+
+				if (committed){
+					try {
+						complete(logPath, ops);
+					} catch (IOException e){
+						e.printStackTrace();  // Rolled back
+					}
+				} else {
+					discard(ops);
+					Files.delete(logPath);
+				}
+			}
+		}
+
+		// Discard leftovers of finished changes
+		for (String extension : new String[]{ UNDO_EXTENSION, BACKUP_EXTENSION, TRASH_EXTENSION }){
+			try(DirectoryStream<Path> leftovers = Files.newDirectoryStream(journalFolder, "*" + extension)){
+				for (Path leftover : leftovers){
+					FileUtils.deleteQuietly(leftover.toFile());
+				}
+			}
+		}
+	}
+
+	// -- Locking -------------------------------------------------------------
+
+	/**
+	 * Returns the names of the top-level GameData folders which the
+	 * operations move files into or out of, in lower case, like the keys of
+	 * the enabler executor.
+	 */
+	private Set<String> getAffectedFolders(List<String[]> ops){
+		Path gameDataPath = config.getGameDataPath();
+		Set<String> folders = new HashSet<>();
+		for (String[] op : ops){
+			if (op[0].equals(MOVE)){
+				for (int i = 1; i <= 2; i++){
+					Path path = Paths.get(op[i]);
+					if (path.startsWith(gameDataPath) && !path.equals(gameDataPath)){
+						folders.add(gameDataPath.relativize(path).getName(0).toString().toLowerCase());
+					}
+				}
+			}
+		}
+		return folders;
+	}
+
+	/**
+	 * Waits until none of the folders are being changed, and then marks all
+	 * of them as being changed at once, so that changes never deadlock.
+	 */
+	private void lockFolders(Set<String> folders) throws InterruptedIOException {
+		synchronized(busyFolders){
+			try {
+				while (!Collections.disjoint(busyFolders, folders)){
+					busyFolders.wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to change GameData");
+			}
+			busyFolders.addAll(folders);
+		}
+	}
+
+	private void unlockFolders(Set<String> folders){
+		synchronized(busyFolders){
+			busyFolders.removeAll(folders);
+			busyFolders.notifyAll();
+		}
+	}
+
+	// -- Helpers -------------------------------------------------------------
+
+	/**
+	 * Performs the operations.  Operations which have already been
+	 * performed are skipped, so a partially completed change can be replayed.
+	 */
+	private static void replay(List<String[]> ops, UndoLog undo) throws IOException {
+		for (String[] op : ops){
+			if (op[0].equals(MOVE)){
+				move(Paths.get(op[1]), Paths.get(op[2]), undo);
+			} else if (op[0].equals(DELETE)){
+				FileUtils.deleteQuietly(new File(op[1]));
+			} else {
+				throw new IOException("Unknown journal operation: " + op[0]);
+			}
+		}
+	}
+
+	/**
+	 * Moves the source to the destination, with a single rename if possible.
+	 *
+	 * If both are folders, the contents of the source are merged into the
+	 * destination instead.  Otherwise, an existing destination is backed up.
+	 */
+	private static void move(Path src, Path dest, UndoLog undo) throws IOException {
+		if (!Files.exists(src)){
+			return;  // Already moved
+		}
+
+		if (Files.isDirectory(src) && Files.isDirectory(dest)){
+			try(DirectoryStream<Path> children = Files.newDirectoryStream(src)){
+				for (Path child : children){
+					move(child, dest.resolve(child.getFileName().toString()), undo);
+				}
+			}
+			Files.delete(src);
+			return;
+		}
+
+		if (Files.exists(dest)){
+			Path backup = undo.newBackupPath();
+			undo.record(BACKED_UP, dest, backup);
+			rename(dest, backup);
+		}
+		undo.record(MOVED, src, dest);
+		rename(src, dest);
+	}
+
+	private static void rename(Path src, Path dest) throws IOException {
+		Files.createDirectories(dest.getParent());
+		try {
+			Files.move(src, dest, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e){
+			Files.move(src, dest);
+		}
+	}
+
+	/**
+	 * Undoes the recorded moves, newest first.  Moves which were recorded,
+	 * but not made, are skipped.
+	 */
+	private static void rollBack(List<String[]> moves) throws IOException {
+		Collections.reverse(moves);
+		for (String[] move : moves){
+			Path src = Paths.get(move[1]), dest = Paths.get(move[2]);
+			if (move[0].equals(MOVED) && Files.exists(dest) && !Files.exists(src)){
+				rename(dest, src);
+			} else if (move[0].equals(BACKED_UP) && Files.exists(dest)){
+				FileUtils.deleteQuietly(src.toFile());
+				rename(dest, src);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the staging and trash folders of a change which was not made.
+	 */
+	private void discard(List<String[]> ops){
+		Path stagingPath = config.getStagingPath();
+		for (String[] op : ops){
+			if (op[0].equals(DELETE)){
+				FileUtils.deleteQuietly(new File(op[1]));
+			} else if (op[0].equals(MOVE) && op.length > 1){
+				Path src = Paths.get(op[1]);
+				if (src.startsWith(stagingPath) && !src.equals(stagingPath)){
+					FileUtils.deleteQuietly(stagingPath.resolve(stagingPath.relativize(src).getName(0)).toFile());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the paths, excluding those within another of the given paths.
+	 */
+	private static Collection<Path> withoutDescendants(Collection<Path> paths){
+		Collection<Path> result = new LinkedList<>();
+		for (Path path : new TreeSet<>(paths)){
+			boolean isDescendant = false;
+			for (Path parent = path.getParent(); parent != null && !isDescendant; parent = parent.getParent()){
+				isDescendant = paths.contains(parent);
+			}
+			if (!isDescendant){
+				result.add(path);
+			}
+		}
+		return result;
+	}
+
+	private static String join(String... values){
+		StringBuilder builder = new StringBuilder();
+		for (String value : values){
+			if (builder.length() > 0){
+				builder.append(SEPARATOR);
+			}
+			builder.append(value);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Record of the moves made by a change, and the backups of the files
+	 * they replaced.  Each move is recorded before it is made, and the
+	 * record is forced to disk like the journal file, so that it survives
+	 * the application being killed, or the power being lost.  Replaying a
+	 * change appends to its record.
+	 */
+	private static class UndoLog implements Closeable {
+
+		private final Path path, backupFolder;
+		private FileChannel channel;
+		private int numBackups = 0;
+
+		private UndoLog(Path logPath){
+			String name = logPath.getFileName().toString();
+			name = name.substring(0, name.length() - LOG_EXTENSION.length());
+			this.path = logPath.resolveSibling(name + UNDO_EXTENSION);
+			this.backupFolder = logPath.resolveSibling(name + BACKUP_EXTENSION);
+		}
+
+		private Path newBackupPath(){
+			Path backup;
+			do {
+				backup = backupFolder.resolve(Integer.toString(numBackups++));
+			} while (Files.exists(backup));
+			return backup;
+		}
+
+		private void record(String type, Path src, Path dest) throws IOException {
+			if (channel == null){
+				channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+			}
+			ByteBuffer buf = ByteBuffer.wrap((join(type, src.toString(), dest.toString()) + '\n').getBytes(UTF8));
+			while (buf.hasRemaining()){
+				channel.write(buf);
+			}
+			channel.force(false);
+		}
+
+		private List<String[]> read() throws IOException {
+			List<String[]> moves = new LinkedList<>();
+			if (Files.exists(path)){
+				for (String line : Files.readAllLines(path, UTF8)){
+					String[] move = line.split(SEPARATOR);
+					if (move.length == 3){
+						moves.add(move);
+					}
+				}
+			}
+			return moves;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (channel != null){
+				channel.close();
+				channel = null;
+			}
+		}
+
+		private void delete() throws IOException {
+			Files.deleteIfExists(path);
+			FileUtils.deleteDirectory(backupFolder.toFile());
+		}
+	}
+}
@@ -5,17 +5,26 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.zip.ZipFile;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import aohara.common.Listenable;
+import aohara.common.Version;
 import aohara.common.selectorPanel.SelectorPanelController;
 import aohara.tinkertime.ModManager;
 import aohara.tinkertime.ModManager.ModNotDownloadedException;
@@ -26,6 +35,7 @@ import aohara.tinkertime.views.FileChoosers;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 
 /**
@@ -39,32 +49,67 @@ import com.google.gson.reflect.TypeToken;
 public class ModLoader extends Listenable<SelectorPanelController<Mod>> {
 	
 	private static final Type MODS_TYPE = new TypeToken<Set<Mod>>() {}.getType();
+	private static final String PRE_DOWNLOADED_MOD = "TinkerTime-update.json";
+	private static final Executor CURRENT_THREAD = new Executor(){
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
 	
 	private final Gson gson;
 	private final TinkerConfig config;
+	private final GameDataJournal journal;
+	private UpdateCheckCache updateChecks;
 	private final Map<Mod, ModStructure> modCache = new LinkedHashMap<>();
+	private final Map<Path, ModStructure> indexedStructures = new HashMap<>();
+	private boolean viewUpdatePending = false;
 	
 	// -- Initializers ----------------------------------------
 	
 	private ModLoader(TinkerConfig config, Gson gson){
 		this.config = config;
 		this.gson = gson;
+		this.journal = new GameDataJournal(config);
 	}
 	
 	public ModLoader(TinkerConfig config){
 		this(config, new GsonBuilder().setPrettyPrinting().create());
 	}
 	
-	public synchronized void init(ModManager mm) {
-		modCache.clear();
-		updateViews();
-		importMods(config.getModsListPath(), mm);
+	public void init(ModManager mm) {
+		init(mm, CURRENT_THREAD);
+	}
+	
+	/**
+	 * Reloads the mods, loading each of them on the given executor.
+	 * 
+	 * Each mod is added to the views as soon as it has been loaded, so this
+	 * can be called from a background thread while the views are displayed.
+	 * Returns once all mods have been loaded.
+	 * 
+	 * @param mm ModManager reference
+	 * @param executor executor to load the individual mods on
+	 */
+	public void init(ModManager mm, Executor executor) {
+		synchronized(this){
+			// Finish or discard any GameData changes interrupted by a crash
+			try {
+				journal.recover();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			
+			modCache.clear();
+			updateViews();
+		}
+		importMods(config.getModsListPath(), mm, executor);
 	}
 	
 	//-- Public Methods ----------------------------------------
 	
 	public synchronized Set<Mod> getMods(){
-		return modCache.keySet();
+		return new LinkedHashSet<>(modCache.keySet());
 	}
 	
 	/**
@@ -99,10 +144,31 @@ public class ModLoader extends Listenable<SelectorPanelController<Mod>> {
 		saveMods(modCache.keySet(), config.getModsListPath());
 	}
 	
-	private void updateViews(){
-		for (SelectorPanelController<Mod> l : getListeners()){
-			l.setData(new LinkedHashSet<>(modCache.keySet()));
+	/**
+	 * Schedules the mod views to be refreshed on the Event Dispatch Thread.
+	 * 
+	 * Changes made before the refresh runs are shown by the same refresh, so
+	 * mods loaded in parallel do not each redraw the views.
+	 */
+	private synchronized void updateViews(){
+		if (viewUpdatePending){
+			return;
 		}
+		viewUpdatePending = true;
+		
+		SwingUtilities.invokeLater(new Runnable(){
+			@Override
+			public void run() {
+				Set<Mod> mods;
+				synchronized(ModLoader.this){
+					viewUpdatePending = false;
+					mods = new LinkedHashSet<>(modCache.keySet());
+				}
+				for (SelectorPanelController<Mod> l : getListeners()){
+					l.setData(new LinkedHashSet<>(mods));
+				}
+			}
+		});
 	}
 	
 	public synchronized void exportEnabledMods(Path path){
@@ -126,11 +192,62 @@ public class ModLoader extends Listenable<SelectorPanelController<Mod>> {
 	 * @param mm ModManager reference
 	 * @throws IOException 
 	 */
-	public synchronized void importMods(Path path, ModManager mm) {		
-		for (Mod mod : loadMods(path, mm)){
-			cacheMod(mod);
+	public void importMods(Path path, ModManager mm) {
+		importMods(path, mm, CURRENT_THREAD);
+	}
+	
+	/**
+	 * Loads the mods from the given file and adds them.
+	 * 
+	 * Each mod has its local zip checked, and its structure indexed on the
+	 * executor, and is added to the views once done.  Mods whose local zip
+	 * is missing are only prompted for once all other mods have been added.
+	 * 
+	 * @param path file to load mods from
+	 * @param mm ModManager reference
+	 * @param executor executor to load the individual mods on
+	 */
+	public void importMods(Path path, ModManager mm, Executor executor) {
+		Set<Mod> mods = loadMods(path);
+		final List<Mod> missingFiles = new LinkedList<>();
+		final CountDownLatch latch = new CountDownLatch(mods.size());
+		
+		for (final Mod mod : mods){
+			executor.execute(new Runnable(){
+				@Override
+				public void run() {
+					try {
+						// If mod is updateable, or if the local zip file is available, add mod
+						if (mod.isUpdateable() || isDownloaded(mod)){
+							addLoadedMod(mod);
+						} else {
+							synchronized(missingFiles){
+								missingFiles.add(mod);
+							}
+						}
+					} finally {
+						latch.countDown();
+					}
+				}
+			});
+		}
+		
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		
+		for (Mod mod : missingFiles){
+			try {
+				if (trySatisfyLocalFiles(mod, mm)){
+					addLoadedMod(mod);
+				}
+			} catch (FileNotFoundException e) {
+				// No Action
+			}
 		}
-		updateViews();
 	}
 	
 	public synchronized Set<Path> getModFilePaths(Mod mod) throws ModNotDownloadedException {
@@ -156,13 +273,108 @@ public class ModLoader extends Listenable<SelectorPanelController<Mod>> {
 	}
 	
 	public Path getZipPath(Mod mod){
-		if (mod.newestFileName != null){
-			String safePathFileName = mod.newestFileName.replaceAll(":", "").replaceAll("/", "");
-			return config.getModsZipPath().resolve(safePathFileName);
+		String fileName = getSafeFileName(mod);
+		return fileName != null ? config.getModsZipPath().resolve(fileName) : null;
+	}
+	
+	/**
+	 * Returns the path the mod's zip is downloaded to before its update is
+	 * applied.  Each mod has its own folder of pre-downloads.
+	 */
+	public Path getPreDownloadPath(Mod mod){
+		String fileName = getSafeFileName(mod);
+		return fileName != null ? getPreDownloadFolder(mod).resolve(fileName) : null;
+	}
+	
+	public Path getPreDownloadFolder(Mod mod){
+		return config.getPreDownloadsPath().resolve(mod.id);
+	}
+	
+	/**
+	 * Records the crawled update whose zip has been pre-downloaded, so that
+	 * it can be applied without crawling the mod again.
+	 */
+	public void updatePreDownloaded(Mod update) throws IOException {
+		try(FileWriter writer = new FileWriter(getPreDownloadFolder(update).resolve(PRE_DOWNLOADED_MOD).toFile())){
+			gson.toJson(update, writer);
+		}
+	}
+	
+	/**
+	 * Returns the update pre-downloaded for the mod, if it is the update
+	 * found by the mod's last check, and its zip is still there.
+	 * 
+	 * @return the pre-downloaded update, or null if there is none
+	 */
+	public Mod getPreDownloadedUpdate(Mod mod){
+		UpdateCheckCache.Result lastCheck = getUpdateChecks().get(mod);
+		if (lastCheck == null || !lastCheck.updateAvailable){
+			return null;
+		}
+		
+		Mod update = readPreDownloaded(mod);
+		if (update != null && lastCheck.found(update) && update.newestFileName != null && Files.exists(getPreDownloadPath(update))){
+			return update;
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns true if the zip pre-downloaded for the update is of that
+	 * update, by the version and update date recorded beside it.  Different
+	 * versions of a mod are often published under the same file name, so
+	 * the file name alone does not identify the update.
+	 */
+	public boolean isPreDownloaded(Mod update){
+		Path zipPath = getPreDownloadPath(update);
+		Mod recorded = readPreDownloaded(update);
+		return (
+			zipPath != null && Files.exists(zipPath) && recorded != null
+			&& zipPath.equals(getPreDownloadPath(recorded)) && isSameRelease(recorded, update)
+		);
+	}
+	
+	/**
+	 * Deletes every zip pre-downloaded for the mod, along with its record.
+	 */
+	public void discardPreDownloads(Mod mod) throws IOException {
+		Path folder = getPreDownloadFolder(mod);
+		Files.createDirectories(folder);
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(folder)){
+			for (Path file : files){
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+	
+	private Mod readPreDownloaded(Mod mod){
+		try(FileReader reader = new FileReader(getPreDownloadFolder(mod).resolve(PRE_DOWNLOADED_MOD).toFile())){
+			return gson.fromJson(reader, Mod.class);
+		} catch (FileNotFoundException e){
+			// No Action
+		} catch (IOException | JsonParseException e) {
+			e.printStackTrace();
 		}
 		return null;
 	}
 	
+	/**
+	 * Compares the versions and update dates of the mods.  Dates are only
+	 * compared to the second, since they are only persisted to the second.
+	 */
+	private static boolean isSameRelease(Mod a, Mod b){
+		Version versionA = a.getVersion(), versionB = b.getVersion();
+		boolean sameVersion = versionA == null ? versionB == null
+			: versionB != null && versionA.getNormalVersion().equals(versionB.getNormalVersion());
+		boolean sameDate = a.updatedOn == null ? b.updatedOn == null
+			: b.updatedOn != null && a.updatedOn.getTime() / 1000 == b.updatedOn.getTime() / 1000;
+		return sameVersion && sameDate;
+	}
+	
+	private static String getSafeFileName(Mod mod){
+		return mod.newestFileName != null ? mod.newestFileName.replaceAll(":", "").replaceAll("/", "") : null;
+	}
+	
 	public ZipFile getZipFile(Mod mod) throws ModNotDownloadedException {
 		try {
 			return new ZipFile(getZipPath(mod).toFile());
@@ -180,30 +392,46 @@ public class ModLoader extends Listenable<SelectorPanelController<Mod>> {
 		return true;
 	}
 	
+	public GameDataJournal getJournal(){
+		return journal;
+	}
+	
+	public synchronized UpdateCheckCache getUpdateChecks(){
+		if (updateChecks == null){
+			updateChecks = new UpdateCheckCache(config.getUpdateChecksPath(), gson);
+		}
+		return updateChecks;
+	}
+	
 	public synchronized ModStructure getStructure(Mod mod){
 		return modCache.get(mod);
 	}
 	
+	/**
+	 * Registers a structure which was indexed while its zip was being
+	 * downloaded, so that the zip does not need to be inspected again once
+	 * its mod is updated.
+	 */
+	public synchronized void structureIndexed(ModStructure structure){
+		indexedStructures.put(structure.getZipPath(), structure);
+	}
+	
 	// -- Private Methods ----------------------------------------
 	
 	/**
 	 * Loads the mods from the given file and returns them.
 	 * 
 	 * @param path file to get mods from
-	 * @param mm ModManager reference
 	 * @return set of mods loaded from the file
 	 */
-	private Set<Mod> loadMods(Path path, ModManager mm){
-		Set<Mod> mods = new HashSet<>();
+	private Set<Mod> loadMods(Path path){
+		Set<Mod> mods = new LinkedHashSet<>();
 		
 		try(FileReader reader = new FileReader(path.toFile())){
 			// Try to load mods from file
 			Set<Mod> newMods = gson.fromJson(reader, MODS_TYPE);
-			for (Mod newMod : newMods){
-				// If mod is updateable, or if the local zip file is available, add mod
-				if (newMod.isUpdateable() || isDownloaded(newMod) || trySatisfyLocalFiles(newMod, mm)){
-					mods.add(newMod);
-				}
+			if (newMods != null){
+				mods.addAll(newMods);
 			}
 		} catch (FileNotFoundException e){
 			// No Action
@@ -239,6 +467,36 @@ public class ModLoader extends Listenable<SelectorPanelController<Mod>> {
 	}
 	
 	private final void cacheMod(Mod mod) {
-		modCache.put(mod, new ModStructure(getZipPath(mod)));
+		modCache.put(mod, createStructure(mod));
+	}
+	
+	private synchronized ModStructure createStructure(Mod mod){
+		Path zipPath = getZipPath(mod);
+		ModStructure structure = zipPath != null ? indexedStructures.remove(zipPath) : null;
+		return structure != null ? structure : new ModStructure(zipPath);
+	}
+	
+	/**
+	 * Indexes the structure of a loaded mod before adding it, so that the
+	 * views do not need to inspect its zip while rendering.  If its last
+	 * update check found an update, it is marked before it is displayed.
+	 */
+	private void addLoadedMod(Mod mod){
+		UpdateCheckCache.Result lastCheck = getUpdateChecks().get(mod);
+		if (lastCheck != null && lastCheck.updateAvailable){
+			mod.updateAvailable = true;
+		}
+		
+		ModStructure structure = createStructure(mod);
+		try {
+			structure.getPaths();
+		} catch (IOException e) {
+			// Not downloaded yet
+		}
+		
+		synchronized(this){
+			modCache.put(mod, structure);
+			updateViews();
+		}
 	}
 }
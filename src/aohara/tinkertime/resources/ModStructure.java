@@ -6,9 +6,11 @@ import java.io.InputStream;
 import java.io.StringWriter;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
@@ -36,12 +38,31 @@ public class ModStructure {
 		this.zipPath = zipPath;
 	}
 	
+	/**
+	 * Creates a structure from entries which have already been read, such as
+	 * while the zip was being downloaded.
+	 * 
+	 * @param zipPath path of the zip the entries belong to
+	 * @param entries all entries of the zip, in archive order
+	 * @param readmeText text of the first readme entry, or null
+	 */
+	ModStructure(Path zipPath, List<ZipEntry> entries, String readmeText){
+		this(zipPath);
+		this.readmeText = readmeText;
+		indexEntries(entries);
+		loaded = true;
+	}
+	
 	// Factory Methods
 	
 	private boolean isZip(){
 		return zipPath.toString().endsWith(".zip");
 	}
 	
+	public Path getZipPath(){
+		return zipPath;
+	}
+	
 	private void inspectArchive() throws IOException {
 		if (zipPath == null){
 			throw new FileNotFoundException();
@@ -53,29 +74,15 @@ public class ModStructure {
 			zipEntries.put(zipPath.getFileName(), null);
 		} else {
 			try(ZipFile zipFile = new ZipFile(zipPath.toFile())){
-				Path gameDataPath = null;
+				List<ZipEntry> entries = new ArrayList<>();
 				
-				//Make first pass of entries to get key information 
-				Enumeration<? extends ZipEntry> entries = zipFile.entries();
-				for (ZipEntry entry; entries.hasMoreElements(); ){
-					entry = entries.nextElement();
-					
-					// Find Gamedata path
-					if (gameDataPath == null && entry.getName().toLowerCase().contains("gamedata")){
-						
-						// Once a candidate has been found, find the exact path to the folder
-						Path tempPath = Paths.get(entry.getName());
-						while(tempPath != null && gameDataPath == null){
-							if (tempPath.getFileName().toString().toLowerCase().equals("gamedata")){
-								gameDataPath = tempPath;
-							} else {
-								tempPath = tempPath.getParent();
-							}
-						}
-					}
+				Enumeration<? extends ZipEntry> zipFileEntries = zipFile.entries();
+				for (ZipEntry entry; zipFileEntries.hasMoreElements(); ){
+					entry = zipFileEntries.nextElement();
+					entries.add(entry);
 					
 					// Find Readme text
-					if (readmeText == null && !entry.isDirectory() && entry.getName().toLowerCase().contains("readme")){
+					if (readmeText == null && isReadme(entry)){
 						try(StringWriter writer = new StringWriter(); InputStream is = zipFile.getInputStream(entry)){
 							IOUtils.copy(is, writer);
 							readmeText = writer.toString();
@@ -83,34 +90,58 @@ public class ModStructure {
 					}
 				}
 				
-				// Make second pass of entries to get all Mod Files
-				entries = zipFile.entries();
-				if (gameDataPath == null){
-					// If no gameDataPath, get all files with a path length of at least 2.
-					// This is because, we only get files which are within folders in the root of the zip
-					for (ZipEntry entry; entries.hasMoreElements(); ){
-						entry = entries.nextElement();
-						Path entryPath = Paths.get(entry.getName());
-						if (entryPath.getNameCount() >= 2){
-							zipEntries.put(entryPath, entry);
-						}
-					}
-				} else {
-					// Get all files within the GameData directory
-					for (ZipEntry entry; entries.hasMoreElements(); ){
-						entry = entries.nextElement();
-						Path entryPath = Paths.get(entry.getName());
-						if (
-							entryPath.startsWith(gameDataPath) && !entryPath.equals(gameDataPath) &&
-							!(entry.getName().contains("ModuleManager") && entry.getName().endsWith(".dll"))
-						){
-							zipEntries.put(gameDataPath.relativize(entryPath), entry);
-						}
+				indexEntries(entries);
+			}
+		}
+	}
+	
+	static boolean isReadme(ZipEntry entry){
+		return !entry.isDirectory() && entry.getName().toLowerCase().contains("readme");
+	}
+	
+	private void indexEntries(List<ZipEntry> entries){
+		Path gameDataPath = null;
+		
+		//Make first pass of entries to get key information 
+		for (ZipEntry entry : entries){
+			// Find Gamedata path
+			if (gameDataPath == null && entry.getName().toLowerCase().contains("gamedata")){
+				
+				// Once a candidate has been found, find the exact path to the folder
+				Path tempPath = Paths.get(entry.getName());
+				while(tempPath != null && gameDataPath == null){
+					if (tempPath.getFileName().toString().toLowerCase().equals("gamedata")){
+						gameDataPath = tempPath;
+					} else {
+						tempPath = tempPath.getParent();
 					}
 				}
 			}
 		}
 		
+		// Make second pass of entries to get all Mod Files
+		if (gameDataPath == null){
+			// If no gameDataPath, get all files with a path length of at least 2.
+			// This is because, we only get files which are within folders in the root of the zip
+			for (ZipEntry entry : entries){
+				Path entryPath = Paths.get(entry.getName());
+				if (entryPath.getNameCount() >= 2){
+					zipEntries.put(entryPath, entry);
+				}
+			}
+		} else {
+			// Get all files within the GameData directory
+			for (ZipEntry entry : entries){
+				Path entryPath = Paths.get(entry.getName());
+				if (
+					entryPath.startsWith(gameDataPath) && !entryPath.equals(gameDataPath) &&
+					!(entry.getName().contains("ModuleManager") && entry.getName().endsWith(".dll"))
+				){
+					zipEntries.put(gameDataPath.relativize(entryPath), entry);
+				}
+			}
+		}
+		
 		// Ensure that all folders added to zipEntries
 		for (Path path : new LinkedHashSet<Path>(zipEntries.keySet())){
 			while(path.getParent() != null){
@@ -120,17 +151,17 @@ public class ModStructure {
 		}
 	}
 	
-	public Set<Path> getPaths() throws IOException{
+	public synchronized Set<Path> getPaths() throws IOException{
 		ensureLoaded();
 		return new LinkedHashSet<>(zipEntries.keySet());
 	}
 	
-	public Map<Path, ZipEntry> getZipEntries() throws IOException{
+	public synchronized Map<Path, ZipEntry> getZipEntries() throws IOException{
 		ensureLoaded();
 		return new LinkedHashMap<>(zipEntries);
 	}
 	
-	public String getReadmeText() throws IOException{
+	public synchronized String getReadmeText() throws IOException{
 		ensureLoaded();
 		return readmeText;
 	}
@@ -0,0 +1,88 @@
+package aohara.tinkertime.resources;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Indexes a Mod Zip File from a stream, as its bytes arrive.
+ * 
+ * Every entry is verified against its CRC while it is read.  If a staging
+ * folder is given, each entry is also extracted into it (under its path within
+ * the zip) as soon as it has been read, so that the mod can be swapped into
+ * GameData once the download completes.
+ * 
+ * @see ModStructure
+ */
+public class StreamingZipIndexer {
+	
+	private final Path zipPath, stagingFolder;
+	
+	/**
+	 * @param zipPath path the zip will be saved to once complete
+	 * @param stagingFolder folder to extract the entries into, or null to only index
+	 */
+	public StreamingZipIndexer(Path zipPath, Path stagingFolder){
+		this.zipPath = zipPath;
+		this.stagingFolder = stagingFolder != null ? stagingFolder.toAbsolutePath().normalize() : null;
+	}
+	
+	/**
+	 * Reads the zip from the stream until its last entry.
+	 * 
+	 * @param is stream of the zip file.  It is not closed.
+	 * @return the structure of the zip
+	 * @throws IOException if the stream could not be read, or is not a valid zip
+	 */
+	public ModStructure index(InputStream is) throws IOException {
+		List<ZipEntry> entries = new LinkedList<>();
+		String readmeText = null;
+		
+		ZipInputStream zis = new ZipInputStream(is);
+		for (ZipEntry entry; (entry = zis.getNextEntry()) != null; ){
+			if (readmeText == null && ModStructure.isReadme(entry)){
+				byte[] bytes = IOUtils.toByteArray(zis);
+				readmeText = new String(bytes);
+				stage(entry, new ByteArrayInputStream(bytes));
+			} else {
+				stage(entry, zis);
+			}
+			
+			zis.closeEntry();  // Verifies the CRC of the entry
+			entries.add(entry);
+		}
+		
+		if (entries.isEmpty()){
+			throw new IOException("Archive has no entries: " + zipPath);
+		}
+		return new ModStructure(zipPath, entries, readmeText);
+	}
+	
+	private void stage(ZipEntry entry, InputStream is) throws IOException {
+		if (stagingFolder == null){
+			return;
+		}
+		
+		// Ignore entries which would escape the staging folder
+		Path dest = stagingFolder.resolve(entry.getName()).normalize();
+		if (!dest.startsWith(stagingFolder)){
+			return;
+		}
+		
+		if (entry.isDirectory()){
+			Files.createDirectories(dest);
+		} else {
+			Files.createDirectories(dest.getParent());
+			Files.copy(is, dest, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package aohara.tinkertime.resources;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import aohara.common.Version;
+import aohara.tinkertime.crawlers.GithubReleaseFeed;
+import aohara.tinkertime.models.Mod;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Persistent results of the most recent update check of each mod.
+ *
+ * Each result records when the check was made, the local version it was
+ * made against, and the remote version seen, along with its update date.
+ * A result only applies to a mod while its local version is unchanged, so
+ * updating a mod invalidates its result.  The results are loaded from disk
+ * on first use, and saved whenever one is recorded.
+ *
+ * The times of the mod's most recent releases are kept across results, so
+ * that its release cadence can be estimated.  A release is seen either as
+ * the update date of the local version, or as the update date of an update
+ * found by a check, which is kept once however often it is found.  If the
+ * update date is unknown, a new remote version is recorded as released
+ * when it was first seen.
+ *
+ * The state of each Github release feed is kept with the results, so that
+ * the feeds are requested conditionally across restarts.
+ */
+public class UpdateCheckCache implements GithubReleaseFeed.Store {
+	
+	static final int MAX_RELEASES = 6;
+	private static final Type RESULTS_TYPE = new TypeToken<Map<String, Result>>() {}.getType();
+	
+	private final Path path;
+	private final Gson gson;
+	private Map<String, Result> results;
+	private Map<String, GithubReleaseFeed.Feed> feeds;
+	
+	public UpdateCheckCache(Path path, Gson gson){
+		this.path = path;
+		this.gson = gson;
+	}
+	
+	// -- Interface --------------------------------------------------------
+	
+	/**
+	 * @return the result of the last check of the mod's current version,
+	 * 	or null if it has not been checked since it was updated
+	 */
+	public synchronized Result get(Mod mod){
+		Result result = getResults().get(mod.id);
+		return result != null && result.appliesTo(mod) ? result : null;
+	}
+	
+	/**
+	 * @return true if the mod's current version was checked less than the
+	 * 	given number of milliseconds ago
+	 */
+	public synchronized boolean isFresh(Mod mod, long ttlMs, long now){
+		Result result = get(mod);
+		return result != null && now - result.checkedOn < ttlMs;
+	}
+	
+	public synchronized void record(Mod mod, Version remoteVersion, boolean updateAvailable){
+		record(mod, remoteVersion, null, updateAvailable);
+	}
+	
+	public synchronized void record(Mod mod, Version remoteVersion, Date remoteUpdatedOn, boolean updateAvailable){
+		record(mod, remoteVersion, remoteUpdatedOn, updateAvailable, System.currentTimeMillis());
+	}
+	
+	synchronized void record(Mod mod, Version remoteVersion, boolean updateAvailable, long now){
+		record(mod, remoteVersion, null, updateAvailable, now);
+	}
+	
+	synchronized void record(Mod mod, Version remoteVersion, Date remoteUpdatedOn, boolean updateAvailable, long now){
+		Result previous = getResults().get(mod.id);
+		Result result = new Result(mod, remoteVersion, remoteUpdatedOn, updateAvailable, now);
+		
+		List<Long> releases = new ArrayList<>();
+		if (previous != null && previous.releases != null){
+			releases.addAll(previous.releases);
+		}
+		if (mod.updatedOn != null){
+			addRelease(releases, mod.updatedOn.getTime());
+		}
+		if (updateAvailable && result.remoteUpdatedOn != 0){
+			addRelease(releases, result.remoteUpdatedOn);
+		} else if (previous != null && previous.remoteVersion != null && result.remoteVersion != null && !previous.remoteVersion.equals(result.remoteVersion)){
+			addRelease(releases, now);
+		}
+		result.releases.addAll(releases);
+		
+		getResults().put(mod.id, result);
+		save();
+	}
+	
+	/**
+	 * @return times of the mod's most recent releases, oldest first
+	 */
+	public synchronized List<Long> getReleaseTimes(Mod mod){
+		List<Long> releases = new ArrayList<>();
+		Result result = getResults().get(mod.id);
+		if (result != null && result.releases != null){
+			releases.addAll(result.releases);
+		}
+		if (mod.updatedOn != null){
+			addRelease(releases, mod.updatedOn.getTime());
+		}
+		return releases;
+	}
+	
+	private static void addRelease(List<Long> releases, long time){
+		if (!releases.contains(time)){
+			releases.add(time);
+			Collections.sort(releases);
+			while (releases.size() > MAX_RELEASES){
+				releases.remove(0);
+			}
+		}
+	}
+	
+	public synchronized void remove(Mod mod){
+		if (getResults().remove(mod.id) != null){
+			save();
+		}
+	}
+	
+	// -- Release Feeds ----------------------------------------------------
+	
+	@Override
+	public synchronized GithubReleaseFeed.Feed getFeed(String feedUrl){
+		getResults();  // Load
+		return feeds.get(feedUrl);
+	}
+	
+	@Override
+	public synchronized void saveFeed(String feedUrl, GithubReleaseFeed.Feed feed){
+		getResults();  // Load
+		feeds.put(feedUrl, feed);
+		save();
+	}
+	
+	// -- Persistence ------------------------------------------------------
+	
+	private Map<String, Result> getResults(){
+		if (results == null){
+			load();
+		}
+		return results;
+	}
+	
+	/**
+	 * Loads the results and feeds.  Files saved before feeds were kept hold
+	 * only the results.
+	 */
+	private void load(){
+		Contents contents = null;
+		try(FileReader reader = new FileReader(path.toFile())){
+			JsonElement root = new JsonParser().parse(reader);
+			if (root.isJsonObject()){
+				JsonObject object = root.getAsJsonObject();
+				if (object.has(Contents.RESULTS) && object.has(Contents.FEEDS)){
+					contents = gson.fromJson(root, Contents.class);
+				} else {
+					contents = new Contents(gson.<Map<String, Result>>fromJson(root, RESULTS_TYPE), null);
+				}
+			}
+		} catch (FileNotFoundException e){
+			// No Action
+		} catch (IOException | JsonParseException e) {
+			e.printStackTrace();
+		}
+		
+		results = contents != null && contents.results != null ? contents.results : new HashMap<String, Result>();
+		feeds = contents != null && contents.feeds != null ? contents.feeds : new HashMap<String, GithubReleaseFeed.Feed>();
+	}
+	
+	private void save(){
+		try(FileWriter writer = new FileWriter(path.toFile())){
+			gson.toJson(new Contents(results, feeds), writer);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	private static class Contents {
+		
+		private static final String RESULTS = "results", FEEDS = "feeds";
+		
+		private final Map<String, Result> results;
+		private final Map<String, GithubReleaseFeed.Feed> feeds;
+		
+		private Contents(Map<String, Result> results, Map<String, GithubReleaseFeed.Feed> feeds){
+			this.results = results;
+			this.feeds = feeds;
+		}
+	}
+	
+	public static class Result {
+		
+		public final long checkedOn;
+		public final boolean updateAvailable;
+		private final String localVersion, remoteVersion;
+		private final long localUpdatedOn, remoteUpdatedOn;
+		private final List<Long> releases = new ArrayList<>();
+		
+		private Result(Mod mod, Version remoteVersion, Date remoteUpdatedOn, boolean updateAvailable, long checkedOn){
+			this.checkedOn = checkedOn;
+			this.updateAvailable = updateAvailable;
+			this.localVersion = mod.getVersion() != null ? mod.getVersion().toString() : null;
+			this.localUpdatedOn = mod.updatedOn != null ? mod.updatedOn.getTime() : 0;
+			this.remoteVersion = remoteVersion != null ? remoteVersion.toString() : null;
+			this.remoteUpdatedOn = remoteUpdatedOn != null ? remoteUpdatedOn.getTime() : 0;
+		}
+		
+		private boolean appliesTo(Mod mod){
+			String version = mod.getVersion() != null ? mod.getVersion().toString() : null;
+			long updatedOn = mod.updatedOn != null ? mod.updatedOn.getTime() : 0;
+			return (localVersion != null ? localVersion.equals(version) : version == null) && localUpdatedOn == updatedOn;
+		}
+		
+		/**
+		 * @return the newest version found by the check, or null if unknown
+		 */
+		public Version getRemoteVersion(){
+			try {
+				return remoteVersion != null ? Version.valueOf(remoteVersion) : null;
+			} catch (IllegalArgumentException e){
+				return null;
+			}
+		}
+		
+		/**
+		 * @return true if the given mod is the remote version found by the
+		 * 	check, compared by version, or by update date if unversioned
+		 */
+		public boolean found(Mod remote){
+			Version version = getRemoteVersion();
+			if (version != null){
+				return remote.getVersion() != null && version.getNormalVersion().equals(remote.getVersion().getNormalVersion());
+			}
+			return remoteUpdatedOn != 0 && remote.updatedOn != null && remote.updatedOn.getTime() == remoteUpdatedOn;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package aohara.tinkertime.resources;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts the entries of a Mod Zip File into a destination folder.
+ *
+ * Many mods store their textures without compression.  Entries which are
+ * STORED are copied straight from the archive into their destination with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * so they never pass through an inflater or an intermediate buffer.
+ * Deflated entries are streamed through the {@link ZipFile} as usual.
+ *
+ * @see ModStructure#getZipEntries()
+ */
+public class ZipExtractor {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int
+		LOCAL_HEADER_SIG = 0x04034b50,
+		CENTRAL_HEADER_SIG = 0x02014b50,
+		END_HEADER_SIG = 0x06054b50,
+		LOCAL_HEADER_LENGTH = 30,
+		CENTRAL_HEADER_LENGTH = 46,
+		END_HEADER_LENGTH = 22,
+		MAX_COMMENT_LENGTH = 0xFFFF,
+		FLAG_ENCRYPTED = 1;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private final Path zipPath;
+	private Map<String, Long> storedHeaderOffsets;
+
+	public ZipExtractor(Path zipPath){
+		this.zipPath = zipPath;
+	}
+
+	/**
+	 * Extracts the given entries into the destination folder.
+	 *
+	 * @param entries map of destination paths (relative to destFolder) to
+	 * 	their zip entries.  Null entries are treated as directories.
+	 * @param destFolder folder to extract the entries into
+	 * @throws IOException if the archive could not be read or the files could not be written
+	 */
+	public void extract(Map<Path, ZipEntry> entries, Path destFolder) throws IOException {
+		try(
+			ZipFile zipFile = new ZipFile(zipPath.toFile());
+			FileChannel archive = FileChannel.open(zipPath, StandardOpenOption.READ)
+		){
+			for (Map.Entry<Path, ZipEntry> mapping : entries.entrySet()){
+				Path dest = destFolder.resolve(mapping.getKey());
+				ZipEntry entry = mapping.getValue();
+
+				if (entry == null || entry.isDirectory()){
+					Files.createDirectories(dest);
+					continue;
+				}
+
+				if (dest.getParent() != null){
+					Files.createDirectories(dest.getParent());
+				}
+
+				if (!tryTransferStored(archive, entry, dest)){
+					try(InputStream is = zipFile.getInputStream(entry)){
+						Files.copy(is, dest, StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+			}
+		}
+	}
+
+	// -- Stored Entries ----------------------------------------------------
+
+	/**
+	 * Copies a STORED entry directly from the archive channel to the destination.
+	 *
+	 * @return true if the entry was copied, false if it must be streamed instead
+	 */
+	private boolean tryTransferStored(FileChannel archive, ZipEntry entry, Path dest) throws IOException {
+		if (entry.getMethod() != ZipEntry.STORED || entry.getSize() < 0){
+			return false;
+		}
+
+		Long headerOffset = getStoredHeaderOffsets(archive).get(entry.getName());
+		if (headerOffset == null){
+			return false;
+		}
+
+		long position = getDataOffset(archive, headerOffset);
+		long remaining = entry.getSize();
+		try(FileChannel out = FileChannel.open(
+			dest, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+		)){
+			while (remaining > 0){
+				long transferred = archive.transferTo(position, remaining, out);
+				if (transferred <= 0){
+					throw new EOFException("Unexpected end of archive for " + entry.getName());
+				}
+				position += transferred;
+				remaining -= transferred;
+			}
+		}
+		return true;
+	}
+
+	private Map<String, Long> getStoredHeaderOffsets(FileChannel archive) throws IOException {
+		if (storedHeaderOffsets == null){
+			storedHeaderOffsets = readStoredHeaderOffsets(archive);
+		}
+		return storedHeaderOffsets;
+	}
+
+	/**
+	 * Reads the Central Directory, and returns the local header offsets of
+	 * all unencrypted STORED entries.
+	 *
+	 * Zip64 archives are not indexed; their entries are all streamed.
+	 */
+	private static Map<String, Long> readStoredHeaderOffsets(FileChannel archive) throws IOException {
+		Map<String, Long> offsets = new HashMap<>();
+
+		// Find the End of Central Directory record
+		long size = archive.size();
+		int tailLength = (int) Math.min(size, END_HEADER_LENGTH + MAX_COMMENT_LENGTH);
+		ByteBuffer tail = read(archive, size - tailLength, tailLength);
+		int endPos = -1;
+		for (int i = tailLength - END_HEADER_LENGTH; i >= 0; i--){
+			if (tail.getInt(i) == END_HEADER_SIG){
+				endPos = i;
+				break;
+			}
+		}
+		if (endPos < 0){
+			throw new ZipException("End of Central Directory not found: " + archive);
+		}
+
+		int numEntries = tail.getShort(endPos + 10) & 0xFFFF;
+		long dirSize = tail.getInt(endPos + 12) & ZIP64_MAGIC;
+		long dirOffset = tail.getInt(endPos + 16) & ZIP64_MAGIC;
+		if (numEntries == 0xFFFF || dirSize == ZIP64_MAGIC || dirOffset == ZIP64_MAGIC){
+			return offsets;
+		}
+
+		// Walk the Central Directory
+		ByteBuffer dir = read(archive, dirOffset, (int) dirSize);
+		int pos = 0;
+		for (int i = 0; i < numEntries; i++){
+			if (dir.getInt(pos) != CENTRAL_HEADER_SIG){
+				throw new ZipException("Invalid Central Directory header");
+			}
+			int flags = dir.getShort(pos + 8) & 0xFFFF;
+			int method = dir.getShort(pos + 10) & 0xFFFF;
+			int nameLength = dir.getShort(pos + 28) & 0xFFFF;
+			int extraLength = dir.getShort(pos + 30) & 0xFFFF;
+			int commentLength = dir.getShort(pos + 32) & 0xFFFF;
+			long headerOffset = dir.getInt(pos + 42) & ZIP64_MAGIC;
+
+			if (method == ZipEntry.STORED && (flags & FLAG_ENCRYPTED) == 0 && headerOffset != ZIP64_MAGIC){
+				byte[] name = new byte[nameLength];
+				dir.position(pos + CENTRAL_HEADER_LENGTH);
+				dir.get(name);
+				offsets.put(new String(name, UTF8), headerOffset);
+			}
+
+			pos += CENTRAL_HEADER_LENGTH + nameLength + extraLength + commentLength;
+		}
+		return offsets;
+	}
+
+	/**
+	 * The local header can have a different extra field than the central one,
+	 * so it must be read to find where the entry data begins.
+	 */
+	private static long getDataOffset(FileChannel archive, long headerOffset) throws IOException {
+		ByteBuffer header = read(archive, headerOffset, LOCAL_HEADER_LENGTH);
+		if (header.getInt(0) != LOCAL_HEADER_SIG){
+			throw new ZipException("Invalid local header at offset " + headerOffset);
+		}
+		int nameLength = header.getShort(26) & 0xFFFF;
+		int extraLength = header.getShort(28) & 0xFFFF;
+		return headerOffset + LOCAL_HEADER_LENGTH + nameLength + extraLength;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buf.hasRemaining()){
+			if (channel.read(buf, position + buf.position()) < 0){
+				throw new EOFException();
+			}
+		}
+		buf.flip();
+		return buf;
+	}
+}
@@ -156,6 +156,23 @@ class Actions {
 		}
 	}
 	
+	@SuppressWarnings("serial")
+	static class CancelDownloadAction extends TinkerAction {
+		
+		CancelDownloadAction(JComponent parent, ModManager mm){
+			super("Cancel Download", null, parent, mm);
+		}
+
+		@Override
+		protected void call() throws Exception {
+			try {
+				mm.cancelDownload(mm.getSelectedMod());
+			} catch (NoModSelectedException ex){
+				// Do Nothing
+			}
+		}
+	}
+	
 	@SuppressWarnings("serial")
 	static class UpdateAllAction extends UpdateModAction {
 		
@@ -37,6 +37,7 @@ public class MenuFactory {
 		modMenu.add(new Actions.EnableDisableModAction(menuBar, mm).withoutIcon());
 		modMenu.add(new Actions.DeleteModAction(menuBar, mm).withoutIcon());
 		modMenu.add(new Actions.UpdateModAction(menuBar, mm).withoutIcon());
+		modMenu.add(new Actions.CancelDownloadAction(menuBar, mm));
 		menuBar.add(modMenu);
 		
 		JMenu updateMenu = new JMenu("Updates");
@@ -63,6 +64,7 @@ public class MenuFactory {
 		JPopupMenu popupMenu = new JPopupMenu();
 		popupMenu.add(new Actions.EnableDisableModAction(popupMenu, mm));
 		popupMenu.add(new Actions.UpdateModAction(popupMenu, mm));
+		popupMenu.add(new Actions.CancelDownloadAction(popupMenu, mm));
 		popupMenu.add(new Actions.DeleteModAction(popupMenu, mm));
 		return popupMenu;
 	}
@@ -1,35 +1,44 @@
 package aohara.tinkertime.workflows;
 
 import java.io.IOException;
-import java.util.Date;
 
 import aohara.common.workflows.tasks.WorkflowTask;
 import aohara.tinkertime.crawlers.Crawler;
 import aohara.tinkertime.crawlers.UpdateCheckCrawler;
-
-import aohara.common.Version;
+import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.resources.UpdateCheckCache;
 
 /**
  * Workflow Task that returns true if an update for a file is available.
  * 
+ * The result of the check is recorded in the {@link UpdateCheckCache}, if given.
+ * 
  * @author Andrew O'Hara
  */
 public class CheckForUpdateTask extends WorkflowTask {
 	
 	private final UpdateCheckCrawler crawler;
+	private final UpdateCheckCache cache;
+	private final Mod mod;
 
-	CheckForUpdateTask(Crawler<?> crawler, Version currentVersion, Date lastUpdatedOn) {
-		this(new UpdateCheckCrawler(crawler, currentVersion, lastUpdatedOn));
+	CheckForUpdateTask(Crawler<?> crawler, Mod mod, UpdateCheckCache cache) {
+		this(new UpdateCheckCrawler(crawler, mod.getVersion(), mod.updatedOn), cache, mod);
 	}
 	
-	CheckForUpdateTask(UpdateCheckCrawler updateCheckCrawler){
+	CheckForUpdateTask(UpdateCheckCrawler updateCheckCrawler, UpdateCheckCache cache, Mod mod){
 		super("Comparing Versions");
 		this.crawler = updateCheckCrawler;
+		this.cache = cache;
+		this.mod = mod;
 	}
 
 	@Override
 	public boolean execute() throws IOException {
-		return crawler.isUpdateAvailable();
+		boolean updateAvailable = crawler.isUpdateAvailable();
+		if (cache != null && crawler.wasChecked()){
+			cache.record(mod, crawler.getVersion(), crawler.getUpdatedOn(), updateAvailable);
+		}
+		return updateAvailable;
 	}
 	
 	@Override
@@ -0,0 +1,60 @@
+package aohara.tinkertime.workflows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+
+import aohara.common.workflows.tasks.WorkflowTask;
+import aohara.tinkertime.resources.GameDataJournal;
+
+/**
+ * Workflow Task which commits a change to GameData through the journal.
+ * 
+ * @see GameDataJournal
+ */
+abstract class CommitGameDataTask extends WorkflowTask {
+	
+	protected final GameDataJournal journal;
+
+	CommitGameDataTask(String description, GameDataJournal journal) {
+		super(description);
+		this.journal = journal;
+	}
+
+	@Override
+	protected int findTargetProgress() throws IOException {
+		return 0;
+	}
+	
+	static class Install extends CommitGameDataTask {
+		
+		private final Path stagingFolder;
+		
+		Install(GameDataJournal journal, Path stagingFolder){
+			super("Installing Mod Files", journal);
+			this.stagingFolder = stagingFolder;
+		}
+
+		@Override
+		public boolean execute() throws IOException {
+			journal.install(stagingFolder);
+			return true;
+		}
+	}
+	
+	static class Remove extends CommitGameDataTask {
+		
+		private final Collection<Path> paths;
+		
+		Remove(GameDataJournal journal, Collection<Path> paths){
+			super("Removing Mod Files", journal);
+			this.paths = paths;
+		}
+
+		@Override
+		public boolean execute() throws IOException {
+			journal.remove(paths);
+			return true;
+		}
+	}
+}
@@ -1,49 +1,71 @@
 package aohara.tinkertime.workflows;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
 
 import aohara.common.workflows.tasks.FileTransferTask;
 import aohara.tinkertime.TinkerConfig;
 import aohara.tinkertime.crawlers.Crawler;
 import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.net.BandwidthLimiter;
+import aohara.tinkertime.net.DownloadConcurrency;
+import aohara.tinkertime.net.HttpClient;
+import aohara.tinkertime.net.RetryPolicy;
 import aohara.tinkertime.resources.ModLoader;
+import aohara.tinkertime.workflows.PriorityExecutor.Priority;
 
 
 class DownloadModAssetTask extends FileTransferTask {
 	
-	public static enum ModDownloadType { File, Image };
+	public static enum ModDownloadType { File, Image, PreDownload };
 	
 	private final Crawler<?> crawler;
 	private final ModDownloadType type;
 	private final TinkerConfig config;
 	private final ModLoader modLoader;
+	private final WorkflowGraph graph;
+	private final HttpClient client = HttpClient.getInstance();
+	private final RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private volatile int contentLength = -1;
 	
-	DownloadModAssetTask(Crawler<?> crawler, TinkerConfig config, ModLoader modLoader, ModDownloadType type){
+	DownloadModAssetTask(Crawler<?> crawler, TinkerConfig config, ModLoader modLoader, WorkflowGraph graph, ModDownloadType type){
 		super(null, null);
 		this.crawler = crawler;
 		this.modLoader = modLoader;
+		this.graph = graph;
 		this.config = config;
 		this.type = type;
 	}
 	
-	private URL getUrl() throws IOException{
+	protected URL getUrl() throws IOException{
 		switch(type){
-		case File: return crawler.getDownloadLink();
+		case File: case PreDownload: return crawler.getDownloadLink();
 		case Image: return crawler.getImageUrl();
 		default: throw new IllegalStateException();
 		}
 	}
 	
-	private Path getDest() throws IOException{
-		Mod mod = crawler.getMod();
+	protected Mod getMod() throws IOException {
+		return crawler.getMod();
+	}
+	
+	protected Path getDest() throws IOException{
+		Mod mod = getMod();
 		switch(type){
 		case File: return modLoader.getZipPath(mod);
 		case Image: return mod.getCachedImagePath(config);
+		case PreDownload: return modLoader.getPreDownloadPath(mod);
 		default: throw new IllegalStateException();
 		}
 	}
@@ -51,25 +73,126 @@ class DownloadModAssetTask extends FileTransferTask {
 	@Override
 	public boolean execute() throws Exception {
 		Path dest = getDest();
-		Path tempDest = Paths.get(dest.toString() + ".tempDownload");
+		if (type == ModDownloadType.PreDownload){
+			Mod update = crawler.getMod();
+			if (modLoader.isPreDownloaded(update)){
+				setResult(update);
+				return true;  // Already downloaded ahead of its update
+			}
+			modLoader.discardPreDownloads(update);  // Of older updates, possibly with the same file name
+		}
+		Files.createDirectories(dest.getParent());
+		final Path tempDest = Paths.get(dest.toString() + ".tempDownload");
 		
 		try {
-			transfer(getUrl(), tempDest);  // Copy to temp file
+			// Copy to temp file; the whole download is restarted if it fails
+			final URL url = getUrl();
+			retryPolicy.call(new Callable<Void>(){
+				@Override
+				public Void call() throws IOException {
+					download(url, tempDest);
+					return null;
+				}
+			});
 			Files.move(tempDest, dest, StandardCopyOption.REPLACE_EXISTING);  // Rename to dest file
+			if (type == ModDownloadType.PreDownload){
+				modLoader.updatePreDownloaded(crawler.getMod());
+			}
 		} catch (NullSourceException e){
 			// Do Nothing
+		} finally {
+			Files.deleteIfExists(tempDest);  // Left behind if failed or cancelled
 		}
 		
 		setResult(crawler.getMod());
 		return true;
 	}
 
+	/**
+	 * Downloads the URL to the temp file.  If the graph is cancelled, the
+	 * connection is disconnected, and the thread interrupted while it waits,
+	 * so that the transfer is aborted.
+	 * 
+	 * The transfer waits for a slot of the client's {@link DownloadConcurrency},
+	 * which measures it, and is read through a share of its {@link BandwidthLimiter}.
+	 */
+	protected void download(URL url, Path tempDest) throws IOException {
+		if (url == null){
+			transfer(null, tempDest);
+			return;
+		}
+		
+		checkCancelled();
+		final Collection<Closeable> hooks = new LinkedList<>();
+		try(Closeable interruptible = graph.interruptOnCancel()){
+			transferThroughClient(url, tempDest, hooks);
+		} finally {
+			synchronized(hooks){
+				for (Closeable hook : hooks){
+					graph.removeCancelHook(hook);
+				}
+			}
+		}
+		
+		checkCancelled();
+	}
+	
+	private void transferThroughClient(URL url, Path tempDest, final Collection<Closeable> hooks) throws IOException {
+		DownloadConcurrency.Transfer transfer = client.getDownloadConcurrency().acquire(url, tempDest, getPriority());
+		try(BandwidthLimiter.Share share = client.getBandwidthLimiter().open(isBackground())){
+			transfer(client.wrap(url, new HttpClient.ConnectionListener() {
+				@Override
+				public void connectionOpened(final URLConnection conn) {
+					contentLength = conn.getContentLength();
+					if (conn instanceof HttpURLConnection){
+						Closeable hook = new Closeable(){
+							@Override
+							public void close() {
+								((HttpURLConnection) conn).disconnect();
+							}
+						};
+						synchronized(hooks){
+							hooks.add(hook);
+						}
+						graph.addCancelHook(hook);
+					}
+				}
+			}, share), tempDest);
+		} catch (IOException e){
+			checkCancelled();  // Aborted rather than failed, so do not retry
+			transfer.failed(e);
+			throw e;
+		} finally {
+			transfer.finished();
+		}
+	}
+	
+	/**
+	 * @return true if the download should only use idle bandwidth
+	 */
+	protected boolean isBackground(){
+		return graph.isBackground();
+	}
+	
+	/**
+	 * @return the priority with which the download waits for a slot
+	 */
+	protected Priority getPriority(){
+		return graph.getPriority();
+	}
+	
+	private void checkCancelled() throws InterruptedIOException {
+		if (graph.isCancelled()){
+			throw new InterruptedIOException("Download cancelled");
+		}
+	}
+
+	/**
+	 * The length is taken from the transfer's own connection, so it is
+	 * unknown until the transfer has begun.
+	 */
 	@Override
 	protected int findTargetProgress() throws IOException {
-		URL url = getUrl();
-		if (url != null){
-			return url.openConnection().getContentLength();
-		}
-		return -1;
+		return contentLength;
 	}
 }
@@ -0,0 +1,90 @@
+package aohara.tinkertime.workflows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FileUtils;
+
+import aohara.common.workflows.tasks.WorkflowTask;
+import aohara.tinkertime.TinkerConfig;
+import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.resources.ModLoader;
+import aohara.tinkertime.resources.ZipExtractor;
+
+/**
+ * Workflow Task which enables a mod that was just downloaded.
+ * 
+ * If the mod was extracted while it was downloading, its staged files are
+ * renamed into their GameData layout.  Otherwise, or if it was not
+ * downloaded by a streaming download, it is extracted from its zip as usual.  Either way, the result is then swapped into GameData
+ * through the journal.
+ * 
+ * Like every other change to GameData, it is run by an enabler workflow,
+ * once the download workflow has saved the mod.
+ */
+class EnableDownloadedModTask extends WorkflowTask {
+	
+	private final Mod mod;
+	private final StreamingDownloadTask downloadTask;
+	private final ModLoader modLoader;
+	private final TinkerConfig config;
+
+	/**
+	 * @param downloadTask the streaming download of the mod, or null if it
+	 * 	was downloaded otherwise
+	 */
+	EnableDownloadedModTask(Mod mod, StreamingDownloadTask downloadTask, ModLoader modLoader, TinkerConfig config) {
+		super("Enabling Mod");
+		this.mod = mod;
+		this.downloadTask = downloadTask;
+		this.modLoader = modLoader;
+		this.config = config;
+	}
+
+	@Override
+	public boolean execute() throws IOException {
+		Path zipPath = modLoader.getZipPath(mod);
+		Path downloadFolder = downloadTask != null ? downloadTask.getStagingFolder(mod) : null;
+		Path stagingFolder = config.getStagingPath().resolve(mod.id);
+		
+		try {
+			FileUtils.deleteDirectory(stagingFolder.toFile());
+			Files.createDirectories(stagingFolder);
+			
+			Map<Path, ZipEntry> entries = modLoader.getStructure(mod).getZipEntries();
+			if (downloadTask != null && downloadTask.isStaged()){
+				// Rename the staged entries into their GameData layout
+				for (Map.Entry<Path, ZipEntry> mapping : entries.entrySet()){
+					Path dest = stagingFolder.resolve(mapping.getKey());
+					ZipEntry entry = mapping.getValue();
+					if (entry == null || entry.isDirectory()){
+						Files.createDirectories(dest);
+					} else {
+						Files.createDirectories(dest.getParent());
+						Files.move(downloadFolder.resolve(entry.getName()), dest);
+					}
+				}
+			} else if (zipPath.toString().endsWith(".zip")){
+				new ZipExtractor(zipPath).extract(entries, stagingFolder);
+			} else {
+				Files.copy(zipPath, stagingFolder.resolve(zipPath.getFileName()));
+			}
+			
+			modLoader.getJournal().install(stagingFolder);
+		} finally {
+			if (downloadFolder != null){
+				FileUtils.deleteDirectory(downloadFolder.toFile());
+			}
+			FileUtils.deleteDirectory(stagingFolder.toFile());
+		}
+		return true;
+	}
+
+	@Override
+	protected int findTargetProgress() throws IOException {
+		return -1;
+	}
+}
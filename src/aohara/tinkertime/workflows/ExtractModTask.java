@@ -0,0 +1,52 @@
+package aohara.tinkertime.workflows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FileUtils;
+
+import aohara.common.workflows.tasks.WorkflowTask;
+import aohara.tinkertime.resources.ZipExtractor;
+
+/**
+ * Workflow Task which extracts the given Mod Zip entries into a staging folder.
+ * 
+ * If the mod is not a zip, the file itself is copied into the staging folder.
+ * Any previous contents of the staging folder are removed first.
+ * 
+ * @see ZipExtractor
+ * @see CommitGameDataTask.Install
+ */
+class ExtractModTask extends WorkflowTask {
+	
+	private final Path zipPath, stagingFolder;
+	private final Map<Path, ZipEntry> entries;
+
+	ExtractModTask(Path zipPath, Map<Path, ZipEntry> entries, Path stagingFolder) {
+		super("Extracting Mod");
+		this.zipPath = zipPath;
+		this.entries = entries;
+		this.stagingFolder = stagingFolder;
+	}
+
+	@Override
+	public boolean execute() throws IOException {
+		FileUtils.deleteDirectory(stagingFolder.toFile());
+		Files.createDirectories(stagingFolder);
+		
+		if (zipPath.toString().endsWith(".zip")){
+			new ZipExtractor(zipPath).extract(entries, stagingFolder);
+		} else {
+			Files.copy(zipPath, stagingFolder.resolve(zipPath.getFileName()));
+		}
+		return true;
+	}
+
+	@Override
+	protected int findTargetProgress() throws IOException {
+		return -1;
+	}
+}
@@ -0,0 +1,103 @@
+package aohara.tinkertime.workflows;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor which serializes tasks sharing a key, and runs all others in parallel.
+ * 
+ * Each task is submitted with a set of keys, such as the mod it operates on,
+ * and the GameData folders it writes to.  A task only starts once no running
+ * task holds any of its keys, and no task submitted before it with an
+ * overlapping key is still waiting.  So tasks with overlapping keys run in
+ * the order they were submitted, while a task with unrelated keys never
+ * waits behind them.
+ */
+public class KeyedExecutor {
+	
+	private final Executor delegate;
+	private final LinkedList<KeyedTask> waiting = new LinkedList<>();
+	private final Set<Object> heldKeys = new HashSet<>();
+	
+	/**
+	 * @param delegate executor to run the tasks on, once their keys are free
+	 */
+	public KeyedExecutor(Executor delegate){
+		this.delegate = delegate;
+	}
+	
+	/**
+	 * Returns an executor which runs each of its tasks with the given keys.
+	 */
+	public Executor forKeys(final Collection<?> keys){
+		return new Executor(){
+			@Override
+			public void execute(Runnable command) {
+				KeyedExecutor.this.execute(keys, command);
+			}
+		};
+	}
+	
+	public void execute(Collection<?> keys, Runnable command){
+		synchronized(this){
+			waiting.add(new KeyedTask(keys, command));
+		}
+		dispatch();
+	}
+	
+	/**
+	 * Starts every waiting task whose keys are free.
+	 */
+	private void dispatch(){
+		Collection<KeyedTask> ready = new LinkedList<>();
+		synchronized(this){
+			Set<Object> blocked = new HashSet<>(heldKeys);
+			for (Iterator<KeyedTask> it = waiting.iterator(); it.hasNext(); ){
+				KeyedTask task = it.next();
+				if (Collections.disjoint(task.keys, blocked)){
+					it.remove();
+					heldKeys.addAll(task.keys);
+					ready.add(task);
+				}
+				// Later tasks may not overtake this one on its keys
+				blocked.addAll(task.keys);
+			}
+		}
+		
+		for (KeyedTask task : ready){
+			delegate.execute(task);
+		}
+	}
+	
+	private void release(KeyedTask task){
+		synchronized(this){
+			heldKeys.removeAll(task.keys);
+		}
+		dispatch();
+	}
+	
+	private class KeyedTask implements Runnable {
+		
+		private final Set<Object> keys;
+		private final Runnable command;
+		
+		private KeyedTask(Collection<?> keys, Runnable command){
+			this.keys = new HashSet<Object>(keys);
+			this.command = command;
+		}
+
+		@Override
+		public void run() {
+			try {
+				command.run();
+			} finally {
+				release(this);
+			}
+		}
+	}
+}
@@ -2,9 +2,14 @@ package aohara.tinkertime.workflows;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
+import aohara.common.workflows.tasks.TaskCallback;
 import aohara.common.workflows.tasks.WorkflowBuilder;
+import aohara.common.workflows.tasks.WorkflowTask;
 import aohara.tinkertime.ModManager.ModNotDownloadedException;
 import aohara.tinkertime.TinkerConfig;
 import aohara.tinkertime.crawlers.Crawler;
@@ -13,21 +18,115 @@ import aohara.tinkertime.crawlers.CrawlerFactory.UnsupportedHostException;
 import aohara.tinkertime.models.Mod;
 import aohara.tinkertime.resources.ModLoader;
 import aohara.tinkertime.workflows.DownloadModAssetTask.ModDownloadType;
+import aohara.tinkertime.workflows.PriorityExecutor.Priority;
 
+/**
+ * Builder for the workflows of a mod.
+ * 
+ * Work which does not depend on all of the work before it is added to a
+ * branch, which is a separate workflow of the same {@link WorkflowGraph}.
+ * Branches run concurrently once the workflows they depend on are complete,
+ * when the graph is run with {@link #executeGraph(Executor)}.  A running
+ * graph can be cancelled with {@link #cancelGraph()}.
+ */
 public class ModWorkflowBuilder extends WorkflowBuilder {
 	
 	private final CrawlerFactory crawlerFactory;
+	private final WorkflowGraph graph;
+	private final List<TaskCallback> graphListeners = new LinkedList<>();
 	private Crawler<?> cachedCrawler;
+	private boolean downloadsFiles = false;
 	
 	public ModWorkflowBuilder(Mod context, CrawlerFactory crawlerFactory) {
 		super(context);
 		this.crawlerFactory = crawlerFactory;
+		this.graph = new WorkflowGraph(this);
 		
 		if (context == null){
 			throw new IllegalArgumentException("Context Cannot be null");
 		}
 	}
 	
+	private ModWorkflowBuilder(ModWorkflowBuilder parent) throws UnsupportedHostException {
+		super(parent.context);
+		this.crawlerFactory = parent.crawlerFactory;
+		this.graph = parent.graph;
+		this.cachedCrawler = parent.getCrawler();
+	}
+	
+	// -- Graph ----------------------------------------------------------------
+	
+	/**
+	 * Creates a branch, which is run once the given workflows are complete.
+	 */
+	private ModWorkflowBuilder branch(ModWorkflowBuilder... dependencies) throws UnsupportedHostException {
+		ModWorkflowBuilder branch = new ModWorkflowBuilder(this);
+		graph.add(branch, dependencies);
+		return branch;
+	}
+	
+	/**
+	 * Adds a listener to this workflow, and to all of its branches.
+	 */
+	public void addGraphListener(TaskCallback listener){
+		graphListeners.add(listener);
+	}
+	
+	/**
+	 * Runs this workflow, and each of its branches once their dependencies
+	 * are complete.
+	 */
+	public void executeGraph(Executor executor){
+		graph.execute(executor, graphListeners);
+	}
+	
+	/**
+	 * Cancels the running graph.  Running downloads are aborted, and their
+	 * temporary files deleted, and no further workflows of the graph are run.
+	 * Work which is already changing the mod's files is left to complete.
+	 */
+	public void cancelGraph(){
+		graph.cancel();
+	}
+	
+	/**
+	 * Adds a listener which is run once no workflow of the graph is
+	 * running or able to run, whether it completed, failed, or was cancelled.
+	 */
+	public void addGraphDoneListener(Runnable listener){
+		graph.addDoneListener(listener);
+	}
+	
+	/**
+	 * Sets whether downloads of the graph which have not started yet should
+	 * only use bandwidth left idle by other downloads.
+	 */
+	public void setBackground(boolean background){
+		graph.setBackground(background);
+	}
+	
+	/**
+	 * Sets the priority with which downloads of the graph which have not
+	 * started yet wait for a download slot.
+	 */
+	public void setPriority(Priority priority){
+		graph.setPriority(priority);
+	}
+	
+	/**
+	 * @return true if the workflow downloads or copies the mod's files,
+	 * 	rather than only checking for updates
+	 */
+	public boolean downloadsFiles(){
+		return downloadsFiles;
+	}
+	
+	void executeTasks(Executor executor){
+		execute(executor);
+	}
+	
+	// -- Workflows ------------------------------------------------------------
+	
 	private Mod getContextMod(){
 		return (Mod) context;
 	}
@@ -41,49 +140,156 @@ public class ModWorkflowBuilder extends WorkflowBuilder {
 	 * @throws UnsupportedHostException 
 	 */
 	public void checkForUpdates(ModLoader modLoader, boolean markIfAvailable) throws UnsupportedHostException {
-		addTask(new CheckForUpdateTask(getCrawler(), getContextMod().getVersion(), getContextMod().updatedOn));
+		addTask(new CheckForUpdateTask(getCrawler(), getContextMod(), modLoader.getUpdateChecks()));
 		if (markIfAvailable){
 			addTask(new MarkModUpdatedTask(modLoader, getContextMod()));
 		}
 	}
 	
-	public void downloadNewMod(TinkerConfig config, ModLoader modLoader) throws UnsupportedHostException {		
+	/**
+	 * Downloads the zip of the mod's update in the background, so that
+	 * applying the update is quick.  Must follow {@link #checkForUpdates},
+	 * so that it is only run if an update is available.
+	 */
+	public void preDownloadUpdate(TinkerConfig config, ModLoader modLoader) throws UnsupportedHostException {
+		addTask(new PreDownloadTask(getCrawler(), config, modLoader, graph));
+	}
+	
+	/**
+	 * Downloads a new mod, and enables it if mods are to be enabled automatically.
+	 */
+	public void downloadNewMod(TinkerConfig config, ModLoader modLoader, EnablerExecutor enabler) throws UnsupportedHostException {		
 		addTask(new SaveModTask.FromMod(modLoader, getContextMod()));  // Create Placeholder Mod
-		downloadMod(config, modLoader);  // DownloadMod
+		downloadMod(config, modLoader, config.autoEnableMods(), enabler);  // DownloadMod
 	}
 	
 	/**
 	 * Downloads the latest version of the mod referenced by the URL.
+	 * 
+	 * If the mod is already downloaded, the update is downloaded beside it,
+	 * and only replaces it once complete, so the mod is left untouched if
+	 * the update fails or is cancelled.  The mod is then disabled, its zip
+	 * replaced, and the update enabled by an enabler workflow, in order with
+	 * the other changes to its GameData folders.  If mods are to be enabled
+	 * automatically, the update is only enabled if the mod was enabled
+	 * before it, or had not been downloaded yet.
+	 * 
+	 * If the update found by the mod's last check has been pre-downloaded,
+	 * it is applied as it is, without crawling the mod or downloading it.
 	 * @throws UnsupportedHostException 
 	 */
-	public void updateMod(TinkerConfig config, ModLoader modLoader, boolean forceUpdate) throws UnsupportedHostException {
-		// Cleanup operations prior to update
-		if (modLoader.isDownloaded(getContextMod())){
-			if (!forceUpdate){
-				checkForUpdates(modLoader, true);
-			}
-			
-			// Disable Mod if it is enabled
-			try {
-				if (modLoader.isEnabled(getContextMod())){
-					disableMod(getContextMod(), modLoader);
+	public void updateMod(final TinkerConfig config, final ModLoader modLoader, boolean forceUpdate, final EnablerExecutor enabler) throws UnsupportedHostException {
+		final Mod mod = getContextMod();
+		if (!modLoader.isDownloaded(mod)){
+			downloadMod(config, modLoader, config.autoEnableMods(), enabler);
+			return;
+		}
+		
+		boolean wasEnabled = false;
+		try {
+			wasEnabled = modLoader.isEnabled(mod);
+		} catch (ModNotDownloadedException e) {
+			// Do Nothing
+		}
+		boolean enable = wasEnabled && config.autoEnableMods();
+		downloadsFiles = true;
+		
+		Mod preDownloaded = modLoader.getPreDownloadedUpdate(mod);
+		if (preDownloaded != null){
+			addTask(replaceTask(preDownloaded, null, config, modLoader, wasEnabled, enable, enabler));
+			return;
+		}
+		
+		if (!forceUpdate){
+			checkForUpdates(modLoader, true);
+		}
+		addTask(new RunCrawlerTask(getCrawler()));  // Get user to select asset before downloading
+		
+		ModWorkflowBuilder fileBranch = branch(this);
+		DownloadModAssetTask fileTask = fileTask(config, modLoader, enable, ModDownloadType.PreDownload);
+		fileBranch.addTask(fileTask);  // Download beside the current zip
+		fileBranch.addTask(replaceTask(null, enable ? (StreamingDownloadTask) fileTask : null, config, modLoader, wasEnabled, enable, enabler));
+		
+		downloadImage(config, modLoader, fileBranch, enabler);
+	}
+	
+	/**
+	 * Returns a task which submits a workflow replacing the mod with its
+	 * update, once the update's zip is beside the mod's.
+	 * 
+	 * @param update the update, or null for the crawled mod
+	 * @param downloadTask the streaming download of the update, or null if
+	 * 	it was not streamed
+	 */
+	private WorkflowTask replaceTask(Mod update, final StreamingDownloadTask downloadTask, final TinkerConfig config, final ModLoader modLoader, final boolean disable, final boolean enable, final EnablerExecutor enabler){
+		final Mod mod = getContextMod();
+		return new SubmitEnablerTask("Queueing Update", update, enabler){
+			@Override
+			protected Mod build(ModWorkflowBuilder workflow, Mod update) throws Exception {
+				if (disable){
+					workflow.disableMod(mod, modLoader);
+				}
+				workflow.addTask(new ReplaceModZipTask(update, modLoader, modLoader.getZipPath(mod)));
+				workflow.addTask(new SaveModTask.FromMod(modLoader, update));  // Register indexed structure
+				if (enable){
+					// Of the enabler workflow, so that it is unaffected by cancelling the download
+					workflow.addTask(workflow.enableTask(update, downloadTask, config, modLoader, enabler));
 				}
-			} catch (ModNotDownloadedException e) {
-				// Do Nothing
+				return mod;  // Run with the folders of the files being replaced
 			}
-			
-			addTask(new RunCrawlerTask(getCrawler()));  // Get user to select asset before deleting
-			deleteModZip(getContextMod(), modLoader);
+		};
+	}
+	
+	/**
+	 * Crawls the mod, and then downloads its file and its image in parallel.
+	 * 
+	 * If the mod is to be enabled, its file is staged while it downloads,
+	 * and then enabled through the enabler executor.
+	 */
+	private void downloadMod(TinkerConfig config, ModLoader modLoader, boolean enable, EnablerExecutor enabler) throws UnsupportedHostException{
+		downloadsFiles = true;
+		
+		addTask(new RunCrawlerTask(getCrawler()));  // prefetch metadata
+		
+		ModWorkflowBuilder fileBranch = branch(this);
+		DownloadModAssetTask fileTask = fileTask(config, modLoader, enable, ModDownloadType.File);
+		fileBranch.addTask(fileTask);
+		fileBranch.addTask(new SaveModTask.FromCrawler(modLoader, getCrawler()));  // Register indexed structure
+		if (enable){
+			fileBranch.addTask(enableTask(null, (StreamingDownloadTask) fileTask, config, modLoader, enabler));
 		}
 		
-		downloadMod(config, modLoader);
+		downloadImage(config, modLoader, fileBranch, enabler);
 	}
 	
-	private void downloadMod(TinkerConfig config, ModLoader modLoader) throws UnsupportedHostException{
-		addTask(new RunCrawlerTask(getCrawler()));  // prefetch metadata
-		addTask(new DownloadModAssetTask(getCrawler(), config, modLoader, ModDownloadType.File));
-		addTask(new DownloadModAssetTask(getCrawler(), config, modLoader, ModDownloadType.Image));
-		addTask(new SaveModTask.FromCrawler(modLoader, getCrawler()));
+	/**
+	 * Returns the task which downloads the mod's file.  If the mod is to be
+	 * enabled, the file is indexed and staged while it downloads.
+	 */
+	private DownloadModAssetTask fileTask(TinkerConfig config, ModLoader modLoader, boolean enable, ModDownloadType type) throws UnsupportedHostException {
+		if (enable){
+			return new StreamingDownloadTask(getCrawler(), config, modLoader, graph, type);
+		}
+		return new DownloadModAssetTask(getCrawler(), config, modLoader, graph, type);
+	}
+	
+	/**
+	 * Downloads the mod's image in parallel with its file.  The mod is saved
+	 * again once both the image and the given file branch are complete, so
+	 * that the image is displayed.  The save is queued behind any enabler
+	 * workflow the file branch submitted, so that it is not overtaken by it.
+	 */
+	private void downloadImage(final TinkerConfig config, final ModLoader modLoader, ModWorkflowBuilder fileBranch, EnablerExecutor enabler) throws UnsupportedHostException {
+		ModWorkflowBuilder imageBranch = branch(this);
+		imageBranch.addTask(new DownloadModAssetTask(getCrawler(), config, modLoader, graph, ModDownloadType.Image));
+		
+		branch(fileBranch, imageBranch).addTask(new SubmitEnablerTask("Refreshing Mod", null, enabler){
+			@Override
+			protected Mod build(ModWorkflowBuilder workflow, Mod mod) {
+				workflow.addTask(new SaveModTask.FromMod(modLoader, mod));  // Refresh image
+				return mod;
+			}
+		});
 	}
 	
 	public void downloadModInBrowser() throws UnsupportedHostException{
@@ -95,6 +301,7 @@ public class ModWorkflowBuilder extends WorkflowBuilder {
 		addTask(new SaveModTask.FromMod(modLoader, getContextMod()));
 		
 		// Add Mod
+		downloadsFiles = true;
 		copy(zipPath, modLoader.getZipPath(getContextMod()));
 		addTask(new SaveModTask.FromMod(modLoader, getContextMod()));
 	}
@@ -125,6 +332,7 @@ public class ModWorkflowBuilder extends WorkflowBuilder {
 		}
 		
 		deleteModZip(mod, modLoader);
+		delete(modLoader.getPreDownloadFolder(mod));
 		delete(mod.getCachedImagePath(config));
 	}
 	
@@ -143,10 +351,8 @@ public class ModWorkflowBuilder extends WorkflowBuilder {
 			}
 		}
 		
-		// Delete the files that do not conflict with other enabled mods
-		for (Path filePath : fileDestPaths){
-			delete(filePath);
-		}
+		// Remove the files that do not conflict with other enabled mods
+		addTask(new CommitGameDataTask.Remove(modLoader.getJournal(), fileDestPaths));
 		
 		addTask(new SaveModTask.FromMod(modLoader, mod));
 	}
@@ -158,13 +364,10 @@ public class ModWorkflowBuilder extends WorkflowBuilder {
 				throw new ModNotDownloadedException(mod, "mod has no zip path");
 			}
 			
-			if (zipPath.toString().endsWith(".zip")){
-				// If mod is a zip file, unzip it
-				unzip(zipPath, modLoader.getStructure(mod).getZipEntries(), config.getGameDataPath());
-			} else {
-				// Otherwise, it is just a file.  Copy it
-				copy(zipPath, config.getGameDataPath());
-			}
+			// Extract the mod into a staging folder, and then swap it into GameData
+			Path stagingFolder = config.getStagingPath().resolve(mod.id);
+			addTask(new ExtractModTask(zipPath, modLoader.getStructure(mod).getZipEntries(), stagingFolder));
+			addTask(new CommitGameDataTask.Install(modLoader.getJournal(), stagingFolder));
 			
 			addTask(new SaveModTask.FromMod(modLoader, mod));
 			
@@ -172,4 +375,76 @@ public class ModWorkflowBuilder extends WorkflowBuilder {
 			throw new ModNotDownloadedException(mod, e.toString());
 		}
 	}
+	
+	// -- Enabler --------------------------------------------------------------
+	
+	/**
+	 * Runs workflows which change GameData, after any other such workflows
+	 * of the same mod, or of the same GameData folders.
+	 */
+	public static interface EnablerExecutor {
+		void execute(Mod mod, ModWorkflowBuilder workflow);
+	}
+	
+	/**
+	 * Returns a task which submits a workflow enabling the downloaded mod,
+	 * once the mod has been saved, so that its GameData folders are known.
+	 * 
+	 * @param mod the downloaded mod, or null for the crawled mod
+	 * @param downloadTask the streaming download of the mod, or null if it
+	 * 	was not streamed
+	 */
+	private WorkflowTask enableTask(Mod mod, final StreamingDownloadTask downloadTask, final TinkerConfig config, final ModLoader modLoader, EnablerExecutor enabler){
+		return new SubmitEnablerTask("Queueing Mod to be Enabled", mod, enabler){
+			@Override
+			protected Mod build(ModWorkflowBuilder workflow, Mod mod) throws Exception {
+				workflow.addTask(new EnableDownloadedModTask(mod, downloadTask, modLoader, config));
+				workflow.addTask(new SaveModTask.FromMod(modLoader, mod));  // Refresh enabled state
+				return mod;
+			}
+		};
+	}
+	
+	/**
+	 * Submits a workflow for the given mod, or else the crawled mod, to the
+	 * enabler executor.  The workflow is built when this task is run, and is
+	 * not submitted if the graph has been cancelled by then.  Once submitted,
+	 * it is run to completion, so that GameData is never left half-changed.
+	 * It has a graph of its own, and shares this workflow's crawler.
+	 */
+	private abstract class SubmitEnablerTask extends WorkflowTask {
+		
+		private final Mod mod;
+		private final EnablerExecutor enabler;
+		
+		private SubmitEnablerTask(String description, Mod mod, EnablerExecutor enabler){
+			super(description);
+			this.mod = mod;
+			this.enabler = enabler;
+		}
+
+		@Override
+		public boolean execute() throws Exception {
+			if (graph.isCancelled()){
+				return false;
+			}
+			Mod mod = this.mod != null ? this.mod : getCrawler().getMod();
+			ModWorkflowBuilder workflow = new ModWorkflowBuilder(mod, crawlerFactory);
+			workflow.cachedCrawler = cachedCrawler;
+			enabler.execute(build(workflow, mod), workflow);
+			return true;
+		}
+		
+		/**
+		 * Adds the tasks of the workflow.
+		 * 
+		 * @return the mod whose GameData folders the workflow changes
+		 */
+		protected abstract Mod build(ModWorkflowBuilder workflow, Mod mod) throws Exception;
+
+		@Override
+		protected int findTargetProgress() throws IOException {
+			return 0;
+		}
+	}
 }
@@ -0,0 +1,68 @@
+package aohara.tinkertime.workflows;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import aohara.tinkertime.TinkerConfig;
+import aohara.tinkertime.crawlers.Crawler;
+import aohara.tinkertime.crawlers.Crawler.Asset;
+import aohara.tinkertime.resources.ModLoader;
+import aohara.tinkertime.workflows.PriorityExecutor.Priority;
+
+/**
+ * Downloads the zip of a mod's available update ahead of time, so that the
+ * update is applied without downloading it.
+ * 
+ * Pre-downloading is best effort, and runs unattended: the user is never
+ * prompted to select an asset, the download only uses idle bandwidth, and
+ * if it fails, the update is downloaded when it is applied instead.  If it
+ * is cancelled, it fails like any other task.
+ * 
+ * Once downloaded, the crawled update is recorded beside its zip, so that
+ * it is applied without crawling the mod again.  A zip already downloaded
+ * is only kept if it was recorded as the same version of the update.
+ */
+class PreDownloadTask extends DownloadModAssetTask {
+	
+	private final Crawler<?> crawler;
+	private final WorkflowGraph graph;
+
+	PreDownloadTask(Crawler<?> crawler, TinkerConfig config, ModLoader modLoader, WorkflowGraph graph) {
+		super(crawler, config, modLoader, graph, ModDownloadType.PreDownload);
+		this.crawler = crawler;
+		this.graph = graph;
+	}
+	
+	@Override
+	public boolean execute() throws Exception {
+		crawler.setAssetSelector(new Crawler.AssetSelector() {
+			@Override
+			public Asset selectAsset(String modName, Collection<Asset> assets) {
+				return null;  // Leave the choice for when the update is applied
+			}
+		});
+		
+		try {
+			if (getDest() == null){
+				return true;  // Nothing to download
+			}
+			return super.execute();
+		} catch (IOException e){
+			if (graph.isCancelled() || Thread.currentThread().isInterrupted()){
+				throw e;  // Cancelled
+			}
+			e.printStackTrace();  // Downloaded when the update is applied instead
+			return true;
+		}
+	}
+	
+	@Override
+	protected boolean isBackground(){
+		return true;
+	}
+	
+	@Override
+	protected Priority getPriority(){
+		return Priority.Background;
+	}
+}
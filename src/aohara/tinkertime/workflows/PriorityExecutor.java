@@ -0,0 +1,157 @@
+package aohara.tinkertime.workflows;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executor which runs waiting tasks in order of their priority.
+ * 
+ * Tasks are queued here, and only handed to the thread pool once it has a
+ * free thread.  Interactive tasks always run before all other waiting tasks,
+ * and one thread is reserved for them, so that a newly submitted interactive
+ * task starts right away, no matter how many other tasks are running or
+ * waiting.  To keep background tasks from starving behind bulk tasks, a
+ * background task is treated as bulk once it has waited {@link #AGING_MS},
+ * but never as interactive.  Waiting tasks for a given key, such as the mod
+ * the user has selected, can also be promoted to interactive.
+ */
+public class PriorityExecutor {
+	
+	public static enum Priority { Interactive, Bulk, Background };
+	
+	static final long AGING_MS = 10 * 1000;
+	static final int RESERVED_INTERACTIVE = 1;
+	
+	private final ThreadPoolExecutor pool;
+	private final long agingMs;
+	private final PriorityQueue<PrioritizedTask> waiting = new PriorityQueue<>();
+	private int running = 0;
+	private long sequence = 0;
+	
+	/**
+	 * @param pool thread pool to run the tasks on; at most its maximum
+	 * 	pool size of tasks are handed to it at once
+	 */
+	public PriorityExecutor(ThreadPoolExecutor pool){
+		this(pool, AGING_MS);
+	}
+	
+	PriorityExecutor(ThreadPoolExecutor pool, long agingMs){
+		this.pool = pool;
+		this.agingMs = agingMs;
+	}
+	
+	/**
+	 * Returns an executor which runs each of its tasks with the given
+	 * priority, under the given key.
+	 */
+	public Executor withPriority(final Priority priority, final Object key){
+		return new Executor(){
+			@Override
+			public void execute(Runnable command) {
+				PriorityExecutor.this.execute(priority, key, command);
+			}
+		};
+	}
+	
+	public void execute(Priority priority, Object key, Runnable command){
+		synchronized(this){
+			waiting.add(new PrioritizedTask(priority, key, command, System.currentTimeMillis(), sequence++));
+		}
+		dispatch();
+	}
+	
+	/**
+	 * Makes all waiting tasks for the given key interactive.
+	 */
+	public void promote(Object key){
+		synchronized(this){
+			Collection<PrioritizedTask> promoted = new LinkedList<>();
+			for (Iterator<PrioritizedTask> it = waiting.iterator(); it.hasNext(); ){
+				PrioritizedTask task = it.next();
+				if (task.key != null && task.key.equals(key) && task.priority != Priority.Interactive){
+					it.remove();
+					promoted.add(new PrioritizedTask(Priority.Interactive, key, task.command, task.submittedAt, task.sequence));
+				}
+			}
+			waiting.addAll(promoted);
+		}
+		dispatch();
+	}
+	
+	/**
+	 * Hands the most urgent waiting tasks to the pool, while it has free
+	 * threads.  Unless there is only one, the reserved threads are only
+	 * used by interactive tasks.
+	 */
+	private void dispatch(){
+		Collection<PrioritizedTask> ready = new LinkedList<>();
+		synchronized(this){
+			int limit = pool.getMaximumPoolSize();
+			int otherLimit = Math.max(1, limit - RESERVED_INTERACTIVE);
+			while (!waiting.isEmpty()){
+				boolean interactive = waiting.peek().priority == Priority.Interactive;
+				if (running >= (interactive ? limit : otherLimit)){
+					break;
+				}
+				running++;
+				ready.add(waiting.poll());
+			}
+		}
+		
+		for (PrioritizedTask task : ready){
+			pool.execute(task);
+		}
+	}
+	
+	private void finished(){
+		synchronized(this){
+			running--;
+		}
+		dispatch();
+	}
+	
+	private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+		
+		private final Priority priority;
+		private final Object key;
+		private final Runnable command;
+		private final long submittedAt, sequence, rank;
+		
+		private PrioritizedTask(Priority priority, Object key, Runnable command, long submittedAt, long sequence){
+			this.priority = priority;
+			this.key = key;
+			this.command = command;
+			this.submittedAt = submittedAt;
+			this.sequence = sequence;
+			
+			// Waiting one aging interval makes a background task as urgent as
+			// a new bulk task.  Interactive tasks are ranked apart.
+			this.rank = submittedAt + (priority == Priority.Background ? agingMs : 0);
+		}
+
+		@Override
+		public void run() {
+			try {
+				command.run();
+			} finally {
+				finished();
+			}
+		}
+
+		@Override
+		public int compareTo(PrioritizedTask other) {
+			boolean interactive = priority == Priority.Interactive, otherInteractive = other.priority == Priority.Interactive;
+			if (interactive != otherInteractive){
+				return interactive ? -1 : 1;
+			} else if (rank != other.rank){
+				return rank < other.rank ? -1 : 1;
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package aohara.tinkertime.workflows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.io.FileUtils;
+
+import aohara.common.workflows.tasks.WorkflowTask;
+import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.resources.ModLoader;
+
+/**
+ * Workflow Task which replaces a mod's zip with the zip of its update, once
+ * the update has been completely downloaded beside it.
+ * 
+ * The old zip is deleted, unless the update was saved over it, along with
+ * any other pre-downloads of the mod, which are now out of date.
+ */
+class ReplaceModZipTask extends WorkflowTask {
+	
+	private final Mod update;
+	private final ModLoader modLoader;
+	private final Path oldZipPath;
+	
+	ReplaceModZipTask(Mod update, ModLoader modLoader, Path oldZipPath) {
+		super("Replacing Mod Zip");
+		this.update = update;
+		this.modLoader = modLoader;
+		this.oldZipPath = oldZipPath;
+	}
+	
+	@Override
+	public boolean execute() throws IOException {
+		Path zipPath = modLoader.getZipPath(update);
+		Files.move(modLoader.getPreDownloadPath(update), zipPath, StandardCopyOption.REPLACE_EXISTING);
+		if (oldZipPath != null && !oldZipPath.equals(zipPath)){
+			Files.deleteIfExists(oldZipPath);
+		}
+		FileUtils.deleteDirectory(modLoader.getPreDownloadFolder(update).toFile());
+		return true;
+	}
+	
+	@Override
+	protected int findTargetProgress() throws IOException {
+		return 0;
+	}
+}
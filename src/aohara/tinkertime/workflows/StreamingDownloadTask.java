@@ -0,0 +1,122 @@
+package aohara.tinkertime.workflows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+
+import aohara.tinkertime.TinkerConfig;
+import aohara.tinkertime.crawlers.Crawler;
+import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.resources.ModLoader;
+import aohara.tinkertime.resources.ModStructure;
+import aohara.tinkertime.resources.StreamingZipIndexer;
+
+/**
+ * Downloads a Mod Zip File which is to be enabled, while indexing and
+ * staging it as its bytes arrive.
+ * 
+ * The downloaded bytes are read back from the temporary file by a separate
+ * thread, which verifies and indexes each entry, and extracts it into a
+ * staging folder.  Once the download completes, the mod can be enabled
+ * without re-reading the archive.
+ * 
+ * Indexing is best effort; if the archive cannot be read as a stream, the
+ * download still completes normally, and the mod is enabled from the zip.
+ * 
+ * @see EnableDownloadedModTask
+ */
+class StreamingDownloadTask extends DownloadModAssetTask {
+	
+	private final TinkerConfig config;
+	private final ModLoader modLoader;
+	private volatile ModStructure indexedStructure;
+
+	/**
+	 * @param type either File, or PreDownload to download an update beside
+	 * 	the mod's current zip
+	 */
+	StreamingDownloadTask(Crawler<?> crawler, TinkerConfig config, ModLoader modLoader, WorkflowGraph graph, ModDownloadType type) {
+		super(crawler, config, modLoader, graph, type);
+		this.config = config;
+		this.modLoader = modLoader;
+	}
+	
+	/**
+	 * Returns the folder the mod's entries are extracted into while downloading.
+	 * Entries are extracted under their paths within the zip.
+	 */
+	Path getStagingFolder(Mod mod){
+		return config.getStagingPath().resolve(mod.id + ".download");
+	}
+	
+	/**
+	 * Returns true if the downloaded zip was completely indexed and staged.
+	 */
+	boolean isStaged(){
+		return indexedStructure != null;
+	}
+	
+	@Override
+	protected void download(URL url, Path tempDest) throws IOException {
+		final Path dest = modLoader.getZipPath(getMod());  // Where the zip is indexed from once complete
+		if (url == null || !dest.toString().endsWith(".zip")){
+			super.download(url, tempDest);
+			return;
+		}
+		
+		final Path stagingFolder = getStagingFolder(getMod());
+		FileUtils.deleteDirectory(stagingFolder.toFile());
+		
+		// Begin indexing the temp file as the download fills it
+		Files.deleteIfExists(tempDest);
+		final TailingInputStream tail = new TailingInputStream(tempDest);
+		Thread indexer = new Thread(new Runnable(){
+			@Override
+			public void run() {
+				try(InputStream is = tail){
+					indexedStructure = new StreamingZipIndexer(dest, stagingFolder).index(is);
+				} catch (IOException e) {
+					indexedStructure = null;
+				}
+			}
+		}, "Indexer for " + dest.getFileName());
+		indexer.setDaemon(true);
+		indexer.start();
+		
+		try {
+			super.download(url, tempDest);
+			tail.finish();
+		} catch (IOException e){
+			tail.abort();
+			joinUninterruptibly(indexer);
+			FileUtils.deleteDirectory(stagingFolder.toFile());
+			throw e;
+		} finally {
+			joinUninterruptibly(indexer);
+		}
+		
+		if (indexedStructure != null){
+			modLoader.structureIndexed(indexedStructure);
+		} else {
+			FileUtils.deleteDirectory(stagingFolder.toFile());
+		}
+	}
+	
+	private static void joinUninterruptibly(Thread thread){
+		boolean interrupted = false;
+		while (thread.isAlive()){
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted){
+			Thread.currentThread().interrupt();
+		}
+	}
+}
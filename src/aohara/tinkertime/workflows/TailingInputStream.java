@@ -0,0 +1,92 @@
+package aohara.tinkertime.workflows;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * InputStream which reads a file while it is still being written.
+ * 
+ * Reaching the end of the file blocks until more bytes are written, or
+ * until the writer has finished.  The file need not exist yet when the
+ * stream is opened.
+ */
+class TailingInputStream extends InputStream {
+	
+	private static final int POLL_MS = 50;
+	
+	private final Path path;
+	private volatile boolean finished = false, aborted = false;
+	private FileInputStream in;
+	
+	TailingInputStream(Path path){
+		this.path = path;
+	}
+	
+	/**
+	 * Called by the writer once the file is complete.  Reads then end at
+	 * the end of the file.
+	 */
+	synchronized void finish(){
+		finished = true;
+		notifyAll();
+	}
+	
+	/**
+	 * Called by the writer if the file will not be completed.  Reads then
+	 * fail.
+	 */
+	synchronized void abort(){
+		aborted = true;
+		notifyAll();
+	}
+	
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		while (true){
+			boolean wasFinished = finished;
+			if (aborted){
+				throw new IOException("Download of " + path + " was aborted");
+			}
+			
+			if (in == null && Files.exists(path)){
+				in = new FileInputStream(path.toFile());
+			}
+			if (in != null){
+				int read = in.read(b, off, len);
+				if (read > 0 || wasFinished){
+					return read;
+				}
+			} else if (wasFinished){
+				return -1;
+			}
+			
+			// Wait for more data to be written
+			synchronized(this){
+				try {
+					if (!finished && !aborted){
+						wait(POLL_MS);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException(e);
+				}
+			}
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (in != null){
+			in.close();
+		}
+	}
+}
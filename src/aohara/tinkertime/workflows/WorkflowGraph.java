@@ -0,0 +1,307 @@
+package aohara.tinkertime.workflows;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import aohara.common.workflows.tasks.TaskCallback;
+import aohara.common.workflows.tasks.WorkflowTask;
+import aohara.tinkertime.workflows.PriorityExecutor.Priority;
+
+/**
+ * Dependency graph of mod workflows.
+ * 
+ * Each workflow in the graph is a linear list of tasks, and declares the
+ * workflows whose results it needs.  A workflow is submitted to the executor
+ * as soon as all of its dependencies have completed, so independent
+ * workflows run concurrently, and the whole graph takes as long as its
+ * longest path.  If a workflow fails, or stops early, none of the
+ * workflows depending on it are run.
+ * 
+ * The graph is done once no workflow is running or able to run.  If it is
+ * cancelled, its cancel hooks are closed to abort their network transfers,
+ * the threads waiting to transfer are interrupted, and none of its
+ * remaining workflows are started.  Other work is never interrupted, so
+ * that a change to GameData is not abandoned half-written.
+ */
+class WorkflowGraph {
+	
+	private final Map<ModWorkflowBuilder, Set<ModWorkflowBuilder>> waitingOn = new LinkedHashMap<>();
+	private final Set<ModWorkflowBuilder> completed = new HashSet<>();
+	private final Set<Thread> interruptibleThreads = new HashSet<>();
+	private final Set<Closeable> cancelHooks = new HashSet<>();
+	private final List<Runnable> doneListeners = new LinkedList<>();
+	private Executor executor;
+	private int active = 0;
+	private boolean cancelled = false, done = false;
+	private volatile boolean background = false;
+	private volatile Priority priority = Priority.Interactive;
+	
+	WorkflowGraph(ModWorkflowBuilder root){
+		waitingOn.put(root, Collections.<ModWorkflowBuilder>emptySet());
+	}
+	
+	/**
+	 * Adds a workflow, which will be run once the given workflows have completed.
+	 */
+	synchronized void add(ModWorkflowBuilder workflow, ModWorkflowBuilder... dependencies){
+		if (executor != null){
+			throw new IllegalStateException("Graph has already been executed");
+		}
+		Set<ModWorkflowBuilder> deps = new HashSet<>();
+		Collections.addAll(deps, dependencies);
+		waitingOn.put(workflow, deps);
+	}
+	
+	/**
+	 * Runs every workflow once its dependencies are complete.
+	 * 
+	 * @param listeners listeners to receive the events of every workflow
+	 */
+	void execute(Executor executor, List<TaskCallback> listeners){
+		List<ModWorkflowBuilder> ready = new LinkedList<>();
+		synchronized(this){
+			this.executor = executor;
+			for (ModWorkflowBuilder workflow : waitingOn.keySet()){
+				for (TaskCallback listener : listeners){
+					workflow.addListener(listener);
+				}
+				workflow.addTask(new CompleteTask(workflow));
+			}
+			ready.addAll(takeReady());
+		}
+		
+		for (ModWorkflowBuilder workflow : ready){
+			submit(workflow);
+		}
+	}
+	
+	/**
+	 * Sets whether downloads started by the graph should only use idle bandwidth.
+	 */
+	void setBackground(boolean background){
+		this.background = background;
+	}
+	
+	boolean isBackground(){
+		return background;
+	}
+	
+	/**
+	 * Sets the priority with which downloads of the graph which have not
+	 * started yet wait for a download slot.
+	 */
+	void setPriority(Priority priority){
+		this.priority = priority;
+	}
+	
+	Priority getPriority(){
+		return priority;
+	}
+	
+	// -- Cancellation ---------------------------------------------------------
+	
+	/**
+	 * Cancels the graph, unless it is already done.
+	 */
+	void cancel(){
+		Collection<Closeable> hooks;
+		synchronized(this){
+			if (cancelled || done){
+				return;
+			}
+			cancelled = true;
+			for (Thread thread : interruptibleThreads){
+				thread.interrupt();
+			}
+			hooks = new LinkedList<>(cancelHooks);
+		}
+		
+		for (Closeable hook : hooks){
+			closeQuietly(hook);
+		}
+	}
+	
+	synchronized boolean isCancelled(){
+		return cancelled;
+	}
+	
+	/**
+	 * Adds a hook to be closed if the graph is cancelled.  If it has already
+	 * been cancelled, the hook is closed immediately.
+	 */
+	void addCancelHook(Closeable hook){
+		synchronized(this){
+			if (!cancelled){
+				cancelHooks.add(hook);
+				return;
+			}
+		}
+		closeQuietly(hook);
+	}
+	
+	synchronized void removeCancelHook(Closeable hook){
+		cancelHooks.remove(hook);
+	}
+	
+	/**
+	 * Lets the current thread be interrupted if the graph is cancelled,
+	 * until the returned hook is closed.  If it has already been cancelled,
+	 * the thread is interrupted immediately.
+	 */
+	synchronized Closeable interruptOnCancel(){
+		final Thread thread = Thread.currentThread();
+		if (cancelled){
+			thread.interrupt();
+		}
+		interruptibleThreads.add(thread);
+		return new Closeable(){
+			@Override
+			public void close() {
+				synchronized(WorkflowGraph.this){
+					interruptibleThreads.remove(thread);
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Adds a listener to be run once the graph is done.  If it is already
+	 * done, the listener is run immediately.
+	 */
+	void addDoneListener(Runnable listener){
+		synchronized(this){
+			if (!done){
+				doneListeners.add(listener);
+				return;
+			}
+		}
+		listener.run();
+	}
+	
+	private static void closeQuietly(Closeable hook){
+		try {
+			hook.close();
+		} catch (IOException e) {
+			// No Action
+		}
+	}
+	
+	// -- Scheduling -----------------------------------------------------------
+	
+	private void submit(ModWorkflowBuilder workflow){
+		workflow.executeTasks(new Executor(){
+			@Override
+			public void execute(final Runnable command) {
+				executor.execute(new Runnable(){
+					@Override
+					public void run() {
+						runWorkflow(command);
+					}
+				});
+			}
+		});
+	}
+	
+	private void runWorkflow(Runnable command){
+		boolean run;
+		synchronized(this){
+			run = !cancelled;
+		}
+		
+		try {
+			if (run){
+				command.run();
+			}
+		} finally {
+			List<Runnable> listeners = Collections.emptyList();
+			synchronized(this){
+				Thread.interrupted();  // Clear any interrupt from cancellation before the thread is reused
+				if (workflowEnded()){
+					listeners = new LinkedList<>(doneListeners);
+					doneListeners.clear();
+				}
+			}
+			for (Runnable listener : listeners){
+				listener.run();
+			}
+		}
+	}
+	
+	/**
+	 * @return true if the graph is now done
+	 */
+	private boolean workflowEnded(){
+		active--;
+		if (active == 0 && !done){
+			done = true;
+			return true;
+		}
+		return false;
+	}
+	
+	private void workflowComplete(ModWorkflowBuilder workflow){
+		List<ModWorkflowBuilder> ready;
+		synchronized(this){
+			completed.add(workflow);
+			ready = takeReady();
+		}
+		
+		for (ModWorkflowBuilder dependent : ready){
+			submit(dependent);
+		}
+	}
+	
+	/**
+	 * Removes and returns the workflows whose dependencies have all
+	 * completed, and counts them as active.
+	 */
+	private List<ModWorkflowBuilder> takeReady(){
+		List<ModWorkflowBuilder> ready = new LinkedList<>();
+		for (Map.Entry<ModWorkflowBuilder, Set<ModWorkflowBuilder>> entry : waitingOn.entrySet()){
+			if (completed.containsAll(entry.getValue())){
+				ready.add(entry.getKey());
+			}
+		}
+		waitingOn.keySet().removeAll(ready);
+		active += ready.size();
+		return ready;
+	}
+	
+	/**
+	 * Last task of each workflow.  It is only run if every other task of the
+	 * workflow succeeded, so its dependents are only run in that case, and
+	 * if the graph has not been cancelled.
+	 */
+	private class CompleteTask extends WorkflowTask {
+		
+		private final ModWorkflowBuilder workflow;
+		
+		private CompleteTask(ModWorkflowBuilder workflow){
+			super("Finishing");
+			this.workflow = workflow;
+		}
+
+		@Override
+		public boolean execute() {
+			if (isCancelled()){
+				return false;
+			}
+			workflowComplete(workflow);
+			return true;
+		}
+
+		@Override
+		protected int findTargetProgress() throws IOException {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package aohara.tinkertime;
+
+import static aohara.tinkertime.ModUpdateScheduler.HOUR_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class TestModUpdateScheduler {
+	
+	private static final long
+		DAY_MS = 24 * HOUR_MS,
+		NOW = 1000 * DAY_MS;
+	
+	@Test
+	public void testUnknownCadenceUsesDefault(){
+		assertEquals(ModUpdateScheduler.DEFAULT_INTERVAL_MS, ModUpdateScheduler.checkInterval(Collections.<Long>emptyList(), NOW));
+	}
+	
+	@Test
+	public void testFrequentReleasesCheckedOften(){
+		long interval = ModUpdateScheduler.checkInterval(Arrays.asList(NOW - 15 * DAY_MS, NOW - 8 * DAY_MS, NOW - DAY_MS), NOW);
+		assertEquals((long) (7 * DAY_MS / ModUpdateScheduler.CHECKS_PER_RELEASE), interval);
+	}
+	
+	@Test
+	public void testDormantModCheckedRarely(){
+		long interval = ModUpdateScheduler.checkInterval(Arrays.asList(NOW - 900 * DAY_MS, NOW - 700 * DAY_MS), NOW);
+		assertEquals(ModUpdateScheduler.MAX_INTERVAL_MS, interval);
+	}
+	
+	@Test
+	public void testOverdueReleaseSlowsChecks(){
+		long onTime = ModUpdateScheduler.checkInterval(Arrays.asList(NOW - 10 * DAY_MS, NOW - 8 * DAY_MS), NOW);
+		long overdue = ModUpdateScheduler.checkInterval(Arrays.asList(NOW - 30 * DAY_MS, NOW - 28 * DAY_MS), NOW);
+		assertTrue(overdue > onTime);
+	}
+	
+	@Test
+	public void testIntervalNeverBelowMinimum(){
+		long interval = ModUpdateScheduler.checkInterval(Arrays.asList(NOW - 2 * HOUR_MS, NOW - HOUR_MS, NOW), NOW);
+		assertEquals(ModUpdateScheduler.MIN_INTERVAL_MS, interval);
+	}
+}
@@ -7,10 +7,30 @@ import aohara.tinkertime.crawlers.TestCrawlerFactory;
 import aohara.tinkertime.crawlers.TestCurseCrawler;
 import aohara.tinkertime.crawlers.TestGithubHtmlCrawler;
 import aohara.tinkertime.crawlers.TestGithubJsonCrawler;
+import aohara.tinkertime.crawlers.TestGithubReleaseFeed;
+import aohara.tinkertime.crawlers.TestHostHealth;
+import aohara.tinkertime.crawlers.TestUpdateCheckCrawler;
 import aohara.tinkertime.crawlers.TestKerbalStuffCrawler;
 import aohara.tinkertime.crawlers.TestJenkinsCrawler;
+import aohara.tinkertime.crawlers.pageLoaders.TestWeightedExpiryCache;
+import aohara.tinkertime.crawlers.pageLoaders.TestWebpageLoader;
+import aohara.tinkertime.net.TestBandwidthLimiter;
+import aohara.tinkertime.net.TestDownloadConcurrency;
+import aohara.tinkertime.net.TestHedger;
+import aohara.tinkertime.net.TestHttpClient;
+import aohara.tinkertime.net.TestRetryPolicy;
+import aohara.tinkertime.resources.TestGameDataJournal;
 import aohara.tinkertime.resources.TestModLoader;
 import aohara.tinkertime.resources.TestModStructure;
+import aohara.tinkertime.resources.TestStreamingZipIndexer;
+import aohara.tinkertime.resources.TestUpdateCheckCache;
+import aohara.tinkertime.resources.TestZipExtractor;
+import aohara.tinkertime.workflows.TestKeyedExecutor;
+import aohara.tinkertime.workflows.TestPriorityExecutor;
+import aohara.tinkertime.workflows.TestPreDownloadTask;
+import aohara.tinkertime.workflows.TestStreamingDownloadTask;
+import aohara.tinkertime.workflows.TestTailingInputStream;
+import aohara.tinkertime.workflows.TestWorkflowGraph;
 
 
 @RunWith(Suite.class)
@@ -22,7 +42,28 @@ import aohara.tinkertime.resources.TestModStructure;
    TestGithubJsonCrawler.class,
    TestCrawlerFactory.class,
    TestModStructure.class,
-   TestKerbalStuffCrawler.class
+   TestKerbalStuffCrawler.class,
+   TestZipExtractor.class,
+   TestStreamingZipIndexer.class,
+   TestGameDataJournal.class,
+   TestWeightedExpiryCache.class,
+   TestWebpageLoader.class,
+   TestHostHealth.class,
+   TestUpdateCheckCrawler.class,
+   TestHttpClient.class,
+   TestRetryPolicy.class,
+   TestHedger.class,
+   TestDownloadConcurrency.class,
+   TestBandwidthLimiter.class,
+   TestKeyedExecutor.class,
+   TestPriorityExecutor.class,
+   TestWorkflowGraph.class,
+   TestTailingInputStream.class,
+   TestPreDownloadTask.class,
+   TestStreamingDownloadTask.class,
+   TestUpdateCheckCache.class,
+   TestModUpdateScheduler.class,
+   TestGithubReleaseFeed.class
 })
 
 public class UnitTestSuite {}
\ No newline at end of file
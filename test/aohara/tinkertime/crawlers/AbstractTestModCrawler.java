@@ -5,9 +5,11 @@ import static org.junit.Assert.assertEquals;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 
 import aohara.tinkertime.crawlers.Crawler;
+import aohara.tinkertime.crawlers.Crawler.Asset;
 import aohara.tinkertime.crawlers.CrawlerFactory.UnsupportedHostException;
 import aohara.tinkertime.models.Mod;
 import aohara.tinkertime.testutil.ModStubs;
@@ -43,6 +45,17 @@ public abstract class AbstractTestModCrawler {
 		assertEquals(expectedDate.get(Calendar.YEAR), actualDate.get(Calendar.YEAR));
 		assertEquals(expectedDate.get(Calendar.MONTH), actualDate.get(Calendar.MONTH));
 		assertEquals(expectedDate.get(Calendar.DATE), actualDate.get(Calendar.DATE));
+		
+		// Probe must find the same version, without selecting an asset
+		Crawler<?> probeCrawler = ResourceLoader.loadCrawler(stub, fallback);
+		probeCrawler.setAssetSelector(new Crawler.AssetSelector() {
+			@Override
+			public Asset selectAsset(String modName, Collection<Asset> assets) {
+				throw new AssertionError("Version probe selected an asset");
+			}
+		});
+		VersionProbe probe = probeCrawler.probeVersion();
+		assertEquals(version, probe.version != null ? probe.version.toString() : null);
 	}
 	
 	protected void compare(
@@ -0,0 +1,268 @@
+package aohara.tinkertime.crawlers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import aohara.tinkertime.crawlers.Crawler.Asset;
+import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
+import aohara.tinkertime.crawlers.pageLoaders.WebpageLoader;
+import aohara.tinkertime.testutil.ModStubs;
+
+/**
+ * Measures the CPU time spent extracting mod data from the testRes/html pages.
+ *
+ * Extraction: "Before" reads every field the way the HTML crawlers used to,
+ * re-running the page selectors once per accessor call made by
+ * {@link Crawler#call()}.  "After" runs the crawlers, which walk each page
+ * once.  Pages are parsed up front, so parsing is excluded from both.
+ *
+ * Loading: "Before" parses each whole page before running the crawler.
+ * "After" runs the crawler through a {@link WebpageLoader}, which stops
+ * reading each page once the crawler has everything it needs.
+ *
+ * Run with: java aohara.tinkertime.crawlers.CrawlerBenchmark [iterations]
+ */
+public class CrawlerBenchmark {
+
+	private static final ModStubs[]
+		CURSE_STUBS = { ModStubs.Engineer, ModStubs.Mechjeb, ModStubs.AlarmClock, ModStubs.NavBall, ModStubs.HotRockets },
+		GITHUB_STUBS = { ModStubs.KerbalAlarmClock, ModStubs.ProceduralFairings, ModStubs.StockFixes, ModStubs.ActiveTextureManagement };
+
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private static final Map<URL, Document> pages = new HashMap<>();
+	private static final Map<URL, String> sources = new HashMap<>();
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		System.out.println("Extraction");
+		System.out.println(String.format("%-40s %12s %12s", "Mod", "Before (us)", "After (us)"));
+		for (ModStubs stub : CURSE_STUBS){
+			report(stub, iterations, true);
+		}
+		for (ModStubs stub : GITHUB_STUBS){
+			report(stub, iterations, false);
+		}
+		
+		System.out.println();
+		System.out.println("Loading and Extraction");
+		System.out.println(String.format("%-40s %12s %12s", "Mod", "Before (us)", "After (us)"));
+		for (ModStubs stub : CURSE_STUBS){
+			reportLoad(stub, iterations, true);
+		}
+		for (ModStubs stub : GITHUB_STUBS){
+			reportLoad(stub, iterations, false);
+		}
+	}
+	
+	private static void reportLoad(ModStubs stub, int iterations, boolean curse) throws IOException {
+		// Warm up
+		runCrawler(stub, curse, newFullLoader());
+		runCrawler(stub, curse, newPartialLoader());
+		
+		long start = threadBean.getCurrentThreadCpuTime();
+		for (int i = 0; i < iterations; i++){
+			runCrawler(stub, curse, newFullLoader());
+		}
+		long before = (threadBean.getCurrentThreadCpuTime() - start) / iterations / 1000;
+		
+		start = threadBean.getCurrentThreadCpuTime();
+		for (int i = 0; i < iterations; i++){
+			runCrawler(stub, curse, newPartialLoader());
+		}
+		long after = (threadBean.getCurrentThreadCpuTime() - start) / iterations / 1000;
+		
+		System.out.println(String.format("%-40s %12d %12d", stub.name, before, after));
+	}
+
+	private static void report(ModStubs stub, int iterations, boolean curse) throws IOException {
+		// Warm up, and parse all pages
+		runBefore(stub, curse);
+		runAfter(stub, curse);
+
+		long start = threadBean.getCurrentThreadCpuTime();
+		for (int i = 0; i < iterations; i++){
+			runBefore(stub, curse);
+		}
+		long before = (threadBean.getCurrentThreadCpuTime() - start) / iterations / 1000;
+
+		start = threadBean.getCurrentThreadCpuTime();
+		for (int i = 0; i < iterations; i++){
+			runAfter(stub, curse);
+		}
+		long after = (threadBean.getCurrentThreadCpuTime() - start) / iterations / 1000;
+
+		System.out.println(String.format("%-40s %12d %12d", stub.name, before, after));
+	}
+
+	// -- Runs ---------------------------------------------------------------
+
+	private static PageLoader<Document> newFullLoader(){
+		return new PageLoader<Document>() {
+			@Override
+			protected Document loadPage(URL url) throws IOException {
+				return Jsoup.parse(getSource(url), url.toString());
+			}
+		};
+	}
+	
+	private static PageLoader<Document> newPartialLoader(){
+		return new WebpageLoader() {
+			@Override
+			protected Reader openReader(URL url) throws IOException {
+				return new StringReader(getSource(url));
+			}
+		};
+	}
+	
+	private static void runAfter(ModStubs stub, boolean curse) throws IOException {
+		runCrawler(stub, curse, new PageLoader<Document>() {
+			@Override
+			protected Document loadPage(URL url) throws IOException {
+				return getDocument(url);
+			}
+		});
+	}
+	
+	/**
+	 * Loaders and crawlers must be new for each run, so no records are cached.
+	 */
+	private static void runCrawler(ModStubs stub, boolean curse, PageLoader<Document> loader) throws IOException {
+		Crawler<Document> crawler = curse ? new CurseCrawler(stub.url, loader) : new GithubHtmlCrawler(stub.url, loader);
+		crawler.setAssetSelector(new Crawler.AssetSelector() {
+			@Override
+			public Asset selectAsset(String modName, Collection<Asset> assets) {
+				return assets.iterator().next();
+			}
+		});
+		crawler.call();
+	}
+
+	private static void runBefore(ModStubs stub, boolean curse) throws IOException {
+		if (curse){
+			Document page = getDocument(stub.url);
+			LegacyCurse.getName(page);
+			LegacyCurse.getNewestAsset(page);
+			LegacyCurse.getCreator(page);
+			LegacyCurse.getUpdatedOn(page);
+			LegacyCurse.getUpdatedOn(page);
+			LegacyCurse.getKspVersion(page);
+			LegacyCurse.getNewestAsset(page);  // Version parsed from file name
+		} else {
+			Document page = getDocument(new GithubHtmlCrawler(stub.url, null).getApiUrl());
+			LegacyGithub.getName(page);
+			LegacyGithub.getNewestAsset(page);
+			LegacyGithub.getCreator(page);
+			LegacyGithub.getUpdatedOn(page);
+			LegacyGithub.getUpdatedOn(page);
+			LegacyGithub.getVersionString(page);
+		}
+	}
+
+	private static Document getDocument(URL url) throws IOException {
+		if (!pages.containsKey(url)){
+			pages.put(url, Jsoup.parse(getSource(url), url.toString()));
+		}
+		return pages.get(url);
+	}
+	
+	private static String getSource(URL url) throws IOException {
+		if (!sources.containsKey(url)){
+			String resourceName = "html/" + Crawler.urlToId(url);
+			try(InputStream is = CrawlerBenchmark.class.getClassLoader().getResourceAsStream(resourceName)){
+				if (is == null){
+					throw new IOException("Missing page: " + resourceName);
+				}
+				sources.put(url, IOUtils.toString(is, "UTF-8"));
+			}
+		}
+		return sources.get(url);
+	}
+
+	// -- Legacy Accessors -----------------------------------------------------
+
+	private static class LegacyCurse {
+
+		private static String getName(Document page){
+			return page.getElementById("project-overview").getElementsByClass("caption").first().text();
+		}
+
+		private static String getCreator(Document page){
+			Element ele = page.getElementById("project-overview").getElementsContainingOwnText("Manager").first();
+			return ele.text().split(":")[1].trim();
+		}
+
+		private static String getUpdatedOn(Document page){
+			Element ele = page.getElementById("project-overview").getElementsContainingOwnText("Updated").first();
+			return ele.text().replace("Updated", "").trim();
+		}
+
+		private static String getKspVersion(Document page){
+			return page.select("li.version").first().text().split(":")[1].trim();
+		}
+
+		private static String getNewestAsset(Document page) throws IOException {
+			Element ele = page.getElementById("project-overview").getElementsContainingOwnText("Newest File").first();
+			String fileName = ele.text().split(":")[1].trim();
+
+			URL downloadPageUrl = new URL(page.select("ul.regular-dl a").first().absUrl("href"));
+			getDocument(downloadPageUrl).select("a.download-link").first().absUrl("data-href");
+			return fileName;
+		}
+	}
+
+	private static class LegacyGithub {
+
+		private static Element getLatestReleaseElement(Document page){
+			for (Element releaseElement : page.select("div[class~=release label]")){
+				if (releaseElement.classNames().contains("label-prerelease")){
+					continue;
+				}
+				for (Element assetLink : releaseElement.select("ul.release-downloads li a")){
+					if (assetLink.html().contains("octicon-package")){
+						return releaseElement;
+					}
+				}
+			}
+			return null;
+		}
+
+		private static String getName(Document page){
+			return page.select("h1.entry-title strong > a").text();
+		}
+
+		private static String getNewestAsset(Document page){
+			for (Element assetLink : getLatestReleaseElement(page).select("ul.release-downloads li a")){
+				if (assetLink.html().contains("octicon-package")){
+					return assetLink.absUrl("href");
+				}
+			}
+			return null;
+		}
+
+		private static String getCreator(Document page){
+			return getLatestReleaseElement(page).select(" p.release-authorship a").first().text();
+		}
+
+		private static String getUpdatedOn(Document page){
+			return getLatestReleaseElement(page).select("p.release-authorship time").first().attr("datetime");
+		}
+
+		private static String getVersionString(Document page){
+			return getLatestReleaseElement(page).select("span.css-truncate-target").text();
+		}
+	}
+}
@@ -11,6 +11,7 @@ import org.junit.Test;
 import aohara.tinkertime.crawlers.Crawler;
 import aohara.tinkertime.crawlers.CrawlerFactory;
 import aohara.tinkertime.crawlers.CrawlerFactory.UnsupportedHostException;
+import aohara.tinkertime.crawlers.CrawlerProvider.Capability;
 import aohara.tinkertime.crawlers.CurseCrawler;
 import aohara.tinkertime.crawlers.GithubHtmlCrawler;
 import aohara.tinkertime.crawlers.GithubJsonCrawler;
@@ -63,5 +64,23 @@ public class TestCrawlerFactory {
 		factory.setFallbacksEnabled(true);
 		test("https://www.github.com/bar/foo", GithubHtmlCrawler.class, true);
 	}
-
+	
+	@Test
+	public void testModuleManager() throws UnsupportedHostException{
+		assertTrue(factory.getCrawler(CrawlerFactory.getModuleManagerUrl()) instanceof JenkinsCrawler);
+	}
+	
+	@Test(expected = UnsupportedHostException.class)
+	public void testUnsupportedHost() throws MalformedURLException, UnsupportedHostException{
+		factory.getCrawler(new URL("http://notcurse.com/foo"));
+	}
+	
+	@Test
+	public void testCapabilities(){
+		CrawlerRegistry registry = factory.getRegistry();
+		assertTrue(registry.hasCapability("www.curse.com", Capability.STREAMING));
+		assertFalse(registry.hasCapability("kerbalstuff.com", Capability.STREAMING));
+		assertFalse(registry.hasCapability("example.com", Capability.STREAMING));
+		assertEquals(2, registry.getProviders(Capability.STREAMING).size());
+	}
 }
@@ -0,0 +1,137 @@
+package aohara.tinkertime.crawlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.common.Version;
+import aohara.tinkertime.resources.UpdateCheckCache;
+
+import com.google.gson.Gson;
+
+public class TestGithubReleaseFeed {
+	
+	private static final String FEED =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+		"<feed xmlns=\"http://www.w3.org/2005/Atom\">\n" +
+		"  <id>tag:github.com,2008:https://github.com/owner/repo/releases</id>\n" +
+		"  <title>Release notes from repo</title>\n" +
+		"  <entry>\n" +
+		"    <id>tag:github.com,2008:Repository/1/v1.1</id>\n" +
+		"    <title>v1.1</title>\n" +
+		"  </entry>\n" +
+		"  <entry>\n" +
+		"    <id>tag:github.com,2008:Repository/1/v1.0</id>\n" +
+		"  </entry>\n" +
+		"</feed>\n";
+	
+	private URL pageUrl;
+	private String newestEntry;
+	private int fullProbes;
+	private GithubReleaseFeed feed;
+	private Callable<VersionProbe> fullProbe;
+	
+	@Before
+	public void setUp() throws IOException {
+		pageUrl = new URL("https://github.com/owner/repo/releases");
+		fullProbes = 0;
+		feed = newFeed();
+		fullProbe = new Callable<VersionProbe>(){
+			@Override
+			public VersionProbe call() {
+				fullProbes++;
+				return new VersionProbe(Version.valueOf("1.1.0"), null);
+			}
+		};
+	}
+	
+	private GithubReleaseFeed newFeed(){
+		return new GithubReleaseFeed(null){
+			@Override
+			String getNewestEntry(URL feedUrl) throws IOException {
+				if (newestEntry == null){
+					throw new IOException("Feed unavailable");
+				}
+				return newestEntry;
+			}
+		};
+	}
+	
+	@Test
+	public void testReadNewestEntry() throws IOException {
+		assertEquals("tag:github.com,2008:Repository/1/v1.1", GithubReleaseFeed.readNewestEntry(new StringReader(FEED)));
+	}
+	
+	@Test
+	public void testReadEmptyFeed() throws IOException {
+		String empty = "<feed>\n  <id>tag:github.com,2008:https://github.com/owner/repo/releases</id>\n</feed>\n";
+		assertNull(GithubReleaseFeed.readNewestEntry(new StringReader(empty)));
+	}
+	
+	@Test
+	public void testFeedUrl() throws IOException {
+		assertEquals(new URL("https://github.com/owner/repo/releases.atom").toString(), GithubReleaseFeed.getFeedUrl(pageUrl).toString());
+		assertEquals(
+			new URL("https://github.com/owner/repo/releases.atom").toString(),
+			GithubReleaseFeed.getFeedUrl(new URL("https://github.com/owner/repo/")).toString()
+		);
+	}
+	
+	@Test
+	public void testUnchangedFeedReusesProbe() throws IOException {
+		newestEntry = "v1.1";
+		VersionProbe first = feed.probe(pageUrl, fullProbe);
+		VersionProbe second = feed.probe(pageUrl, fullProbe);
+		
+		assertSame(first, second);
+		assertEquals(1, fullProbes);
+	}
+	
+	@Test
+	public void testNewEntryRunsFullProbe() throws IOException {
+		newestEntry = "v1.1";
+		feed.probe(pageUrl, fullProbe);
+		newestEntry = "v1.2";
+		feed.probe(pageUrl, fullProbe);
+		
+		assertEquals(2, fullProbes);
+	}
+	
+	@Test
+	public void testUnreadableFeedRunsFullProbe() throws IOException {
+		feed.probe(pageUrl, fullProbe);
+		feed.probe(pageUrl, fullProbe);
+		
+		assertEquals(2, fullProbes);
+	}
+	
+	@Test
+	public void testProbeRestoredAfterRestart() throws IOException {
+		Path path = Files.createTempFile("updateChecks", ".json");
+		try {
+			Files.delete(path);
+			newestEntry = "v1.1";
+			feed.setStore(new UpdateCheckCache(path, new Gson()));
+			feed.probe(pageUrl, fullProbe);
+			
+			GithubReleaseFeed restarted = newFeed();
+			restarted.setStore(new UpdateCheckCache(path, new Gson()));
+			VersionProbe probe = restarted.probe(pageUrl, fullProbe);
+			
+			assertEquals(1, fullProbes);
+			assertEquals("1.1.0", probe.version.toString());
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+}
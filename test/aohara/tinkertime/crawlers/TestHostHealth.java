@@ -0,0 +1,81 @@
+package aohara.tinkertime.crawlers;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import org.junit.Test;
+
+import aohara.tinkertime.net.HttpStatusException;
+
+public class TestHostHealth {
+	
+	private static final String HOST = "api.github.com";
+	
+	@Test
+	public void testAvailableByDefault(){
+		assertTrue(new HostHealth().isAvailable(HOST));
+	}
+	
+	@Test
+	public void testOpenAfterConsecutiveFailures(){
+		HostHealth health = new HostHealth();
+		for (int i = 1; i < HostHealth.FAILURE_THRESHOLD; i++){
+			health.recordFailure(HOST, new SocketTimeoutException());
+		}
+		assertTrue(health.isAvailable(HOST));
+		
+		health.recordFailure(HOST, new SocketTimeoutException());
+		assertFalse(health.isAvailable(HOST));
+		assertTrue(health.isAvailable("github.com"));
+	}
+	
+	@Test
+	public void testSuccessResetsFailures(){
+		HostHealth health = new HostHealth();
+		for (int i = 1; i < HostHealth.FAILURE_THRESHOLD; i++){
+			health.recordFailure(HOST, new SocketTimeoutException());
+		}
+		health.recordSuccess(HOST);
+		health.recordFailure(HOST, new SocketTimeoutException());
+		assertTrue(health.isAvailable(HOST));
+	}
+	
+	@Test
+	public void testClientErrorsIgnored() throws IOException {
+		HostHealth health = new HostHealth();
+		for (int i = 0; i < HostHealth.FAILURE_THRESHOLD; i++){
+			health.recordFailure(HOST, new HttpStatusException(new URL("https://" + HOST), 404, -1));
+			health.recordFailure(HOST, new IOException("Unexpected Json structure"));
+		}
+		assertTrue(health.isAvailable(HOST));
+	}
+	
+	@Test
+	public void testOpenImmediatelyWhenRateLimited() throws IOException {
+		HostHealth health = new HostHealth();
+		health.recordFailure(HOST, new HttpStatusException(new URL("https://" + HOST), HttpStatusException.FORBIDDEN, -1, true));
+		assertFalse(health.isAvailable(HOST));
+	}
+	
+	@Test
+	public void testForbiddenWithoutRateLimitIgnored() throws IOException {
+		HostHealth health = new HostHealth();
+		health.recordFailure(HOST, new HttpStatusException(new URL("https://" + HOST), HttpStatusException.FORBIDDEN, -1));
+		assertTrue(health.isAvailable(HOST));
+	}
+	
+	@Test
+	public void testHalfOpenAfterRetryAfter() throws IOException {
+		HostHealth health = new HostHealth();
+		health.recordFailure(HOST, new HttpStatusException(new URL("https://" + HOST), HttpStatusException.TOO_MANY_REQUESTS, 0));
+		assertTrue(health.isAvailable(HOST));
+		
+		// A failure while half-open reopens the circuit
+		health.recordFailure(HOST, new SocketTimeoutException());
+		assertFalse(health.isAvailable(HOST));
+	}
+}
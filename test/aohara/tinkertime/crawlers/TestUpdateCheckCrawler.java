@@ -0,0 +1,55 @@
+package aohara.tinkertime.crawlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.util.Date;
+
+import org.junit.Test;
+
+import aohara.common.Version;
+import aohara.tinkertime.crawlers.CrawlerFactory.UnsupportedHostException;
+import aohara.tinkertime.crawlers.pageLoaders.JsonLoader;
+import aohara.tinkertime.crawlers.pageLoaders.WebpageLoader;
+import aohara.tinkertime.testutil.ModStubs;
+
+public class TestUpdateCheckCrawler {
+	
+	private static class FailingLoader extends WebpageLoader {
+		
+		private int numRequests = 0;
+		
+		@Override
+		protected Reader openReader(URL url) throws IOException {
+			numRequests++;
+			throw new IOException("Host unavailable");
+		}
+	}
+	
+	@Test
+	public void testFailedCheckThrownOnce() throws UnsupportedHostException {
+		FailingLoader loader = new FailingLoader();
+		CrawlerFactory factory = new CrawlerFactory(loader, new JsonLoader());
+		factory.setFallbacksEnabled(false);
+		factory.setReleaseFeed(null);
+		
+		UpdateCheckCrawler checker = new UpdateCheckCrawler(
+			factory.getCrawler(ModStubs.Mechjeb.url, false), Version.valueOf("1.0.0"), new Date(0)
+		);
+		for (int i = 0; i < 2; i++){
+			try {
+				checker.isUpdateAvailable();
+				fail("Failed check should not report that no update is available");
+			} catch (IOException e){
+				// Expected
+			}
+		}
+		
+		assertFalse(checker.wasChecked());
+		assertEquals(1, loader.numRequests);
+	}
+}
@@ -0,0 +1,65 @@
+package aohara.tinkertime.crawlers.pageLoaders;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+public class TestWebpageLoader {
+	
+	private static final String MARKER = "id=\"end\"";
+	
+	private static class StubExtractor extends PartialHtmlExtractor<PageRecord> {
+		
+		private int scanned = 0;
+		
+		@Override
+		public int findEnd(StringBuilder html, int newStart){
+			scanned += html.length() - newStart;
+			return findTagStart(html, MARKER, searchStart(MARKER, newStart));
+		}
+		
+		@Override
+		public PageRecord extract(Document page) throws IOException {
+			return null;
+		}
+	}
+	
+	private static String page(int markerIndex, int length){
+		StringBuilder builder = new StringBuilder();
+		while (builder.length() < markerIndex - 5){
+			builder.append('x');
+		}
+		builder.append("<div ").append(MARKER).append('>');
+		while (builder.length() < length){
+			builder.append('x');
+		}
+		return builder.toString();
+	}
+	
+	@Test
+	public void testReadUntilEnd() throws IOException {
+		String page = page(20000, 100000);
+		StubExtractor extractor = new StubExtractor();
+		
+		assertEquals(page.substring(0, 19995), WebpageLoader.read(new StringReader(page), extractor));
+		assertEquals(3 * 8 * 1024, extractor.scanned);
+	}
+	
+	@Test
+	public void testMarkerAcrossChunks() throws IOException {
+		String page = page(8 * 1024 - 3, 100000);
+		
+		assertEquals(page.substring(0, 8 * 1024 - 8), WebpageLoader.read(new StringReader(page), new StubExtractor()));
+	}
+	
+	@Test
+	public void testEndNotFound() throws IOException {
+		String page = "<html>no marker</html>";
+		
+		assertEquals(page, WebpageLoader.read(new StringReader(page), new StubExtractor()));
+	}
+}
@@ -0,0 +1,78 @@
+package aohara.tinkertime.crawlers.pageLoaders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class TestWeightedExpiryCache {
+	
+	private static class StubRecord extends PageRecord {
+		
+		private final long weight;
+		
+		private StubRecord(long weight){
+			this.weight = weight;
+		}
+
+		@Override
+		public long getWeight() {
+			return weight;
+		}
+	}
+	
+	@Test
+	public void testGet(){
+		WeightedExpiryCache<String> cache = new WeightedExpiryCache<>(60000, 100);
+		StubRecord record = new StubRecord(10);
+		cache.put("a", record);
+		
+		assertSame(record, cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(10, cache.getTotalWeight());
+	}
+	
+	@Test
+	public void testEvictLeastRecentlyUsed(){
+		WeightedExpiryCache<String> cache = new WeightedExpiryCache<>(60000, 100);
+		cache.put("a", new StubRecord(40));
+		cache.put("b", new StubRecord(40));
+		cache.get("a");
+		cache.put("c", new StubRecord(40));
+		
+		assertNull(cache.get("b"));
+		assertEquals(40, cache.get("a").getWeight());
+		assertEquals(40, cache.get("c").getWeight());
+		assertEquals(80, cache.getTotalWeight());
+	}
+	
+	@Test
+	public void testReplace(){
+		WeightedExpiryCache<String> cache = new WeightedExpiryCache<>(60000, 100);
+		cache.put("a", new StubRecord(40));
+		cache.put("a", new StubRecord(30));
+		
+		assertEquals(30, cache.getTotalWeight());
+	}
+	
+	@Test
+	public void testTooHeavy(){
+		WeightedExpiryCache<String> cache = new WeightedExpiryCache<>(60000, 100);
+		cache.put("a", new StubRecord(40));
+		cache.put("b", new StubRecord(101));
+		
+		assertNull(cache.get("b"));
+		assertEquals(40, cache.getTotalWeight());
+	}
+	
+	@Test
+	public void testExpired() throws InterruptedException {
+		WeightedExpiryCache<String> cache = new WeightedExpiryCache<>(1, 100);
+		cache.put("a", new StubRecord(40));
+		Thread.sleep(5);
+		
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.getTotalWeight());
+	}
+}
@@ -0,0 +1,117 @@
+package aohara.tinkertime.net;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import aohara.tinkertime.net.BandwidthLimiter.Share;
+
+public class TestBandwidthLimiter {
+	
+	private final BandwidthLimiter limiter = new BandwidthLimiter();
+	
+	private static Thread acquireInBackground(final Share share, final int bytes, final CountDownLatch done){
+		Thread thread = new Thread(new Runnable(){
+			@Override
+			public void run() {
+				try {
+					share.acquire(bytes);
+					done.countDown();
+				} catch (InterruptedIOException e) {
+					// Not done
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+	
+	@Test
+	public void testUnlimited() throws InterruptedIOException {
+		long start = System.currentTimeMillis();
+		try(Share share = limiter.open(false)){
+			for (int i = 0; i < 1000; i++){
+				share.acquire(1024 * 1024);
+			}
+		}
+		assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+	
+	@Test
+	public void testCap() throws InterruptedIOException {
+		limiter.setCap(64 * 1024);
+		long start = System.currentTimeMillis();
+		try(Share share = limiter.open(false)){
+			for (int i = 0; i < 12; i++){
+				share.acquire(4 * 1024);  // 16 KB burst, then 32 KB at the cap
+			}
+		}
+		assertTrue(System.currentTimeMillis() - start >= 400);
+	}
+	
+	@Test
+	public void testCapChangedWhileWaiting() throws InterruptedException, InterruptedIOException {
+		limiter.setCap(1024);
+		Share share = limiter.open(false);
+		share.acquire(BandwidthLimiter.MIN_BURST_BYTES);
+		
+		CountDownLatch done = new CountDownLatch(1);
+		acquireInBackground(share, 8 * 1024, done);
+		assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+		
+		limiter.setCap(0);
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testBackgroundWaitsForForegroundWithoutCap() throws InterruptedException {
+		Share foreground = limiter.open(false);
+		CountDownLatch done = new CountDownLatch(1);
+		acquireInBackground(limiter.open(true), 1024, done);
+		assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+		
+		foreground.close();
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testFairShare() throws InterruptedException {
+		limiter.setCap(256 * 1024);
+		final AtomicLong[] read = { new AtomicLong(), new AtomicLong() };
+		Thread[] threads = new Thread[read.length];
+		for (int i = 0; i < read.length; i++){
+			final AtomicLong counter = read[i];
+			threads[i] = new Thread(new Runnable(){
+				@Override
+				public void run() {
+					try(Share share = limiter.open(false)){
+						while (true){
+							share.acquire(4 * 1024);
+							counter.addAndGet(4 * 1024);
+						}
+					} catch (InterruptedIOException e) {
+						// Done
+					}
+				}
+			});
+			threads[i].start();
+		}
+		
+		Thread.sleep(1000);
+		for (Thread thread : threads){
+			thread.interrupt();
+			thread.join();
+		}
+		
+		// Turns alternate, so both get about half of the cap
+		double ratio = read[1].get() / (double) read[0].get();
+		assertTrue(ratio > 0.75 && ratio < 1.33);
+	}
+}
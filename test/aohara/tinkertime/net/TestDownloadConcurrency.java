@@ -0,0 +1,199 @@
+package aohara.tinkertime.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.tinkertime.net.DownloadConcurrency.Decision;
+import aohara.tinkertime.workflows.PriorityExecutor.Priority;
+
+public class TestDownloadConcurrency {
+	
+	private Path folder;
+	private URL url;
+	private DownloadConcurrency concurrency;
+	private long now;
+	private int numFiles = 0;
+	
+	@Before
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("downloads");
+		url = new URL("http://localhost/file.zip");
+		concurrency = new DownloadConcurrency(new HttpClient(), 4);
+		now = System.currentTimeMillis();
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(folder.toFile());
+	}
+	
+	private Path start(){
+		Path file = folder.resolve("file" + numFiles++);
+		concurrency.start(url, file);
+		return file;
+	}
+	
+	private static void write(Path file, int bytes) throws IOException {
+		Files.write(file, new byte[bytes], StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+	
+	/**
+	 * Starts a thread which acquires a transfer with the given priority.
+	 */
+	private Thread acquireLater(final String name, final Priority priority){
+		Thread thread = new Thread(){
+			@Override
+			public void run() {
+				try {
+					concurrency.acquire(url, folder.resolve(name), priority);
+				} catch (IOException e) {
+					// Interrupted
+				}
+			}
+		};
+		thread.start();
+		return thread;
+	}
+	
+	private Decision nextWindow(){
+		now += DownloadConcurrency.WINDOW_MS;
+		return concurrency.evaluate(now);
+	}
+	
+	@Test
+	public void testProbesWhileThroughputImproves() throws IOException {
+		assertEquals(2, concurrency.getLimit());
+		Path a = start(), b = start();
+		
+		write(a, 1000);
+		write(b, 1000);
+		assertEquals(3, nextWindow().limit);
+		
+		Path c = start();
+		write(a, 1000);
+		write(b, 1000);
+		write(c, 1000);
+		assertEquals(4, nextWindow().limit);
+		assertEquals(2, concurrency.getDecisions().size());
+		
+		// Never above the maximum
+		Path d = start();
+		for (Path file : new Path[]{ a, b, c, d }){
+			write(file, 1000);
+		}
+		assertNull(nextWindow());
+		assertEquals(4, concurrency.getLimit());
+	}
+	
+	@Test
+	public void testProbeRevertedWithoutGain() throws IOException {
+		Path a = start(), b = start();
+		write(a, 1000);
+		write(b, 1000);
+		assertEquals(3, nextWindow().limit);
+		
+		Path c = start();
+		write(a, 700);
+		write(b, 700);
+		write(c, 600);
+		assertEquals(2, nextWindow().limit);
+		
+		// Not probed again for a while
+		write(a, 1000);
+		write(b, 1000);
+		assertNull(nextWindow());
+	}
+	
+	@Test
+	public void testDecreaseOnTransientFailure() throws IOException {
+		concurrency.setMaxLimit(8);
+		Path a = start(), b = start(), c = start();
+		write(a, 1000);
+		write(b, 1000);
+		write(c, 1000);
+		assertEquals(3, nextWindow().limit);
+		
+		concurrency.start(url, folder.resolve("failed")).failed(new SocketTimeoutException());
+		Decision decision = nextWindow();
+		assertEquals(3, decision.previousLimit);
+		assertEquals(2, decision.limit);
+	}
+	
+	@Test
+	public void testNotCongestedByPermanentFailure() throws IOException {
+		Path a = start();
+		concurrency.start(url, folder.resolve("failed")).failed(new IOException("Not a zip"));
+		write(a, 1000);
+		assertEquals(3, nextWindow().limit);
+	}
+	
+	@Test
+	public void testAcquireWaitsForSlot() throws Exception {
+		assertEquals(2, concurrency.getLimit());
+		DownloadConcurrency.Transfer a = concurrency.acquire(url, folder.resolve("a"), Priority.Bulk);
+		concurrency.acquire(url, folder.resolve("b"), Priority.Bulk);
+		
+		Thread waiting = acquireLater("waiting", Priority.Bulk);
+		Thread.sleep(100);
+		assertTrue(waiting.isAlive());
+		assertEquals(2, concurrency.getActiveCount());
+		
+		a.finished();
+		waiting.join(1000);
+		assertFalse(waiting.isAlive());
+	}
+	
+	@Test
+	public void testInteractiveStartsWhileLimitFull() throws Exception {
+		DownloadConcurrency.Transfer a = concurrency.acquire(url, folder.resolve("a"), Priority.Background);
+		concurrency.acquire(url, folder.resolve("b"), Priority.Bulk);
+		Thread background = acquireLater("background", Priority.Background);
+		Thread.sleep(100);
+		
+		// Starts beyond the limit, ahead of the waiting background transfer
+		concurrency.acquire(url, folder.resolve("interactive"), Priority.Interactive);
+		assertEquals(3, concurrency.getActiveCount());
+		assertTrue(background.isAlive());
+		
+		// Waits only behind the running transfers, ahead of the background transfer
+		Thread interactive = acquireLater("interactive2", Priority.Interactive);
+		Thread.sleep(100);
+		assertTrue(interactive.isAlive());
+		
+		a.finished();
+		interactive.join(1000);
+		assertFalse(interactive.isAlive());
+		Thread.sleep(100);
+		assertTrue(background.isAlive());
+		
+		background.interrupt();
+		background.join(1000);
+	}
+	
+	@Test
+	public void testLoweredMaximum(){
+		concurrency.setMaxLimit(1);
+		assertEquals(1, concurrency.getLimit());
+		assertEquals("Maximum lowered", concurrency.getDecisions().get(0).reason);
+	}
+	
+	@Test
+	public void testIdle(){
+		assertNull(nextWindow());
+		assertTrue(concurrency.getThroughput() < 0);
+	}
+}
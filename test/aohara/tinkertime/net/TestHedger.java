@@ -0,0 +1,116 @@
+package aohara.tinkertime.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestHedger {
+	
+	private static Callable<Integer> sleeping(final AtomicInteger calls, final long firstSleepMs){
+		return sleeping(calls, 0, firstSleepMs, null, true);
+	}
+	
+	/**
+	 * Returns a request which waits before it is sent, and then sleeps for
+	 * its response, the first time for longer than the others.
+	 */
+	private static Callable<Integer> sleeping(final AtomicInteger calls, final long firstWaitMs, final long firstSleepMs, final HttpURLConnection firstConn, final boolean hedgeable){
+		return new Callable<Integer>(){
+			@Override
+			public Integer call() throws Exception {
+				int call = calls.incrementAndGet();
+				Thread.sleep(call == 1 ? firstWaitMs : 0);
+				Hedger.requestSent(call == 1 ? firstConn : null, hedgeable);
+				Thread.sleep(call == 1 ? firstSleepMs : 1);
+				return call;
+			}
+		};
+	}
+	
+	private static Hedger warmedUp(long latencyMs) throws IOException {
+		Hedger hedger = new Hedger();
+		for (int i = 0; i < Hedger.MIN_SAMPLES; i++){
+			hedger.call(sleeping(new AtomicInteger(1), latencyMs));
+		}
+		assertTrue(hedger.getThresholdMs() >= 0);
+		return hedger;
+	}
+	
+	@Test
+	public void testNotHedgedWithoutLatencies() throws IOException {
+		Hedger hedger = new Hedger();
+		AtomicInteger calls = new AtomicInteger();
+		
+		assertEquals(-1, hedger.getThresholdMs());
+		assertEquals(1, (int) hedger.call(sleeping(calls, 50)));
+		assertEquals(1, calls.get());
+	}
+	
+	@Test
+	public void testSlowRequestHedged() throws IOException {
+		Hedger hedger = warmedUp(0);
+		
+		AtomicInteger calls = new AtomicInteger();
+		long start = System.currentTimeMillis();
+		assertEquals(2, (int) hedger.call(sleeping(calls, 5000)));
+		assertTrue(System.currentTimeMillis() - start < 2500);
+	}
+	
+	@Test
+	public void testWaitBeforeSendingNotTimed() throws IOException {
+		Hedger hedger = warmedUp(100);
+		
+		AtomicInteger calls = new AtomicInteger();
+		assertEquals(1, (int) hedger.call(sleeping(calls, 500, 0, null, true)));
+		assertEquals(1, calls.get());
+	}
+	
+	@Test
+	public void testRateLimitedRequestNotHedged() throws IOException {
+		Hedger hedger = warmedUp(0);
+		
+		AtomicInteger calls = new AtomicInteger();
+		assertEquals(1, (int) hedger.call(sleeping(calls, 0, 200, null, false)));
+		assertEquals(1, calls.get());
+	}
+	
+	@Test
+	public void testLosingRequestDisconnected() throws IOException {
+		Hedger hedger = warmedUp(0);
+		StubConnection conn = new StubConnection();
+		
+		assertEquals(2, (int) hedger.call(sleeping(new AtomicInteger(), 0, 5000, conn, true)));
+		assertTrue(conn.disconnected);
+	}
+	
+	private static class StubConnection extends HttpURLConnection {
+		
+		private volatile boolean disconnected = false;
+		
+		private StubConnection() throws IOException {
+			super(new URL("http://localhost/"));
+		}
+		
+		@Override
+		public void disconnect() {
+			disconnected = true;
+		}
+		
+		@Override
+		public boolean usingProxy() {
+			return false;
+		}
+		
+		@Override
+		public void connect() {
+			// No Action
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package aohara.tinkertime.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestHttpClient {
+	
+	private static class StubResponse {
+		
+		private final int status;
+		private final String[] headers;
+		
+		private StubResponse(int status, String... headers){
+			this.status = status;
+			this.headers = headers;
+		}
+	}
+	
+	private final Queue<StubResponse> responses = new LinkedList<>();
+	private final List<Integer> clientPorts = new LinkedList<>();
+	private HttpServer server;
+	private HttpClient client;
+	private URL url;
+	private int requests;
+	
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler(){
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				StubResponse response;
+				synchronized(responses){
+					requests++;
+					clientPorts.add(exchange.getRemoteAddress().getPort());
+					response = responses.isEmpty() ? new StubResponse(200) : responses.remove();
+				}
+				for (int i = 0; i < response.headers.length; i += 2){
+					exchange.getResponseHeaders().add(response.headers[i], response.headers[i + 1]);
+				}
+				
+				byte[] body = getBody(exchange.getRequestURI().getPath());
+				String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				if (acceptEncoding != null && acceptEncoding.contains("gzip")){
+					body = gzip(body);
+					exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+				}
+				exchange.sendResponseHeaders(response.status, body.length);
+				try(OutputStream os = exchange.getResponseBody()){
+					os.write(body);
+				}
+			}
+		});
+		server.start();
+		
+		client = new HttpClient();
+		url = new URL("http", "localhost", server.getAddress().getPort(), "/page");
+	}
+	
+	@After
+	public void tearDown(){
+		server.stop(0);
+	}
+	
+	private static byte[] getBody(String path) throws IOException {
+		if (path.equals("/large")){
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < 10000; i++){
+				builder.append("line ").append(i).append('\n');
+			}
+			return builder.toString().getBytes("UTF-8");
+		}
+		return "body".getBytes("UTF-8");
+	}
+	
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(GZIPOutputStream gzip = new GZIPOutputStream(bytes)){
+			gzip.write(body);
+		}
+		return bytes.toByteArray();
+	}
+	
+	private String get(URL url) throws IOException {
+		try(InputStream is = client.open(url).getInputStream()){
+			return IOUtils.toString(is, "UTF-8");
+		}
+	}
+	
+	@Test
+	public void testRecordsRateLimit() throws IOException {
+		long reset = System.currentTimeMillis() / 1000 + 3600;
+		responses.add(new StubResponse(200,
+			"X-RateLimit-Limit", "60",
+			"X-RateLimit-Remaining", "59",
+			"X-RateLimit-Reset", Long.toString(reset)
+		));
+		
+		assertEquals("body", get(url));
+		HostBudget budget = client.getBudget("localhost");
+		assertEquals(60, budget.getRateLimit());
+		assertEquals(59, budget.getRateLimitRemaining());
+		assertEquals(reset * 1000, budget.getRateLimitReset());
+		assertEquals(1, budget.getRequestCount());
+	}
+	
+	@Test
+	public void testRetryAfter() throws IOException {
+		responses.add(new StubResponse(429, "Retry-After", "0"));
+		
+		String body = new RetryPolicy(3, 0, 0).call(new Callable<String>(){
+			@Override
+			public String call() throws IOException {
+				return get(url);
+			}
+		});
+		assertEquals("body", body);
+		assertEquals(2, requests);
+		assertEquals(1, client.getBudget("localhost").getThrottledCount());
+	}
+	
+	@Test
+	public void testThrottledRequestMadeOnce() throws IOException {
+		responses.add(new StubResponse(429, "Retry-After", "0"));
+		
+		try {
+			get(url);
+			fail("Expected rate limit");
+		} catch (HttpStatusException e){
+			assertEquals(HttpStatusException.TOO_MANY_REQUESTS, e.status);
+			assertEquals(1, requests);
+		}
+	}
+	
+	@Test
+	public void testFailFastWhileRateLimitUsedUp() throws IOException {
+		String reset = Long.toString(System.currentTimeMillis() / 1000 + 3600);
+		responses.add(new StubResponse(403,
+			"X-RateLimit-Remaining", "0",
+			"X-RateLimit-Reset", reset
+		));
+		
+		try {
+			get(url);
+			fail("Expected rate limit");
+		} catch (HttpStatusException e){
+			assertEquals(403, e.status);
+		}
+		
+		// The host is not requested again until the limit resets
+		try {
+			get(url);
+			fail("Expected rate limit");
+		} catch (HttpStatusException e){
+			assertEquals(HttpStatusException.TOO_MANY_REQUESTS, e.status);
+		}
+		assertEquals(1, requests);
+	}
+	
+	@Test
+	public void testErrorNotRetried() throws IOException {
+		responses.add(new StubResponse(404));
+		
+		try {
+			get(url);
+			fail("Expected not found");
+		} catch (HttpStatusException e){
+			assertEquals(404, e.status);
+			assertEquals(1, requests);
+		}
+	}
+	
+	@Test
+	public void testCompressed() throws IOException {
+		URLConnection conn = client.open(url, true);
+		assertEquals("gzip", conn.getContentEncoding());
+		try(InputStream is = HttpClient.getContent(conn)){
+			assertEquals("body", IOUtils.toString(is, "UTF-8"));
+		}
+	}
+	
+	@Test
+	public void testConnectionReusedAfterPartialRead() throws IOException {
+		URL largeUrl = new URL(url, "/large");
+		for (int i = 0; i < 2; i++){
+			try(InputStream is = HttpClient.getContent(client.open(largeUrl, true))){
+				assertEquals('l', is.read());
+			}
+		}
+		assertEquals(2, clientPorts.size());
+		assertEquals(clientPorts.get(0), clientPorts.get(1));
+	}
+	
+	@Test
+	public void testWrappedUrl() throws IOException {
+		try(InputStream is = client.wrap(url).openStream()){
+			assertEquals("body", IOUtils.toString(is, "UTF-8"));
+		}
+		assertEquals(1, client.getBudget("localhost").getRequestCount());
+	}
+	
+	@Test
+	public void testWrappedUrlNotifiesListener() throws IOException {
+		final List<URLConnection> opened = new LinkedList<>();
+		URL wrapped = client.wrap(url, new HttpClient.ConnectionListener() {
+			@Override
+			public void connectionOpened(URLConnection conn) {
+				opened.add(conn);
+			}
+		});
+		
+		try(InputStream is = wrapped.openStream()){
+			assertEquals("body", IOUtils.toString(is, "UTF-8"));
+		}
+		assertEquals(1, opened.size());
+		assertEquals(url, opened.get(0).getURL());
+	}
+	
+	@Test
+	public void testWrappedUrlReadThroughShare() throws IOException {
+		BandwidthLimiter limiter = client.getBandwidthLimiter();
+		limiter.setCap(1024 * 1024);
+		try(BandwidthLimiter.Share share = limiter.open(false)){
+			URLConnection conn = client.wrap(new URL(url, "/large"), null, share).openConnection();
+			assertTrue(conn instanceof HttpURLConnection);
+			assertEquals(200, ((HttpURLConnection) conn).getResponseCode());
+			try(InputStream is = conn.getInputStream()){
+				assertEquals(getBody("/large").length, IOUtils.toByteArray(is).length);
+			}
+		}
+	}
+}
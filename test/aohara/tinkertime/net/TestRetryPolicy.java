@@ -0,0 +1,90 @@
+package aohara.tinkertime.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestRetryPolicy {
+	
+	private final RetryPolicy policy = new RetryPolicy(3, 1, 4);
+	
+	private static Callable<String> failing(final AtomicInteger calls, final int failures, final IOException e){
+		return new Callable<String>(){
+			@Override
+			public String call() throws IOException {
+				if (calls.incrementAndGet() <= failures){
+					throw e;
+				}
+				return "done";
+			}
+		};
+	}
+	
+	private static HttpStatusException status(int status) throws IOException {
+		return new HttpStatusException(new URL("http://localhost"), status, -1);
+	}
+	
+	@Test
+	public void testRetryTransient() throws IOException {
+		AtomicInteger calls = new AtomicInteger();
+		assertEquals("done", policy.call(failing(calls, 2, new SocketTimeoutException())));
+		assertEquals(3, calls.get());
+	}
+	
+	@Test
+	public void testGiveUpAfterMaxAttempts() throws IOException {
+		AtomicInteger calls = new AtomicInteger();
+		try {
+			policy.call(failing(calls, 3, status(502)));
+			fail("Expected failure");
+		} catch (HttpStatusException e){
+			assertEquals(502, e.status);
+		}
+		assertEquals(3, calls.get());
+	}
+	
+	@Test
+	public void testClientErrorNotRetried() throws IOException {
+		AtomicInteger calls = new AtomicInteger();
+		try {
+			policy.call(failing(calls, 1, status(404)));
+			fail("Expected failure");
+		} catch (HttpStatusException e){
+			assertEquals(1, calls.get());
+		}
+	}
+	
+	@Test
+	public void testRetryable() throws IOException {
+		assertTrue(RetryPolicy.isRetryable(status(503)));
+		assertTrue(RetryPolicy.isRetryable(new SocketTimeoutException()));
+		assertFalse(RetryPolicy.isRetryable(status(404)));
+		assertFalse(RetryPolicy.isRetryable(new IOException("Unexpected Json structure")));
+	}
+	
+	@Test
+	public void testShortRateLimitRetryable() throws IOException {
+		URL url = new URL("http://localhost");
+		assertTrue(RetryPolicy.isRetryable(status(429)));
+		assertTrue(RetryPolicy.isRetryable(new HttpStatusException(url, 403, 1000)));
+		assertFalse(RetryPolicy.isRetryable(new HttpStatusException(url, 429, HttpClient.MAX_RETRY_WAIT_MS + 1)));
+		assertFalse(RetryPolicy.isRetryable(new HttpStatusException(url, 403, -1, true)));
+	}
+	
+	@Test
+	public void testDelayWithinBackoff(){
+		for (int attempt = 1; attempt < 10; attempt++){
+			long delay = policy.getDelayMs(attempt);
+			assertTrue(delay >= 0 && delay <= Math.min(4, 1 << (attempt - 1)));
+		}
+	}
+}
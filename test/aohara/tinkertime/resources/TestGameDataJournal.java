@@ -0,0 +1,151 @@
+package aohara.tinkertime.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.tinkertime.TinkerConfig;
+import aohara.tinkertime.testutil.MockHelper;
+
+public class TestGameDataJournal {
+	
+	private Path kspFolder;
+	private TinkerConfig config;
+	private GameDataJournal journal;
+	
+	@Before
+	public void setUp() throws IOException {
+		kspFolder = Files.createTempDirectory("ksp");
+		config = MockHelper.newConfig(kspFolder);
+		journal = new GameDataJournal(config);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(kspFolder.toFile());
+	}
+	
+	private Path write(Path path, String contents) throws IOException {
+		Files.createDirectories(path.getParent());
+		return Files.write(path, contents.getBytes());
+	}
+	
+	private String read(Path path) throws IOException {
+		return new String(Files.readAllBytes(path));
+	}
+	
+	private Path gameData(String path){
+		return config.getGameDataPath().resolve(path);
+	}
+	
+	@Test
+	public void testInstallNewFolder() throws IOException {
+		Path staging = config.getStagingPath().resolve("mod");
+		write(staging.resolve("Mod/Plugins/Mod.dll"), "dll");
+		
+		journal.install(staging);
+		
+		assertEquals("dll", read(gameData("Mod/Plugins/Mod.dll")));
+		assertFalse(Files.exists(staging));
+	}
+	
+	@Test
+	public void testInstallMergesIntoExistingFolder() throws IOException {
+		write(gameData("Shared/Other.dll"), "other");
+		write(gameData("Shared/Common.cfg"), "old");
+		Path staging = config.getStagingPath().resolve("mod");
+		write(staging.resolve("Shared/Mod.dll"), "mod");
+		write(staging.resolve("Shared/Common.cfg"), "new");
+		
+		journal.install(staging);
+		
+		assertEquals("other", read(gameData("Shared/Other.dll")));
+		assertEquals("mod", read(gameData("Shared/Mod.dll")));
+		assertEquals("new", read(gameData("Shared/Common.cfg")));
+		assertEquals(0, config.getJournalPath().toFile().list().length);
+	}
+	
+	@Test
+	public void testRemove() throws IOException {
+		write(gameData("Mod/Plugins/Mod.dll"), "dll");
+		write(gameData("Shared/Mod.cfg"), "cfg");
+		write(gameData("Shared/Other.cfg"), "other");
+		
+		journal.remove(Arrays.asList(
+			gameData("Mod"), gameData("Mod/Plugins"), gameData("Mod/Plugins/Mod.dll"), gameData("Shared/Mod.cfg")
+		));
+		
+		assertFalse(Files.exists(gameData("Mod")));
+		assertFalse(Files.exists(gameData("Shared/Mod.cfg")));
+		assertTrue(Files.exists(gameData("Shared/Other.cfg")));
+		assertEquals(0, config.getJournalPath().toFile().list().length);
+	}
+	
+	@Test
+	public void testRecoverReplaysCommittedChange() throws IOException {
+		Path staging = config.getStagingPath().resolve("mod");
+		write(staging.resolve("Mod/Mod.dll"), "dll");
+		write(config.getJournalPath().resolve("crashed.log"), String.format(
+			"MOVE\t%s\t%s\nDELETE\t%s\nCOMMIT\n", staging.resolve("Mod"), gameData("Mod"), staging
+		));
+		
+		journal.recover();
+		
+		assertEquals("dll", read(gameData("Mod/Mod.dll")));
+		assertEquals(0, config.getJournalPath().toFile().list().length);
+		assertEquals(0, config.getStagingPath().toFile().list().length);
+	}
+	
+	@Test
+	public void testRecoverDiscardsUncommittedChange() throws IOException {
+		Path staging = config.getStagingPath().resolve("mod");
+		write(staging.resolve("Mod/Mod.dll"), "dll");
+		write(config.getJournalPath().resolve("crashed.log"), String.format(
+			"MOVE\t%s\t%s\n", staging.resolve("Mod"), gameData("Mod")
+		));
+		
+		journal.recover();
+		
+		assertFalse(Files.exists(gameData("Mod")));
+		assertEquals(0, config.getJournalPath().toFile().list().length);
+		assertEquals(0, config.getStagingPath().toFile().list().length);
+	}
+	
+	@Test
+	public void testRecoverRollsBackFailedMerge() throws IOException {
+		write(gameData("Shared/Common.cfg"), "old");
+		Path staging = config.getStagingPath().resolve("mod");
+		write(staging.resolve("Shared/Common.cfg"), "new");
+		write(staging.resolve("Shared/Mod.dll"), "mod");
+		write(config.getJournalPath().resolve("crashed.log"), String.format(
+			"MOVE\t%s\t%s\nCORRUPT\nDELETE\t%s\nCOMMIT\n", staging.resolve("Shared"), gameData("Shared"), staging
+		));
+		
+		journal.recover();
+		
+		assertEquals("old", read(gameData("Shared/Common.cfg")));
+		assertFalse(Files.exists(gameData("Shared/Mod.dll")));
+		assertEquals(0, config.getJournalPath().toFile().list().length);
+		assertEquals(0, config.getStagingPath().toFile().list().length);
+	}
+	
+	@Test
+	public void testRecoverKeepsUnjournaledStaging() throws IOException {
+		Path staging = config.getStagingPath().resolve("downloading");
+		write(staging.resolve("Mod/Mod.dll"), "dll");
+		
+		journal.recover();
+		
+		assertEquals("dll", read(staging.resolve("Mod/Mod.dll")));
+	}
+}
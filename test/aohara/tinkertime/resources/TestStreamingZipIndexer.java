@@ -0,0 +1,100 @@
+package aohara.tinkertime.resources;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.tinkertime.testutil.ModStubs;
+import aohara.tinkertime.testutil.ResourceLoader;
+
+public class TestStreamingZipIndexer {
+	
+	private Path stagingFolder;
+	
+	@Before
+	public void setUp() throws IOException {
+		stagingFolder = Files.createTempDirectory("staging");
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(stagingFolder.toFile());
+	}
+	
+	private ModStructure index(Path zipPath, Path stagingFolder) throws IOException {
+		try(InputStream is = Files.newInputStream(zipPath)){
+			return new StreamingZipIndexer(zipPath, stagingFolder).index(is);
+		}
+	}
+	
+	private void testIndex(ModStubs stub) throws IOException {
+		Path zipPath = ResourceLoader.getZipPath(stub);
+		ModStructure expected = new ModStructure(zipPath);
+		ModStructure actual = index(zipPath, null);
+		
+		assertEquals(expected.getPaths(), actual.getPaths());
+		assertEquals(expected.getReadmeText(), actual.getReadmeText());
+	}
+	
+	private void testStaging(ModStubs stub) throws IOException {
+		Path zipPath = ResourceLoader.getZipPath(stub);
+		Map<Path, ZipEntry> entries = index(zipPath, stagingFolder).getZipEntries();
+		
+		try(ZipFile zipFile = new ZipFile(zipPath.toFile())){
+			for (ZipEntry entry : entries.values()){
+				if (entry != null && !entry.isDirectory()){
+					try(InputStream is = zipFile.getInputStream(entry)){
+						assertArrayEquals(
+							IOUtils.toByteArray(is),
+							Files.readAllBytes(stagingFolder.resolve(entry.getName()))
+						);
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testIndexRadialEngines() throws IOException {
+		testIndex(ModStubs.RadialEngines);
+	}
+	
+	@Test
+	public void testIndexEnhancedNavball() throws IOException {
+		testIndex(ModStubs.NavBall);
+	}
+	
+	@Test
+	public void testIndexTweakableEverything() throws IOException {
+		testIndex(ModStubs.TweakableEverything);
+	}
+	
+	@Test
+	public void testStageEnhancedNavball() throws IOException {
+		testStaging(ModStubs.NavBall);
+	}
+	
+	@Test
+	public void testStageCollisionFx() throws IOException {
+		testStaging(ModStubs.CollisionFx);
+	}
+	
+	@Test(expected=IOException.class)
+	public void testNotAZip() throws IOException {
+		Path notAZip = Files.write(stagingFolder.resolve("notAZip.zip"), "Not a zip".getBytes());
+		index(notAZip, null);
+	}
+}
@@ -0,0 +1,134 @@
+package aohara.tinkertime.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.common.Version;
+import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.testutil.ModStubs;
+import aohara.tinkertime.testutil.ResourceLoader;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class TestUpdateCheckCache {
+	
+	private static final long HOUR_MS = 60 * 60 * 1000;
+	
+	private Path path;
+	private Mod mod;
+	
+	@Before
+	public void setUp() throws Throwable {
+		path = Files.createTempFile("updateChecks", ".json");
+		Files.delete(path);
+		mod = ResourceLoader.loadMod(ModStubs.Mechjeb);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(path);
+	}
+	
+	private UpdateCheckCache newCache(){
+		return new UpdateCheckCache(path, new Gson());
+	}
+	
+	@Test
+	public void testUncheckedModIsNotFresh(){
+		UpdateCheckCache cache = newCache();
+		assertNull(cache.get(mod));
+		assertFalse(cache.isFresh(mod, HOUR_MS, System.currentTimeMillis()));
+	}
+	
+	@Test
+	public void testResultPersisted(){
+		newCache().record(mod, Version.valueOf("2.5.0"), true);
+		
+		UpdateCheckCache.Result result = newCache().get(mod);
+		assertTrue(result.updateAvailable);
+		assertEquals("2.5.0", result.getRemoteVersion().toString());
+	}
+	
+	@Test
+	public void testResultsSavedWithoutFeedsLoaded() throws IOException {
+		newCache().record(mod, Version.valueOf("2.5.0"), true);
+		
+		// Files saved before feeds were kept hold only the results
+		JsonObject saved = new JsonParser().parse(new String(Files.readAllBytes(path), "UTF-8")).getAsJsonObject();
+		Files.write(path, saved.get("results").toString().getBytes("UTF-8"));
+		
+		assertEquals("2.5.0", newCache().get(mod).getRemoteVersion().toString());
+	}
+	
+	@Test
+	public void testRemovedResultNotPersisted(){
+		newCache().record(mod, Version.valueOf("2.5.0"), true);
+		newCache().remove(mod);
+		
+		assertNull(newCache().get(mod));
+	}
+	
+	@Test
+	public void testResultExpires(){
+		UpdateCheckCache cache = newCache();
+		cache.record(mod, null, false);
+		long now = System.currentTimeMillis();
+		
+		assertTrue(cache.isFresh(mod, HOUR_MS, now));
+		assertFalse(cache.isFresh(mod, HOUR_MS, now + 2 * HOUR_MS));
+		assertFalse(cache.isFresh(mod, 0, now));
+	}
+	
+	@Test
+	public void testNewRemoteVersionRecordedAsRelease(){
+		UpdateCheckCache cache = newCache();
+		long now = System.currentTimeMillis();
+		cache.record(mod, Version.valueOf("1.0.0"), false, now);
+		cache.record(mod, Version.valueOf("1.0.0"), false, now + HOUR_MS);
+		cache.record(mod, Version.valueOf("1.1.0"), true, now + 2 * HOUR_MS);
+		
+		List<Long> releases = newCache().getReleaseTimes(mod);
+		assertEquals(2, releases.size());
+		assertEquals(mod.updatedOn.getTime(), (long) releases.get(0));
+		assertEquals(now + 2 * HOUR_MS, (long) releases.get(1));
+	}
+	
+	@Test
+	public void testUpdateRecordedByReleaseDate(){
+		UpdateCheckCache cache = newCache();
+		long now = System.currentTimeMillis();
+		Date released = new Date(now - 3 * HOUR_MS);
+		cache.record(mod, Version.valueOf("1.1.0"), released, true, now);
+		cache.record(mod, Version.valueOf("1.1.0"), released, true, now + HOUR_MS);
+		
+		List<Long> releases = newCache().getReleaseTimes(mod);
+		assertEquals(2, releases.size());
+		assertEquals(released.getTime(), (long) releases.get(1));
+	}
+	
+	@Test
+	public void testUpdatedModInvalidatesResult(){
+		UpdateCheckCache cache = newCache();
+		cache.record(mod, null, true);
+		
+		Mod updated = new Mod(
+			mod.id, mod.name, mod.newestFileName, mod.creator, mod.pageUrl,
+			mod.updatedOn, mod.kspVersion, Version.valueOf("99.0.0")
+		);
+		assertNull(cache.get(updated));
+	}
+}
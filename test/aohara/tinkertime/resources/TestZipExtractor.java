@@ -0,0 +1,73 @@
+package aohara.tinkertime.resources;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.tinkertime.testutil.ModStubs;
+import aohara.tinkertime.testutil.ResourceLoader;
+
+public class TestZipExtractor {
+	
+	private Path destFolder;
+	
+	@Before
+	public void setUp() throws IOException {
+		destFolder = Files.createTempDirectory("extracted");
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(destFolder.toFile());
+	}
+	
+	private void testExtract(ModStubs stub) throws IOException {
+		Path zipPath = ResourceLoader.getZipPath(stub);
+		Map<Path, ZipEntry> entries = new ModStructure(zipPath).getZipEntries();
+		
+		new ZipExtractor(zipPath).extract(entries, destFolder);
+		
+		try(ZipFile zipFile = new ZipFile(zipPath.toFile())){
+			for (Map.Entry<Path, ZipEntry> mapping : entries.entrySet()){
+				Path dest = destFolder.resolve(mapping.getKey());
+				ZipEntry entry = mapping.getValue();
+				
+				if (entry == null || entry.isDirectory()){
+					assertTrue(Files.isDirectory(dest));
+				} else {
+					try(InputStream is = zipFile.getInputStream(entry)){
+						assertArrayEquals(IOUtils.toByteArray(is), Files.readAllBytes(dest));
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testRadialEngines() throws IOException {
+		testExtract(ModStubs.RadialEngines);
+	}
+	
+	@Test
+	public void testEnhancedNavballWithStoredEntries() throws IOException {
+		testExtract(ModStubs.NavBall);
+	}
+	
+	@Test
+	public void testTweakableEverythingAllDeflated() throws IOException {
+		testExtract(ModStubs.TweakableEverything);
+	}
+}
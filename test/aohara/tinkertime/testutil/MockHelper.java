@@ -2,6 +2,8 @@ package aohara.tinkertime.testutil;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
@@ -14,9 +16,7 @@ import org.jsoup.nodes.Document;
 import aohara.tinkertime.TinkerConfig;
 import aohara.tinkertime.crawlers.CrawlerFactory;
 import aohara.tinkertime.crawlers.pageLoaders.JsonLoader;
-import aohara.tinkertime.crawlers.pageLoaders.PageLoader;
-
-import com.google.gson.JsonElement;
+import aohara.tinkertime.crawlers.pageLoaders.WebpageLoader;
 
 public class MockHelper {
 	
@@ -26,7 +26,7 @@ public class MockHelper {
 	
 	public static CrawlerFactory newCrawlerFactory(){
 		CrawlerFactory factory = new CrawlerFactory(
-			new PageLoader<Document>(){
+			new WebpageLoader(){
 				@Override
 				protected Document loadPage(URL url) throws IOException {
 					String resourceName = "html/" + urlToPath(url);
@@ -37,17 +37,27 @@ public class MockHelper {
 					}
 				}
 				
+				@Override
+				protected Reader openReader(URL url) throws IOException {
+					String resourceName = "html/" + urlToPath(url);
+					InputStream is = getClass().getClassLoader().getResourceAsStream(resourceName);
+					if (is == null){
+						throw new RuntimeException("Error opening stream: " + url.toString());
+					}
+					return new InputStreamReader(is, "UTF-8");
+				}
 			},
 			new JsonLoader(){
 				@Override
-				protected JsonElement loadPage(URL url) throws IOException {
+				protected Reader openReader(URL url) throws IOException {
 					String resourceName = "json/" + urlToPath(url);
 					URL resourceUrl = getClass().getClassLoader().getResource(resourceName);
-					return super.loadPage(resourceUrl);
+					return super.openReader(resourceUrl);
 				}
 			}
 		);
 		factory.setFallbacksEnabled(false);
+		factory.setReleaseFeed(null);
 		return factory;
 	}
 	
@@ -89,4 +99,19 @@ public class MockHelper {
 			}
 		};
 	}
+	
+	/**
+	 * Returns a config whose GameData and TinkerTime folders are within the given KSP folder.
+	 */
+	public static TinkerConfig newConfig(final Path kspFolder){
+		return new TinkerConfig(null) {
+			
+			@Override
+			public Path getGameDataPath(){
+				Path path = kspFolder.resolve("GameData");
+				path.toFile().mkdirs();
+				return path;
+			}
+		};
+	}
 }
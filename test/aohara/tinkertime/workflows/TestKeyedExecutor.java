@@ -0,0 +1,82 @@
+package aohara.tinkertime.workflows;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestKeyedExecutor {
+	
+	private ExecutorService pool;
+	private KeyedExecutor executor;
+	private final List<String> started = new CopyOnWriteArrayList<>();
+	
+	@Before
+	public void setUp(){
+		pool = Executors.newFixedThreadPool(4);
+		executor = new KeyedExecutor(pool);
+	}
+	
+	@After
+	public void tearDown(){
+		pool.shutdownNow();
+	}
+	
+	private Runnable task(final String name, final CountDownLatch release, final CountDownLatch done){
+		return new Runnable(){
+			@Override
+			public void run() {
+				started.add(name);
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			}
+		};
+	}
+	
+	@Test
+	public void testUnrelatedKeysRunInParallel() throws InterruptedException {
+		CountDownLatch blocker = new CountDownLatch(1), done = new CountDownLatch(2);
+		executor.execute(Arrays.asList("mod:big", "gameData:big"), task("big", blocker, done));
+		executor.execute(Arrays.asList("mod:small", "gameData:small"), task("small", new CountDownLatch(0), done));
+		
+		// Small task finishes while the big one is still running
+		Thread.sleep(200);
+		assertEquals(1, done.getCount());
+		assertTrue(started.contains("small"));
+		
+		blocker.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testOverlappingKeysRunInOrder() throws InterruptedException {
+		CountDownLatch blocker = new CountDownLatch(1), done = new CountDownLatch(3);
+		executor.execute(Arrays.asList("mod:a", "gameData:shared"), task("a", blocker, done));
+		executor.execute(Arrays.asList("mod:b", "gameData:shared"), task("b", new CountDownLatch(0), done));
+		executor.forKeys(Collections.singleton("mod:b")).execute(task("b2", new CountDownLatch(0), done));
+		
+		Thread.sleep(200);
+		assertEquals(Arrays.asList("a"), started);
+		assertFalse(done.await(0, TimeUnit.SECONDS));
+		
+		blocker.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("a", "b", "b2"), started);
+	}
+}
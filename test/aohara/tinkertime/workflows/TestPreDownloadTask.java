@@ -0,0 +1,160 @@
+package aohara.tinkertime.workflows;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.common.Version;
+import aohara.tinkertime.TinkerConfig;
+import aohara.tinkertime.crawlers.Crawler;
+import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.resources.ModLoader;
+import aohara.tinkertime.testutil.MockHelper;
+import aohara.tinkertime.testutil.ModStubs;
+import aohara.tinkertime.testutil.ResourceLoader;
+
+public class TestPreDownloadTask {
+	
+	private static final Executor CURRENT_THREAD = new Executor(){
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+	
+	private Path kspFolder, source;
+	private TinkerConfig config;
+	private ModLoader modLoader;
+	private Crawler<?> crawler;
+	private Mod mod, update;
+	private WorkflowGraph graph;
+	
+	@Before
+	public void setUp() throws IOException {
+		kspFolder = Files.createTempDirectory("ksp");
+		config = MockHelper.newConfig(kspFolder);
+		modLoader = new ModLoader(config);
+		crawler = ResourceLoader.loadCrawler(ModStubs.NavBall);
+		update = crawler.getMod();
+		mod = new Mod(update.id, update.name, "old.zip", null, update.pageUrl, new Date(0), null, Version.valueOf("0.0.1"));
+		graph = new WorkflowGraph(new ModWorkflowBuilder(mod, null));
+		source = ResourceLoader.getZipPath(ModStubs.NavBall);
+		
+		modLoader.getUpdateChecks().record(mod, update.getVersion(), update.updatedOn, true);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(kspFolder.toFile());
+	}
+	
+	/**
+	 * Returns a task which downloads the given file instead of the mod's download link.
+	 */
+	private PreDownloadTask task(final Path source){
+		return new PreDownloadTask(crawler, config, modLoader, graph){
+			@Override
+			protected URL getUrl() throws IOException {
+				return source.toUri().toURL();
+			}
+		};
+	}
+	
+	@Test
+	public void testPreDownloadedUpdateFound() throws Exception {
+		assertTrue(task(source).execute());
+		
+		assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(modLoader.getPreDownloadPath(update)));
+		Mod preDownloaded = modLoader.getPreDownloadedUpdate(mod);
+		assertEquals(update.id, preDownloaded.id);
+		assertEquals(update.newestFileName, preDownloaded.newestFileName);
+	}
+	
+	@Test
+	public void testMatchingPreDownloadReused() throws Exception {
+		assertTrue(task(source).execute());
+		assertTrue(task(kspFolder.resolve("missing.zip")).execute());
+		
+		assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(modLoader.getPreDownloadPath(update)));
+		assertEquals(update.id, modLoader.getPreDownloadedUpdate(mod).id);
+	}
+	
+	@Test
+	public void testSameFileNameOfOlderVersionReplaced() throws Exception {
+		Path preDownloadPath = modLoader.getPreDownloadPath(update);
+		Files.createDirectories(preDownloadPath.getParent());
+		Files.write(preDownloadPath, "old".getBytes());
+		modLoader.updatePreDownloaded(new Mod(
+			update.id, update.name, update.newestFileName, update.creator, update.pageUrl,
+			update.updatedOn, update.kspVersion, Version.valueOf("0.0.2")
+		));
+		
+		assertTrue(task(source).execute());
+		
+		assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(preDownloadPath));
+		assertEquals(update.getVersion().getNormalVersion(), modLoader.getPreDownloadedUpdate(mod).getVersion().getNormalVersion());
+	}
+	
+	@Test
+	public void testOutdatedPreDownloadIgnored() throws Exception {
+		assertTrue(task(source).execute());
+		modLoader.getUpdateChecks().record(mod, Version.valueOf("99.0.0"), new Date(), true);
+		
+		assertNull(modLoader.getPreDownloadedUpdate(mod));
+	}
+	
+	@Test
+	public void testFailureIgnored() throws Exception {
+		assertTrue(task(kspFolder.resolve("missing.zip")).execute());
+		assertNull(modLoader.getPreDownloadedUpdate(mod));
+	}
+	
+	@Test
+	public void testCancelledFails() throws Exception {
+		graph.cancel();
+		try {
+			task(kspFolder.resolve("missing.zip")).execute();
+			fail("Cancelled pre-download should fail");
+		} catch (IOException e){
+			// Expected
+		}
+	}
+	
+	@Test
+	public void testUpdateAppliedWithoutCrawling() throws Exception {
+		assertTrue(task(source).execute());
+		Path oldZipPath = modLoader.getZipPath(mod);
+		Files.createDirectories(oldZipPath.getParent());
+		Files.write(oldZipPath, "old".getBytes());
+		
+		// Without a crawler factory, crawling the mod would fail the update
+		ModWorkflowBuilder builder = new ModWorkflowBuilder(mod, null);
+		builder.updateMod(config, modLoader, false, new ModWorkflowBuilder.EnablerExecutor() {
+			@Override
+			public void execute(Mod mod, ModWorkflowBuilder workflow) {
+				workflow.executeGraph(CURRENT_THREAD);
+			}
+		});
+		builder.executeGraph(CURRENT_THREAD);
+		
+		assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(modLoader.getZipPath(update)));
+		assertFalse(Files.exists(oldZipPath));
+		assertFalse(Files.exists(modLoader.getPreDownloadFolder(mod)));
+		assertTrue(modLoader.getMods().contains(update));
+	}
+}
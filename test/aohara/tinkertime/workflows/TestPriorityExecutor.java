@@ -0,0 +1,131 @@
+package aohara.tinkertime.workflows;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.tinkertime.workflows.PriorityExecutor.Priority;
+
+public class TestPriorityExecutor {
+	
+	private ThreadPoolExecutor pool;
+	private final List<String> started = new CopyOnWriteArrayList<>();
+	private final CountDownLatch blocker = new CountDownLatch(1);
+	
+	@Before
+	public void setUp(){
+		pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+	}
+	
+	@After
+	public void tearDown(){
+		pool.shutdownNow();
+	}
+	
+	private Runnable task(final String name, final CountDownLatch release, final CountDownLatch done){
+		return new Runnable(){
+			@Override
+			public void run() {
+				started.add(name);
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			}
+		};
+	}
+	
+	private void runAll(CountDownLatch done) throws InterruptedException {
+		blocker.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testInteractiveRunsFirst() throws InterruptedException {
+		PriorityExecutor executor = new PriorityExecutor(pool);
+		CountDownLatch done = new CountDownLatch(5), now = new CountDownLatch(0);
+		executor.execute(Priority.Background, "busy", task("busy", blocker, done));
+		executor.execute(Priority.Background, "check", task("check", now, done));
+		executor.execute(Priority.Bulk, "update", task("update", now, done));
+		executor.withPriority(Priority.Interactive, "add").execute(task("add", now, done));
+		executor.execute(Priority.Bulk, "update2", task("update2", now, done));
+		
+		runAll(done);
+		assertEquals(Arrays.asList("busy", "add", "update", "update2", "check"), started);
+	}
+	
+	@Test
+	public void testPromote() throws InterruptedException {
+		PriorityExecutor executor = new PriorityExecutor(pool);
+		CountDownLatch done = new CountDownLatch(4), now = new CountDownLatch(0);
+		executor.execute(Priority.Background, "busy", task("busy", blocker, done));
+		executor.execute(Priority.Background, "a", task("a", now, done));
+		executor.execute(Priority.Background, "b", task("b", now, done));
+		executor.execute(Priority.Bulk, "c", task("c", now, done));
+		executor.promote("b");
+		
+		runAll(done);
+		assertEquals(Arrays.asList("busy", "b", "c", "a"), started);
+	}
+	
+	@Test
+	public void testAgingPromotesBackgroundToBulk() throws InterruptedException {
+		PriorityExecutor executor = new PriorityExecutor(pool, 50);
+		CountDownLatch done = new CountDownLatch(3), now = new CountDownLatch(0);
+		executor.execute(Priority.Background, "busy", task("busy", blocker, done));
+		executor.execute(Priority.Background, "old", task("old", now, done));
+		Thread.sleep(200);
+		executor.execute(Priority.Bulk, "new", task("new", now, done));
+		
+		runAll(done);
+		assertEquals(Arrays.asList("busy", "old", "new"), started);
+	}
+	
+	@Test
+	public void testAgingNeverOutranksInteractive() throws InterruptedException {
+		PriorityExecutor executor = new PriorityExecutor(pool, 50);
+		CountDownLatch done = new CountDownLatch(4), now = new CountDownLatch(0);
+		executor.execute(Priority.Background, "busy", task("busy", blocker, done));
+		executor.execute(Priority.Background, "old", task("old", now, done));
+		executor.execute(Priority.Bulk, "oldBulk", task("oldBulk", now, done));
+		Thread.sleep(200);
+		executor.execute(Priority.Interactive, "new", task("new", now, done));
+		
+		runAll(done);
+		assertEquals(Arrays.asList("busy", "new", "oldBulk", "old"), started);
+	}
+	
+	@Test
+	public void testInteractiveStartsWhileOthersWait() throws InterruptedException {
+		pool.shutdownNow();
+		pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+		PriorityExecutor executor = new PriorityExecutor(pool);
+		CountDownLatch done = new CountDownLatch(3), now = new CountDownLatch(0);
+		executor.execute(Priority.Background, "busy", task("busy", blocker, done));
+		executor.execute(Priority.Background, "check", task("check", now, done));
+		executor.execute(Priority.Interactive, "add", task("add", blocker, done));
+		
+		// Only the reserved thread is free, and is taken by the interactive task
+		for (int i = 0; i < 100 && started.size() < 2; i++){
+			Thread.sleep(10);
+		}
+		assertEquals(new HashSet<>(Arrays.asList("busy", "add")), new HashSet<>(started));
+		
+		runAll(done);
+		assertEquals("check", started.get(2));
+	}
+}
@@ -0,0 +1,130 @@
+package aohara.tinkertime.workflows;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.tinkertime.TinkerConfig;
+import aohara.tinkertime.crawlers.Crawler;
+import aohara.tinkertime.models.Mod;
+import aohara.tinkertime.resources.ModLoader;
+import aohara.tinkertime.testutil.MockHelper;
+import aohara.tinkertime.testutil.ModStubs;
+import aohara.tinkertime.testutil.ResourceLoader;
+import aohara.tinkertime.workflows.DownloadModAssetTask.ModDownloadType;
+
+public class TestStreamingDownloadTask {
+	
+	private Path kspFolder;
+	private TinkerConfig config;
+	private ModLoader modLoader;
+	private Crawler<?> crawler;
+	private Mod mod;
+	private WorkflowGraph graph;
+	
+	@Before
+	public void setUp() throws IOException {
+		kspFolder = Files.createTempDirectory("ksp");
+		config = MockHelper.newConfig(kspFolder);
+		modLoader = new ModLoader(config);
+		crawler = ResourceLoader.loadCrawler(ModStubs.NavBall);
+		mod = crawler.getMod();
+		graph = new WorkflowGraph(new ModWorkflowBuilder(mod, null));
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(kspFolder.toFile());
+	}
+	
+	/**
+	 * Returns a task which downloads the given file instead of the mod's download link.
+	 */
+	private StreamingDownloadTask task(final Path source){
+		return task(source, ModDownloadType.File);
+	}
+	
+	private StreamingDownloadTask task(final Path source, ModDownloadType type){
+		return new StreamingDownloadTask(crawler, config, modLoader, graph, type){
+			@Override
+			protected URL getUrl() throws IOException {
+				return source.toUri().toURL();
+			}
+		};
+	}
+	
+	@Test
+	public void testStagesWhileDownloading() throws Exception {
+		Path source = ResourceLoader.getZipPath(ModStubs.NavBall);
+		StreamingDownloadTask task = task(source);
+		assertTrue(task.execute());
+		
+		assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(modLoader.getZipPath(mod)));
+		assertTrue(task.isStaged());
+		
+		Path stagingFolder = task.getStagingFolder(mod);
+		try(ZipFile zipFile = new ZipFile(source.toFile())){
+			for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); ){
+				ZipEntry entry = entries.nextElement();
+				if (!entry.isDirectory()){
+					try(InputStream is = zipFile.getInputStream(entry)){
+						assertArrayEquals(IOUtils.toByteArray(is), Files.readAllBytes(stagingFolder.resolve(entry.getName())));
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testUpdateDownloadedBesideZip() throws Exception {
+		Path source = ResourceLoader.getZipPath(ModStubs.NavBall);
+		StreamingDownloadTask task = task(source, ModDownloadType.PreDownload);
+		assertTrue(task.execute());
+		
+		assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(modLoader.getPreDownloadPath(mod)));
+		assertFalse(Files.exists(modLoader.getZipPath(mod)));
+		assertTrue(task.isStaged());
+	}
+	
+	@Test
+	public void testUnreadableArchiveStillDownloads() throws Exception {
+		Path source = kspFolder.resolve("corrupt.zip");
+		Files.write(source, "not a zip".getBytes());
+		StreamingDownloadTask task = task(source);
+		assertTrue(task.execute());
+		
+		assertEquals("not a zip", new String(Files.readAllBytes(modLoader.getZipPath(mod))));
+		assertFalse(task.isStaged());
+		assertFalse(Files.exists(task.getStagingFolder(mod)));
+	}
+	
+	@Test
+	public void testFailedDownloadDiscardsStaging() throws Exception {
+		StreamingDownloadTask task = task(kspFolder.resolve("missing.zip"));
+		try {
+			task.execute();
+		} catch (IOException e){
+			// Expected
+		}
+		
+		assertFalse(Files.exists(modLoader.getZipPath(mod)));
+		assertFalse(task.isStaged());
+		assertFalse(Files.exists(task.getStagingFolder(mod)));
+	}
+}
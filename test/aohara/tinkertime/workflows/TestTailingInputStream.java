@@ -0,0 +1,101 @@
+package aohara.tinkertime.workflows;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestTailingInputStream {
+	
+	private Path folder, path;
+	private TailingInputStream tail;
+	
+	@Before
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("tail");
+		path = folder.resolve("download.tempDownload");
+		tail = new TailingInputStream(path);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		tail.close();
+		Files.deleteIfExists(path);
+		Files.delete(folder);
+	}
+	
+	/**
+	 * Reads the stream to its end on another thread.  The result is either
+	 * the bytes read, or the exception which ended the read.
+	 */
+	private Thread readAll(final AtomicReference<Object> result){
+		Thread reader = new Thread(new Runnable(){
+			@Override
+			public void run() {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				try {
+					byte[] buf = new byte[4];
+					for (int n; (n = tail.read(buf, 0, buf.length)) != -1; ){
+						bytes.write(buf, 0, n);
+					}
+					result.set(bytes.toByteArray());
+				} catch (IOException e) {
+					result.set(e);
+				}
+			}
+		});
+		reader.start();
+		return reader;
+	}
+	
+	@Test
+	public void testReadsWhileWritten() throws Exception {
+		AtomicReference<Object> result = new AtomicReference<>();
+		Thread reader = readAll(result);
+		
+		// The file does not exist until the download begins
+		Thread.sleep(100);
+		try(OutputStream os = Files.newOutputStream(path)){
+			os.write("first ".getBytes());
+			os.flush();
+			Thread.sleep(100);
+			assertTrue(reader.isAlive());  // Waiting for more bytes
+			
+			os.write("second".getBytes());
+		}
+		tail.finish();
+		
+		reader.join(5000);
+		assertArrayEquals("first second".getBytes(), (byte[]) result.get());
+	}
+	
+	@Test
+	public void testFinishedWithoutFile() throws Exception {
+		tail.finish();
+		assertEquals(-1, tail.read());
+	}
+	
+	@Test
+	public void testAbortFailsRead() throws Exception {
+		Files.write(path, "partial".getBytes());
+		AtomicReference<Object> result = new AtomicReference<>();
+		Thread reader = readAll(result);
+		
+		Thread.sleep(100);
+		assertTrue(reader.isAlive());
+		tail.abort();
+		
+		reader.join(5000);
+		assertTrue(result.get() instanceof IOException);
+	}
+}
@@ -0,0 +1,196 @@
+package aohara.tinkertime.workflows;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import aohara.common.workflows.tasks.TaskCallback;
+import aohara.common.workflows.tasks.WorkflowTask;
+import aohara.tinkertime.models.Mod;
+
+public class TestWorkflowGraph {
+	
+	private ExecutorService pool;
+	private ModWorkflowBuilder root;
+	private WorkflowGraph graph;
+	private final List<String> finished = new CopyOnWriteArrayList<>();
+	private final CountDownLatch done = new CountDownLatch(1);
+	
+	@Before
+	public void setUp() throws IOException {
+		pool = Executors.newFixedThreadPool(4);
+		root = workflow("root", true);
+		graph = new WorkflowGraph(root);
+		graph.addDoneListener(new Runnable(){
+			@Override
+			public void run() {
+				done.countDown();
+			}
+		});
+	}
+	
+	@After
+	public void tearDown(){
+		pool.shutdownNow();
+	}
+	
+	private ModWorkflowBuilder workflow(String name, boolean succeeds) throws IOException {
+		ModWorkflowBuilder workflow = new ModWorkflowBuilder(Mod.newTempMod(new URL("http://test.com/" + name)), null);
+		workflow.addTask(new RecordTask(name, succeeds));
+		return workflow;
+	}
+	
+	private void execute() throws InterruptedException {
+		graph.execute(pool, Collections.<TaskCallback>emptyList());
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testDependentsRunAfterDependencies() throws Exception {
+		ModWorkflowBuilder a = workflow("a", true), b = workflow("b", true), c = workflow("c", true);
+		graph.add(a, root);
+		graph.add(b, root);
+		graph.add(c, a, b);
+		execute();
+		
+		assertEquals(4, finished.size());
+		assertEquals("root", finished.get(0));
+		assertEquals(new HashSet<>(Arrays.asList("a", "b")), new HashSet<>(finished.subList(1, 3)));
+		assertEquals("c", finished.get(3));
+	}
+	
+	@Test
+	public void testFailureSkipsDependents() throws Exception {
+		ModWorkflowBuilder a = workflow("a", false), b = workflow("b", true);
+		graph.add(a, root);
+		graph.add(b, root);
+		graph.add(workflow("afterA", true), a);
+		graph.add(workflow("afterBoth", true), a, b);
+		graph.add(workflow("afterB", true), b);
+		execute();
+		
+		assertEquals(new HashSet<>(Arrays.asList("root", "a", "b", "afterB")), new HashSet<>(finished));
+	}
+	
+	@Test
+	public void testExceptionSkipsDependents() throws Exception {
+		ModWorkflowBuilder a = workflow("a", true);
+		a.addTask(new RecordTask("error", true){
+			@Override
+			public boolean execute() throws IOException {
+				throw new IOException("Download failed");
+			}
+		});
+		graph.add(a, root);
+		graph.add(workflow("afterA", true), a);
+		execute();
+		
+		assertEquals(Arrays.asList("root", "a"), finished);
+	}
+	
+	@Test
+	public void testCancelStopsRemainingWorkflows() throws Exception {
+		final CountDownLatch running = new CountDownLatch(1);
+		final CountDownLatch blocker = new CountDownLatch(1);
+		ModWorkflowBuilder a = workflow("a", true);
+		a.addTask(new RecordTask("blocked", true){
+			@Override
+			public boolean execute() throws IOException {
+				try(Closeable interruptible = graph.interruptOnCancel()){
+					running.countDown();
+					blocker.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					return false;  // Interrupted by the cancellation
+				}
+				return super.execute();
+			}
+		});
+		graph.add(a, root);
+		graph.add(workflow("afterA", true), a);
+		
+		graph.execute(pool, Collections.<TaskCallback>emptyList());
+		assertTrue(running.await(5, TimeUnit.SECONDS));
+		graph.cancel();
+		
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(graph.isCancelled());
+		assertEquals(Arrays.asList("root", "a"), finished);
+	}
+	
+	@Test
+	public void testCancelDoesNotInterruptOtherWork() throws Exception {
+		final CountDownLatch running = new CountDownLatch(1);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		ModWorkflowBuilder a = workflow("a", true);
+		a.addTask(new RecordTask("committed", true){
+			@Override
+			public boolean execute() throws IOException {
+				running.countDown();
+				try {
+					cancelled.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					return false;
+				}
+				return super.execute();
+			}
+		});
+		graph.add(a, root);
+		graph.add(workflow("afterA", true), a);
+		
+		graph.execute(pool, Collections.<TaskCallback>emptyList());
+		assertTrue(running.await(5, TimeUnit.SECONDS));
+		graph.cancel();
+		cancelled.countDown();
+		
+		// The running work completes, but its dependents are not started
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("root", "a", "committed"), finished);
+	}
+	
+	@Test
+	public void testCancelAfterDoneIgnored() throws Exception {
+		execute();
+		graph.cancel();
+		assertFalse(graph.isCancelled());
+	}
+	
+	private class RecordTask extends WorkflowTask {
+		
+		private final String name;
+		private final boolean succeeds;
+		
+		private RecordTask(String name, boolean succeeds){
+			super(name);
+			this.name = name;
+			this.succeeds = succeeds;
+		}
+		
+		@Override
+		public boolean execute() throws IOException {
+			finished.add(name);
+			return succeeds;
+		}
+		
+		@Override
+		protected int findTargetProgress() throws IOException {
+			return 0;
+		}
+	}
+}